@@ -1,6 +1,7 @@
 package com.evdealer.evdealermanagement.configurations;
 
 import com.evdealer.evdealermanagement.service.implement.AccountDetailsService;
+import com.evdealer.evdealermanagement.service.implement.AccountStatusCache;
 import com.evdealer.evdealermanagement.service.implement.JwtService;
 import com.evdealer.evdealermanagement.service.implement.RedisService;
 import io.jsonwebtoken.Claims;
@@ -11,6 +12,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -33,6 +35,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final AccountDetailsService userDetailsService;
     private final RedisService redisService;
+    private final AccountStatusCache accountStatusCache;
+    // true: token có account id thì dựng principal từ AccountStatusCache, không query accounts mỗi request
+    private final boolean statelessPrincipal;
 
     // ===== THÊM DANH SÁCH PUBLIC ENDPOINTS =====
     private static final List<String> PUBLIC_ENDPOINTS = Arrays.asList(
@@ -58,15 +63,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             "/v3/api-docs/",
             "/v3/api-docs/swagger-config",
             "/public/brands",
+            "/public/reference-data",
             "/seller-reviews/seller",
             "/ws-notifications"
     );
 
 
-    public JwtAuthenticationFilter(JwtService jwtService, AccountDetailsService userDetailsService, RedisService redisService) {
+    public JwtAuthenticationFilter(JwtService jwtService, AccountDetailsService userDetailsService, RedisService redisService,
+                                   AccountStatusCache accountStatusCache,
+                                   @Value("${security.jwt.stateless-principal:true}") boolean statelessPrincipal) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
         this.redisService = redisService;
+        this.accountStatusCache = accountStatusCache;
+        this.statelessPrincipal = statelessPrincipal;
     }
 
     @Override
@@ -115,8 +125,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 logger.warn("Redis unavailable, skipping blacklist check: {}", redisEx.getMessage());
             }
 
-            // ===== 4. EXTRACT USERNAME TỪ TOKEN =====
-            String username = jwtService.extractUsername(token);
+            // ===== 4. PARSE TOKEN MỘT LẦN (KIỂM CHỮ KÝ + EXP), CLAIMS DÙNG CHO CÁC BƯỚC SAU =====
+            Claims claims = jwtService.extractAllClaims(token);
+            String username = claims.getSubject();
 
             if (username == null) {
                 logger.warn("Cannot extract username from token");
@@ -131,48 +142,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
-            // ===== 6. LOAD USER DETAILS =====
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            // ===== 7. VALIDATE TOKEN =====
-            if (!jwtService.validateToken(token, userDetails)) {
-                logger.warn("Invalid token for user: {}", username);
-                filterChain.doFilter(request, response);
-                return;
-            }
+            // ===== 6. DỰNG PRINCIPAL TỪ CLAIMS + ẢNH CHỤP TRẠNG THÁI ACCOUNT (KHÔNG QUERY DB) =====
+            String accountId = claims.get(JwtService.ACCOUNT_ID_CLAIM, String.class);
+            if (statelessPrincipal && accountId != null) {
+                AccountStatusCache.Snapshot snapshot = accountStatusCache.get(accountId);
+                if (snapshot == null || !username.equals(snapshot.getUsername())) {
+                    logger.warn("Token account {} no longer matches user: {}", accountId, username);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                if (snapshot.isBanned()) {
+                    logger.warn("Banned account used token: {}", username);
+                    SecurityContextHolder.clearContext();
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                    response.setContentType("application/json");
+                    response.getWriter().write("{\"error\": \"Account has been banned\"}");
+                    return;
+                }
 
-            // ===== 8. EXTRACT ROLES TỪ TOKEN =====
-            Claims claims = jwtService.extractAllClaims(token);
-            List<String> roles = claims.get("roles", List.class);
-
-            // SỬA: Xử lý null-safe
-            List<SimpleGrantedAuthority> authorities;
-            if (roles != null && !roles.isEmpty()) {
-                authorities = roles.stream()
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
-                logger.debug("Roles from token: {}", roles);
+                // Quyền lấy từ role hiện tại của account (đổi role có hiệu lực ngay, không đợi token hết hạn)
+                UserDetails principal = snapshot.toPrincipal();
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principal,
+                        null,
+                        principal.getAuthorities()
+                );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                logger.debug("User authenticated from token claims: {} with authorities: {}",
+                        username, authToken.getAuthorities());
             } else {
-                // Fallback to userDetails authorities
-                authorities = userDetails.getAuthorities().stream()
-                        .map(auth -> new SimpleGrantedAuthority(auth.getAuthority()))
-                        .collect(Collectors.toList());
-                logger.debug("Using authorities from UserDetails");
+                authenticateFromDatabase(username, claims, request);
             }
 
-            // ===== 9. TẠO AUTHENTICATION TOKEN =====
-            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                    userDetails,
-                    null,
-                    authorities
-            );
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-            // ===== 10. SET AUTHENTICATION VÀO SECURITY CONTEXT =====
-            SecurityContextHolder.getContext().setAuthentication(authToken);
-            logger.debug("User authenticated successfully: {} with authorities: {}",
-                    username, authToken.getAuthorities());
-
         } catch (BadCredentialsException e) {
             logger.error("Bad credentials: {}", e.getMessage());
             SecurityContextHolder.clearContext();
@@ -191,6 +193,51 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Token cũ (không có account id) hoặc đã tắt stateless-principal: load account từ DB như trước
+     */
+    private void authenticateFromDatabase(String username, Claims claims, HttpServletRequest request) {
+        // ===== 6b. LOAD USER DETAILS =====
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+
+        // ===== 7. VALIDATE TOKEN =====
+        if (!jwtService.validateClaims(claims, userDetails)) {
+            logger.warn("Invalid token for user: {}", username);
+            return;
+        }
+
+        // ===== 8. EXTRACT ROLES TỪ TOKEN =====
+        List<String> roles = claims.get("roles", List.class);
+
+        // SỬA: Xử lý null-safe
+        List<SimpleGrantedAuthority> authorities;
+        if (roles != null && !roles.isEmpty()) {
+            authorities = roles.stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toList());
+            logger.debug("Roles from token: {}", roles);
+        } else {
+            // Fallback to userDetails authorities
+            authorities = userDetails.getAuthorities().stream()
+                    .map(auth -> new SimpleGrantedAuthority(auth.getAuthority()))
+                    .collect(Collectors.toList());
+            logger.debug("Using authorities from UserDetails");
+        }
+
+        // ===== 9. TẠO AUTHENTICATION TOKEN =====
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                authorities
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        // ===== 10. SET AUTHENTICATION VÀO SECURITY CONTEXT =====
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        logger.debug("User authenticated successfully: {} with authorities: {}",
+                username, authToken.getAuthorities());
+    }
+
     /**
      * Kiểm tra xem request có phải là public endpoint không
      */
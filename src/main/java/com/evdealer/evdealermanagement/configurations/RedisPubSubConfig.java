@@ -0,0 +1,39 @@
+package com.evdealer.evdealermanagement.configurations;
+
+import com.evdealer.evdealermanagement.service.implement.AccountStatusCache;
+import com.evdealer.evdealermanagement.service.implement.RedisService;
+import com.evdealer.evdealermanagement.service.index.ProductChangeBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Các kênh pub/sub Redis dùng để báo thay đổi giữa các replica (xoá cache L1 trên mọi node):
+ * product/taxonomy thay đổi, account bị ban/unban/sửa và token bị đưa vào blacklist.
+ * Dùng chung connection factory Lettuce với StringRedisTemplate.
+ */
+@Configuration
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            ProductChangeBroadcaster productChangeBroadcaster,
+            AccountStatusCache accountStatusCache,
+            RedisService redisService,
+            @Value("${product.cache-sync.enabled:true}") boolean productSyncEnabled) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (productSyncEnabled) {
+            container.addMessageListener(productChangeBroadcaster, new ChannelTopic(ProductChangeBroadcaster.CHANNEL));
+            container.addMessageListener(productChangeBroadcaster,
+                    new ChannelTopic(ProductChangeBroadcaster.TAXONOMY_CHANNEL));
+        }
+        container.addMessageListener(accountStatusCache, new ChannelTopic(AccountStatusCache.CHANNEL));
+        container.addMessageListener(redisService, new ChannelTopic(RedisService.CHANNEL));
+        return container;
+    }
+}
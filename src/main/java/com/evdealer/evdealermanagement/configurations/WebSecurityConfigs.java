@@ -77,7 +77,8 @@ public class WebSecurityConfigs {
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**",
                                 "/seller-reviews/seller/**",
-                                "/public/brands/**")
+                                "/public/brands/**",
+                                "/public/reference-data")
                         .permitAll()
 
                         // Các endpoint yêu cầu role
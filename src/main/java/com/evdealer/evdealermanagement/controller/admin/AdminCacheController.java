@@ -0,0 +1,69 @@
+package com.evdealer.evdealermanagement.controller.admin;
+
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import com.evdealer.evdealermanagement.service.index.ApproximateCountCache;
+import com.evdealer.evdealermanagement.service.index.EntityCacheRegions;
+import com.evdealer.evdealermanagement.service.index.ProductDetailResponseCache;
+import com.evdealer.evdealermanagement.service.index.ProductQueryCache;
+import com.evdealer.evdealermanagement.service.index.ReferenceDataSnapshot;
+import com.evdealer.evdealermanagement.service.implement.AccountStatusCache;
+import com.evdealer.evdealermanagement.service.implement.JwtClaimsCache;
+import com.evdealer.evdealermanagement.service.implement.RedisService;
+import com.evdealer.evdealermanagement.service.implement.UserContextService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/cache")
+@RequiredArgsConstructor
+public class AdminCacheController {
+
+    private final ProductQueryCache productQueryCache;
+    private final ApproximateCountCache approximateCountCache;
+    private final ProductDetailResponseCache productDetailResponseCache;
+    private final EntityCacheRegions entityCacheRegions;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+    private final JwtClaimsCache jwtClaimsCache;
+    private final AccountStatusCache accountStatusCache;
+    private final UserContextService userContextService;
+    private final RedisService redisService;
+
+    /**
+     * Số lần hit/miss, kích thước và số entry bị loại của các cache trong bộ nhớ
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<CacheStatsResponse>> getStats() {
+        List<CacheStatsResponse> stats = new ArrayList<>();
+        stats.add(productQueryCache.getStats());
+        stats.add(productQueryCache.getL2Stats());
+        stats.add(approximateCountCache.getStats());
+        stats.add(productDetailResponseCache.getStats());
+        stats.addAll(entityCacheRegions.getStats());
+        stats.add(jwtClaimsCache.getStats());
+        stats.add(accountStatusCache.getStats());
+        stats.add(userContextService.getStats());
+        stats.add(redisService.getBlacklistStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Xoá cache L2 của taxonomy/gói đăng tin và dựng lại dữ liệu tham chiếu,
+     * dùng sau khi sửa các bảng này trực tiếp trong DB
+     */
+    @PostMapping("/reference-data/evict")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> evictReferenceData() {
+        entityCacheRegions.evictAll();
+        referenceDataSnapshot.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
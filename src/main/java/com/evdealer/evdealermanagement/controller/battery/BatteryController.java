@@ -2,12 +2,17 @@ package com.evdealer.evdealermanagement.controller.battery;
 
 import com.evdealer.evdealermanagement.dto.battery.brand.BatteryBrandsResponse;
 import com.evdealer.evdealermanagement.dto.battery.brand.BatteryTypesResponse;
+import com.evdealer.evdealermanagement.dto.common.PageResponse;
+import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
 import com.evdealer.evdealermanagement.dto.product.similar.SimilarProductResponse;
 import com.evdealer.evdealermanagement.service.implement.BatteryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -27,6 +32,24 @@ public class BatteryController {
         return batteryService.listAllBatteryTypesSorted();
     }
 
+    /**
+     * Tìm pin theo khoảng dung lượng, % sức khoẻ, giá và loại pin (mọi tham số đều tuỳ chọn)
+     * GET /battery/search?minCapacityKwh=40&minHealthPercent=80&maxPrice=150000000
+     */
+    @GetMapping("/search")
+    public ResponseEntity<PageResponse<ProductDetail>> searchBatteries(
+            @RequestParam(required = false) BigDecimal minCapacityKwh,
+            @RequestParam(required = false) BigDecimal maxCapacityKwh,
+            @RequestParam(required = false) Integer minHealthPercent,
+            @RequestParam(required = false) Integer maxHealthPercent,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String batteryTypeId,
+            @PageableDefault(page = 0, size = 20) Pageable pageable) {
+        return ResponseEntity.ok(batteryService.searchBatteries(minCapacityKwh, maxCapacityKwh,
+                minHealthPercent, maxHealthPercent, minPrice, maxPrice, batteryTypeId, pageable));
+    }
+
     @GetMapping("/{productId}/similar")
     public ResponseEntity<List<SimilarProductResponse>> getSimilarBatteries(@PathVariable String productId) {
         List<SimilarProductResponse> result = batteryService.getSimilarBatteries(productId);
@@ -0,0 +1,67 @@
+package com.evdealer.evdealermanagement.controller.brand;
+
+import com.evdealer.evdealermanagement.exceptions.AppException;
+import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import com.evdealer.evdealermanagement.service.index.ReferenceDataSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/public/reference-data")
+@RequiredArgsConstructor
+public class ReferenceDataController {
+
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+
+    /**
+     * Toàn bộ brand/loại/model/version xe, brand/loại pin và gói đăng tin trong một payload.
+     * Gửi lại ETag qua If-None-Match: dữ liệu chưa đổi thì nhận 304 không kèm body.
+     */
+    @GetMapping
+    public ResponseEntity<byte[]> getReferenceData(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot == null) {
+            throw new AppException(ErrorCode.SERVICE_UNAVAILABLE, "Dữ liệu tham chiếu đang được khởi tạo, vui lòng thử lại");
+        }
+
+        // Luôn hỏi lại server (no-cache) nhưng chỉ tải body khi ETag đổi
+        CacheControl cacheControl = CacheControl.noCache().cachePublic();
+        if (matches(ifNoneMatch, snapshot.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.getEtag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getPayload());
+    }
+
+    // If-None-Match có thể là "*" hoặc danh sách ETag (kể cả dạng weak W/"...")
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package com.evdealer.evdealermanagement.controller.product;
+
+import com.evdealer.evdealermanagement.dto.product.compatibility.CompatibilityLookupRequest;
+import com.evdealer.evdealermanagement.dto.product.compatibility.CompatibleProductResponse;
+import com.evdealer.evdealermanagement.service.implement.CompatibilityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/product/compatibility")
+@RequiredArgsConstructor
+public class ProductCompatibilityController {
+
+    private final CompatibilityService compatibilityService;
+
+    /**
+     * Pin tương thích cho nhiều tin xe cùng lúc
+     * POST /product/compatibility/batteries {"productIds": ["..."], "limitPerProduct": 10}
+     */
+    @PostMapping("/batteries")
+    public ResponseEntity<Map<String, List<CompatibleProductResponse>>> compatibleBatteries(
+            @RequestBody CompatibilityLookupRequest request) {
+        return ResponseEntity.ok(compatibilityService.findCompatibleBatteries(request));
+    }
+
+    /**
+     * Xe lắp được cho nhiều tin pin cùng lúc
+     * POST /product/compatibility/vehicles {"productIds": ["..."]}
+     */
+    @PostMapping("/vehicles")
+    public ResponseEntity<Map<String, List<CompatibleProductResponse>>> compatibleVehicles(
+            @RequestBody CompatibilityLookupRequest request) {
+        return ResponseEntity.ok(compatibilityService.findCompatibleVehicles(request));
+    }
+}
@@ -2,6 +2,7 @@ package com.evdealer.evdealermanagement.controller.product;
 
 import com.evdealer.evdealermanagement.dto.common.PageResponse;
 import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
+import com.evdealer.evdealermanagement.dto.product.search.ProductFacetResponse;
 import com.evdealer.evdealermanagement.service.implement.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -56,6 +57,8 @@ public class ProductFilterController {
      * - /product/filter?type=BATTERY (filter by type)
      * - /product/filter?brand=LG&type=BATTERY (combine filters)
      * - /product/filter?name=RESU&brand=LG&type=BATTERY (all filters)
+     * - /product/filter?type=VEHICLE&after= (cursor mode, sau đó gửi nextCursor; sort=price,asc để seek theo giá)
+     * - /product/filter?type=VEHICLE&count=false (không COUNT: hasNextPage + tổng xấp xỉ đếm nền)
      */
     @GetMapping
     public ResponseEntity<PageResponse<ProductDetail>> filterProducts(
@@ -70,22 +73,63 @@ public class ProductFilterController {
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) String type,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean count,
             @PageableDefault(page = 0, size = 20, sort = "updatedAt", direction = Sort.Direction.DESC) Pageable pageable
 
     ) {
-        PageResponse<ProductDetail> response = productService.filterProducts(name, brand, type, city, district, minPrice, maxPrice, yearFrom, yearTo, pageable);
+        PageResponse<ProductDetail> response = productService.filterProducts(name, brand, type, city, district, minPrice, maxPrice, yearFrom, yearTo, after, count, pageable);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Đếm số tin theo brand / city / district / năm / khoảng giá với cùng bộ lọc của /product/filter
+     * GET /product/filter/facets?type=VEHICLE&city=Hà Nội
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetResponse> getFilterFacets(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String type
+    ) {
+        ProductFacetResponse response = productService.getFilterFacets(name, brand, type, city, district, minPrice, maxPrice, yearFrom, yearTo);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Lọc xe theo thông số: quãng đường, dung lượng pin, tốc độ tối đa, 0-100 km/h, pin tháo rời
+     * GET /product/filter/vehicle-specs?minRangeKm=300&maxAcceleration0100s=8
+     */
+    @GetMapping("/vehicle-specs")
+    public ResponseEntity<PageResponse<ProductDetail>> filterVehiclesBySpecs(
+            @RequestParam(required = false) Double minRangeKm,
+            @RequestParam(required = false) Double minBatteryKwh,
+            @RequestParam(required = false) Double minTopSpeedKmh,
+            @RequestParam(required = false) Double maxAcceleration0100s,
+            @RequestParam(required = false) Boolean removableBattery,
+            @PageableDefault(page = 0, size = 20) Pageable pageable
+    ) {
+        PageResponse<ProductDetail> response = productService.filterVehiclesBySpecs(minRangeKm, minBatteryKwh,
+                minTopSpeedKmh, maxAcceleration0100s, removableBattery, pageable);
+        return ResponseEntity.ok(response);
+    }
 
     @GetMapping("/brand")
     public ResponseEntity<PageResponse<ProductDetail>> findProductsByBrand(
 
             @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean count,
             @PageableDefault(page = 0, size = 20, sort = "updatedAt", direction = Sort.Direction.DESC) Pageable pageable
 
     ) {
-        PageResponse<ProductDetail> response = productService.findProductsByBrand(brand, pageable);
+        PageResponse<ProductDetail> response = productService.findProductsByBrand(brand, after, count, pageable);
         return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
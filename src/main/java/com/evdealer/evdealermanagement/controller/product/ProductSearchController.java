@@ -2,18 +2,23 @@ package com.evdealer.evdealermanagement.controller.product;
 
 import com.evdealer.evdealermanagement.dto.common.PageResponse;
 import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
+import com.evdealer.evdealermanagement.dto.product.search.TypeaheadSuggestion;
 import com.evdealer.evdealermanagement.service.implement.ProductService;
+import com.evdealer.evdealermanagement.service.index.ProductDetailResponseCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -32,7 +37,8 @@ public class ProductSearchController {
      * Find Product By ID
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDetail> getProductById(@PathVariable String id) {
+    public ResponseEntity<byte[]> getProductById(@PathVariable String id,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
             if (id == null || id.trim().isEmpty()) {
                 log.warn("Invalid product ID");
@@ -40,21 +46,46 @@ public class ProductSearchController {
             }
 
             log.info("Request → Get product by ID: {}", id);
-            Optional<ProductDetail> product = productService.getProductById(id);
+            // Body đã serialize + gzip sẵn theo product, chỉ isWishlisted được chọn theo người xem
+            Optional<ProductDetailResponseCache.Body> body = productService.getProductDetailBody(id);
+            if (body.isEmpty()) {
+                log.info("Product not found with ID: {}", id);
+                return ResponseEntity.notFound().build();
+            }
 
-            return product.map(ResponseEntity::ok)
-                    .orElseGet(() -> {
-                        log.info("Product not found with ID: {}", id);
-                        return ResponseEntity.notFound().build();
-                    });
+            Boolean wishlisted = productService.getWishlistFlag(id);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(acceptEncoding)) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .body(body.get().gzip(wishlisted));
+            }
+            return response.body(body.get().identity(wishlisted));
         } catch (Exception e) {
             log.error("Error getting product by ID: {}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] coding = part.trim().split(";");
+            if (coding[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 nghĩa là không nhận
+                return coding.length < 2 || !coding[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
     /**
      * Tìm sản phẩm theo tên
+     * Thêm ?after= (rỗng ở trang đầu, sau đó là nextCursor) để phân trang bằng cursor, không trả về tổng số
+     * Thêm ?count=false để bỏ COUNT: chỉ trả hasNextPage và tổng xấp xỉ (totalApproximate=true) nếu đã có
      */
     @GetMapping("/by-name")
     public ResponseEntity<PageResponse<ProductDetail>> getProductsByName(@RequestParam String name,
@@ -63,6 +94,8 @@ public class ProductSearchController {
                                                                          @RequestParam(required = false) BigDecimal maxPrice,
                                                                          @RequestParam(required = false) Integer yearFrom,
                                                                          @RequestParam(required = false) Integer yearTo,
+                                                                         @RequestParam(required = false) String after,
+                                                                         @RequestParam(defaultValue = "true") boolean count,
                                                                          @PageableDefault(page = 0, size = 20, sort = {"isHot", "updatedAt"}, direction = Sort.Direction.DESC) Pageable pageable) {
         try {
             if (name == null || name.trim().isEmpty()) {
@@ -72,7 +105,7 @@ public class ProductSearchController {
 
             log.info("Request → Search products by name: {}", name);
             PageResponse<ProductDetail> products = productService.getProductByName(name.trim(),
-                    city, minPrice, maxPrice, yearFrom, yearTo, pageable);
+                    city, minPrice, maxPrice, yearFrom, yearTo, after, count, pageable);
 
             if (products == null || products.getItems() == null || products.getItems().isEmpty()) {
                 log.info("No products found with name: {}", name);
@@ -85,4 +118,28 @@ public class ProductSearchController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Tìm sản phẩm ACTIVE theo tên hãng (khớp một phần), có phân trang
+     */
+    @GetMapping("/by-brand")
+    public ResponseEntity<PageResponse<ProductDetail>> getProductsByBrand(@RequestParam String brand,
+                                                                          @PageableDefault(page = 0, size = 20) Pageable pageable) {
+        if (brand == null || brand.trim().isEmpty()) {
+            log.warn("Invalid brand parameter");
+            return ResponseEntity.badRequest().build();
+        }
+
+        log.info("Request → Search products by brand: {}", brand);
+        return ResponseEntity.ok(productService.getProductByBrand(brand.trim(), pageable));
+    }
+
+    /**
+     * Gợi ý khi gõ (typeahead) cho ô tìm kiếm
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TypeaheadSuggestion>> suggest(@RequestParam String q,
+                                                             @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.getTypeaheadSuggestions(q, limit));
+    }
 }
@@ -0,0 +1,22 @@
+package com.evdealer.evdealermanagement.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CacheStatsResponse {
+    private String name;
+    private long size;
+    private long hits;
+    private long misses;
+    // bị bỏ vì quá hạn TTL, sai version hoặc vượt kích thước
+    private long evictions;
+    private double hitRatio;
+    // số lần gọi Redis lỗi (đã bỏ qua), chỉ có ở tầng dùng chung
+    private Long errors;
+}
@@ -18,10 +18,15 @@ public class PageResponse<T> {
     List<T> items;
     int page;
     int size;
-    long totalElements;
-    int totalPages;
+    // null ở chế độ cursor (không chạy COUNT); ở chế độ count=false là tổng xấp xỉ nếu đã có
+    Long totalElements;
+    Integer totalPages;
+    // true khi totalElements là số đếm nền (có thể lệch so với hiện tại)
+    Boolean totalApproximate;
     boolean hasPreviousPage;
     boolean hasNextPage;
+    // chỉ có ở chế độ cursor: truyền vào ?after= để lấy trang kế tiếp
+    String nextCursor;
 
     //hàm dùng để chuyển đổi từ Page<> sang WishlistPageResponse<>
     //E is Entity in DB
@@ -52,6 +57,33 @@ public class PageResponse<T> {
                 .build();
     }
 
+    public static <T> PageResponse<T> ofCursor(List<T> items, int size, boolean hasPreviousPage, String nextCursor) {
+        return PageResponse.<T>builder()
+                .items(items)
+                .size(size)
+                .hasPreviousPage(hasPreviousPage)
+                .hasNextPage(nextCursor != null)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Chế độ count=false: không chạy COUNT, hasNextPage biết nhờ lấy thừa một dòng.
+     * approximateTotal null khi chưa đếm xong lần nào
+     */
+    public static <T> PageResponse<T> ofSlice(List<T> items, int page, int size, boolean hasNextPage,
+                                              Long approximateTotal) {
+        return PageResponse.<T>builder()
+                .items(items)
+                .page(page)
+                .size(size)
+                .totalElements(approximateTotal)
+                .totalApproximate(approximateTotal != null ? Boolean.TRUE : null)
+                .hasPreviousPage(page > 0)
+                .hasNextPage(hasNextPage)
+                .build();
+    }
+
     public static <T> PageResponse<T> of(List<T> content, Page<?> page) {
         return PageResponse.<T>builder()
                 .items(content)
@@ -0,0 +1,37 @@
+package com.evdealer.evdealermanagement.dto.common;
+
+import com.evdealer.evdealermanagement.dto.battery.brand.BatteryBrandsResponse;
+import com.evdealer.evdealermanagement.dto.battery.brand.BatteryTypesResponse;
+import com.evdealer.evdealermanagement.dto.brand.BrandItemResponse;
+import com.evdealer.evdealermanagement.dto.post.packages.PostPackageResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.brand.VehicleBrandsResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.brand.VehicleCategoriesResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.model.VehicleModelResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.model.VehicleModelVersionResponse;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Toàn bộ dữ liệu tham chiếu (taxonomy xe/pin + gói đăng tin) trong một payload,
+ * phục vụ GET /public/reference-data kèm ETag
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReferenceDataResponse {
+    List<BrandItemResponse> brands;
+    List<VehicleCategoriesResponse> vehicleCategories;
+    List<VehicleBrandsResponse> vehicleBrands;
+    // key: "{brandId}:{categoryId}"
+    Map<String, List<VehicleModelResponse>> vehicleModels;
+    // key: modelId
+    Map<String, List<VehicleModelVersionResponse>> vehicleModelVersions;
+    List<BatteryBrandsResponse> batteryBrands;
+    List<BatteryTypesResponse> batteryTypes;
+    List<PostPackageResponse> packages;
+}
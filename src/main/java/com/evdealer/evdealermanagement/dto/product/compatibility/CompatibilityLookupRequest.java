@@ -0,0 +1,19 @@
+package com.evdealer.evdealermanagement.dto.product.compatibility;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CompatibilityLookupRequest {
+    // ID các tin xe (khi tìm pin) hoặc tin pin (khi tìm xe)
+    private List<String> productIds;
+    // Số kết quả tối đa cho mỗi ID, mặc định 20
+    private Integer limitPerProduct;
+}
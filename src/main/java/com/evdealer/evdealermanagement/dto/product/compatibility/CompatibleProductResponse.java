@@ -0,0 +1,20 @@
+package com.evdealer.evdealermanagement.dto.product.compatibility;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CompatibleProductResponse {
+    private String productId;
+    private String title;
+    private BigDecimal price;
+    private String compatibilityLevel;
+    private String image;
+}
@@ -71,10 +71,16 @@ public class ProductDetail {
             return null;
 
         Hibernate.initialize(product.getImages());
+        return fromEntity(product, product.getImages());
+    }
+
+    public static ProductDetail fromEntity(Product product, List<ProductImages> images) {
+        if (product == null)
+            return null;
 
         List<ProductImageDto> imagesList = Collections.emptyList();
-        if (product.getImages() != null && !product.getImages().isEmpty()) {
-            imagesList = product.getImages().stream()
+        if (images != null && !images.isEmpty()) {
+            imagesList = images.stream()
                     .sorted(Comparator.comparing(
                             ProductImages::getPosition,
                             Comparator.nullsLast(Integer::compareTo)))
@@ -0,0 +1,17 @@
+package com.evdealer.evdealermanagement.dto.product.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FacetCount {
+    // Giá trị gửi lại cho /product/filter (brandId, city, district, year)
+    private String value;
+    private String label;
+    private long count;
+}
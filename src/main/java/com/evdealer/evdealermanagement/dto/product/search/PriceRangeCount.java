@@ -0,0 +1,21 @@
+package com.evdealer.evdealermanagement.dto.product.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PriceRangeCount {
+    private BigDecimal minPrice;
+    // null = không giới hạn trên
+    private BigDecimal maxPrice;
+    private long count;
+}
@@ -0,0 +1,26 @@
+package com.evdealer.evdealermanagement.dto.product.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Số lượng tin ACTIVE theo từng giá trị bộ lọc.
+ * Mỗi nhóm được đếm với tất cả bộ lọc còn lại (trừ chính nhóm đó),
+ * để FE hiển thị được "VinFast (124) / Hà Nội (80)" cả khi đã chọn 1 brand.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductFacetResponse {
+    private long total;
+    private List<FacetCount> brands;
+    private List<FacetCount> cities;
+    private List<FacetCount> districts;
+    private List<FacetCount> years;
+    private List<PriceRangeCount> priceRanges;
+}
@@ -0,0 +1,20 @@
+package com.evdealer.evdealermanagement.dto.product.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TypeaheadSuggestion {
+    // TITLE, VEHICLE_BRAND, MODEL, VERSION, BATTERY_BRAND, BATTERY_TYPE
+    private String type;
+    // ID của brand/model/version/loại pin; null với TITLE
+    private String id;
+    private String label;
+    // Số tin ACTIVE liên quan, dùng để xếp hạng
+    private long count;
+}
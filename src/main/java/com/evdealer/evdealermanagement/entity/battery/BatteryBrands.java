@@ -3,8 +3,12 @@ package com.evdealer.evdealermanagement.entity.battery;
 import com.evdealer.evdealermanagement.entity.BaseEntity;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "taxonomy.battery-brands")
 @Table(name = "battery_brands")
 @Getter
 @Setter
@@ -1,12 +1,17 @@
 package com.evdealer.evdealermanagement.entity.compatibility;
 
 import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.service.index.CompatibilityEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "vehicle_battery_compatibility")
+@Table(name = "vehicle_battery_compatibility", indexes = {
+        @Index(name = "idx_vbc_vehicle", columnList = "vehicle_product_id"),
+        @Index(name = "idx_vbc_battery", columnList = "battery_product_id")
+})
+@EntityListeners(CompatibilityEntityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -3,11 +3,15 @@ package com.evdealer.evdealermanagement.entity.post;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "package.post-package-options")
 @Table(name = "post_package_options")
 @Data
 @NoArgsConstructor
@@ -87,6 +87,10 @@ public class Product extends BaseEntity {
     @Column(name = "remind_before2_sent")
     private boolean remindBefore2Sent;
 
+    // Job nhắc hết hạn đang giữ tin này từ thời điểm đó (lease); quá hạn lease mà chưa gửi thì lần chạy sau nhận lại
+    @Column(name = "remind_claimed_at")
+    private LocalDateTime remindClaimedAt;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "approved_by")
     private Account approvedBy;
@@ -0,0 +1,97 @@
+package com.evdealer.evdealermanagement.entity.product;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng đọc phi chuẩn hoá cho /product/filter: mỗi product ACTIVE một dòng, mọi cột lọc nằm
+ * trên cùng một bảng (không JOIN chi tiết xe/pin, không LOWER() trên cột) để index phục vụ được.
+ * Được ProductSearchProjection ghi trong cùng transaction với các thay đổi của product.
+ */
+@Entity
+@Table(name = "product_search", indexes = {
+        @Index(name = "idx_ps_type_brand_hot_updated", columnList = "type, brand_id, is_hot, updated_at, product_id"),
+        @Index(name = "idx_ps_brand_price", columnList = "brand_id, price, product_id"),
+        @Index(name = "idx_ps_type_price", columnList = "type, price, product_id"),
+        @Index(name = "idx_ps_city_district_hot_updated", columnList = "city_code, district_code, is_hot, updated_at, product_id"),
+        @Index(name = "idx_ps_hot_updated", columnList = "is_hot, updated_at, product_id"),
+        @Index(name = "idx_ps_year_price", columnList = "manufacture_year, price"),
+        @Index(name = "idx_ps_model", columnList = "model_id"),
+        @Index(name = "idx_ps_battery_type", columnList = "battery_type_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSearch implements Persistable<String> {
+
+    @Id
+    @Column(name = "product_id", columnDefinition = "CHAR(36)")
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private Product.ProductType type;
+
+    // brand của xe hoặc của pin
+    @Column(name = "brand_id", columnDefinition = "CHAR(36)")
+    private String brandId;
+
+    @Column(name = "model_id", columnDefinition = "CHAR(36)")
+    private String modelId;
+
+    @Column(name = "battery_type_id", columnDefinition = "CHAR(36)")
+    private String batteryTypeId;
+
+    // Tiêu đề / thành phố / quận đã chuẩn hoá bằng SearchTextNormalizer.fold (thường, bỏ dấu)
+    @Column(name = "title_norm", length = 255)
+    private String titleNorm;
+
+    @Column(name = "city_code", length = 100)
+    private String cityCode;
+
+    @Column(name = "district_code", length = 100)
+    private String districtCode;
+
+    @Column(precision = 15, scale = 2)
+    private BigDecimal price;
+
+    @Column(name = "manufacture_year")
+    private Short manufactureYear;
+
+    @Column(name = "is_hot", nullable = false)
+    private Boolean isHot;
+
+    // Gói của payment mới nhất: 0 SPECIAL, 1 PRIORITY, 2 STANDARD, 3 không có
+    @Column(name = "featured_rank", nullable = false)
+    private Byte featuredRank;
+
+    @Column(name = "featured_end_at")
+    private LocalDateTime featuredEndAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Dòng luôn được ghi lại từ đầu (xoá rồi chèn), không cần SELECT trước khi persist
+    @Transient
+    @Builder.Default
+    private boolean fresh = true;
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    void markLoaded() {
+        this.fresh = false;
+    }
+}
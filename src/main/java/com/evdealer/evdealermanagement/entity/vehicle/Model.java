@@ -4,8 +4,12 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "taxonomy.vehicle-models")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 @Table(name = "model", uniqueConstraints = {
                 @UniqueConstraint(name = "uk_model_brand_vtype_name", columnNames = { "brand_id", "vehicle_type_id",
@@ -3,8 +3,12 @@ package com.evdealer.evdealermanagement.entity.vehicle;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "taxonomy.vehicle-model-versions")
 @Table(
         name = "model_version",
         uniqueConstraints = {
@@ -0,0 +1,48 @@
+package com.evdealer.evdealermanagement.mapper.post;
+
+import com.evdealer.evdealermanagement.dto.post.packages.PostPackageOptionResponse;
+import com.evdealer.evdealermanagement.dto.post.packages.PostPackageResponse;
+import com.evdealer.evdealermanagement.entity.post.PostPackage;
+import com.evdealer.evdealermanagement.entity.post.PostPackageOption;
+
+import java.util.List;
+
+public class PostPackageMapper {
+
+    public static PostPackageResponse toResponse(PostPackage p, List<PostPackageOption> options) {
+        List<PostPackageOptionResponse> optionResponses = options.stream()
+                .map(o -> PostPackageOptionResponse.builder()
+                        .id(o.getId())
+                        .name(o.getName())
+                        .durationDays(o.getDurationDays())
+                        .price(o.getPrice())
+                        .listPrice(o.getListPrice())
+                        .isDefault(o.getIsDefault())
+                        .sortOrder(o.getSortOrder())
+                        .build())
+                .toList();
+
+        String note = "STANDARD".equals(p.getCode()) ? "Miễn phí lần đăng đầu tiên" : null;
+
+        return PostPackageResponse.builder()
+                .postPackageId(p.getId())
+                .postPackageCode(p.getCode())
+                .postPackageName(p.getName())
+                .postPackageDesc(p.getDescription())
+                .billingMode(p.getBillingMode())
+                .category(p.getCategory())
+                .baseDurationDays(p.getBaseDurationDays())
+                .price(p.getPrice())
+                .dailyPrice(p.getDailyPrice())
+                .includesPostFee(p.getIncludesPostFee())
+                .priorityLevel(p.getPriorityLevel())
+                .badgeLabel(p.getBadgeLabel())
+                .showInLatest(p.getShowInLatest())
+                .showTopSearch(p.getShowTopSearch())
+                .listPrice(p.getListPrice())
+                .isDefault(p.getIsDefault())
+                .note(note)
+                .options(optionResponses)
+                .build();
+    }
+}
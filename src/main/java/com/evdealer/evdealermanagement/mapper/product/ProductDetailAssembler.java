@@ -0,0 +1,77 @@
+package com.evdealer.evdealermanagement.mapper.product;
+
+import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.product.ProductImages;
+import com.evdealer.evdealermanagement.repository.ProductImagesRepository;
+import com.evdealer.evdealermanagement.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Dựng danh sách ProductDetail với số query cố định, thay cho việc gọi ProductMapper.toDetailDto
+ * trên từng entity (mỗi product kéo theo lazy-load ảnh, chi tiết xe/pin, brand/model/version...):
+ * - 1 query product + seller + chi tiết xe/pin + taxonomy (fetch join)
+ * - 1 query ảnh cho tất cả product
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductDetailAssembler {
+
+    private final ProductRepository productRepository;
+    private final ProductImagesRepository productImagesRepository;
+
+    /**
+     * Nạp product theo danh sách ID, giữ nguyên thứ tự của ids (ID không tồn tại bị bỏ qua)
+     */
+    @Transactional(readOnly = true)
+    public List<Product> loadInOrder(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> byId = productRepository.findAllWithDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p, (a, b) -> a));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Map product đã nạp sang ProductDetail bằng ProductMapper.toDetailDto, ảnh lấy bằng 1 query
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDetail> toDetails(List<Product> products) {
+        return toDetails(products, ProductMapper::toDetailDto);
+    }
+
+    /**
+     * Như trên nhưng cho phép chọn hàm map (vd. ProductDetail::fromEntity cho recent views)
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDetail> toDetails(List<Product> products,
+                                         BiFunction<Product, List<ProductImages>, ProductDetail> mapper) {
+        if (products == null || products.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<ProductImages>> images = loadImages(products.stream().map(Product::getId).toList());
+        return products.stream()
+                .map(p -> mapper.apply(p, images.getOrDefault(p.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ảnh theo productId (chưa sắp xếp; mapper tự sắp theo position)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, List<ProductImages>> loadImages(Collection<String> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Map.of();
+        }
+        // getProduct().getId() trên proxy không kích hoạt lazy-load
+        return productImagesRepository.findByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(img -> img.getProduct().getId()));
+    }
+}
@@ -29,11 +29,18 @@ public class ProductMapper {
 
         // Initialize images để tránh lazy loading exception
         Hibernate.initialize(product.getImages());
+        return toDetailDto(product, product.getImages());
+    }
+
+    // Entity -> DTO với ảnh đã nạp sẵn (ProductDetailAssembler), không chạm product.getImages()
+    public static ProductDetail toDetailDto(Product product, List<ProductImages> images) {
+        if (product == null)
+            return null;
 
         // FIX: Map ProductImages sang ProductImageDto
         List<ProductImageDto> imagesList = Collections.emptyList();
-        if (product.getImages() != null && !product.getImages().isEmpty()) {
-            imagesList = product.getImages().stream()
+        if (images != null && !images.isEmpty()) {
+            imagesList = images.stream()
                     .sorted(Comparator.comparing(
                             ProductImages::getPosition,
                             Comparator.nullsLast(Integer::compareTo)))
@@ -109,6 +116,17 @@ public class ProductMapper {
                 .build();
     }
 
+    // Ảnh đại diện: vị trí nhỏ nhất (ảnh chưa có position xếp cuối)
+    public static String firstImageUrl(List<ProductImages> images) {
+        if (images == null || images.isEmpty())
+            return null;
+
+        return images.stream()
+                .min(Comparator.comparing(ProductImages::getPosition, Comparator.nullsLast(Integer::compareTo)))
+                .map(ProductImages::getImageUrl)
+                .orElse(null);
+    }
+
     public static ProductImageResponse toMapDto(ProductImages productImages) {
         if (productImages == null)
             return null;
@@ -5,14 +5,22 @@ import com.evdealer.evdealermanagement.entity.product.Product;
 import com.evdealer.evdealermanagement.entity.product.ProductImages;
 import com.evdealer.evdealermanagement.entity.wishlist.WishlistItem;
 
+import java.util.List;
+
 public class WishlistMapper {
 
     public static WishlistItemResponse mapToWishlistItemResponse(WishlistItem wishlistItem) {
+        Product product = wishlistItem.getProduct();
+        return mapToWishlistItemResponse(wishlistItem, product != null ? product.getImages() : null);
+    }
+
+    // images: ảnh của product đã nạp sẵn theo lô (ProductDetailAssembler.loadImages)
+    public static WishlistItemResponse mapToWishlistItemResponse(WishlistItem wishlistItem, List<ProductImages> images) {
         Product product = wishlistItem.getProduct();
         return WishlistItemResponse.builder()
                 .productId(product.getId())
                 .productName(product.getTitle())
-                .thumbnailUrl(getThumbnailUrl(product))
+                .thumbnailUrl(getThumbnailUrl(images))
                 .addedAt(wishlistItem.getAddedAt())
                 .price(wishlistItem.getProduct().getPrice())
                 .city(wishlistItem.getProduct().getCity())
@@ -22,16 +30,16 @@ public class WishlistMapper {
                 .build();
     }
 
-    private static String getThumbnailUrl(Product product) {
-        if (product == null || product.getImages() == null) {
+    private static String getThumbnailUrl(List<ProductImages> images) {
+        if (images == null || images.isEmpty()) {
             return null;
         }
-        String imageUrl =  product.getImages().stream()
+        String imageUrl =  images.stream()
                 .filter(ProductImages::getIsPrimary)
                 .map(ProductImages::getImageUrl)
                 .findFirst()
                 .orElse(
-                        product.getImages().stream()
+                        images.stream()
                                 .map(ProductImages::getImageUrl)
                                 .findFirst()
                                 .orElse(null)
@@ -3,6 +3,8 @@ package com.evdealer.evdealermanagement.repository;
 import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
 import com.evdealer.evdealermanagement.entity.battery.BatteryTypes;
 import com.evdealer.evdealermanagement.entity.product.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -30,7 +32,7 @@ public interface BatteryDetailRepository extends JpaRepository<BatteryDetails, S
     @Query("SELECT p.id FROM BatteryDetails bd " +
            "JOIN bd.product p " +
            "LEFT JOIN bd.brand b " +
-           "WHERE b.name IS NULL OR LOWER(b.name) LIKE LOWER(CONCAT('%', :brandName, '%'))")
+           "WHERE LOWER(b.name) LIKE LOWER(CONCAT('%', :brandName, '%'))")
     List<String> findProductIdsByBrandName(@Param("brandName") String brandName);
 
     // Tìm theo batteryType name
@@ -95,4 +97,38 @@ public interface BatteryDetailRepository extends JpaRepository<BatteryDetails, S
             @Param("maxPrice") BigDecimal maxPrice
     );
 
+    // Truy vấn hộp dung lượng × sức khoẻ × giá (+ loại pin) trên tin ACTIVE, tham số null = bỏ qua
+    @Query(value = """
+        SELECT p.id FROM BatteryDetails b
+        JOIN b.product p
+        WHERE p.status = 'ACTIVE'
+        AND (:minCap IS NULL OR b.capacityKwh >= :minCap)
+        AND (:maxCap IS NULL OR b.capacityKwh <= :maxCap)
+        AND (:minHp IS NULL OR b.healthPercent >= :minHp)
+        AND (:maxHp IS NULL OR b.healthPercent <= :maxHp)
+        AND (:minPrice IS NULL OR p.price >= :minPrice)
+        AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+        AND (:typeId IS NULL OR b.batteryType.id = :typeId)
+        ORDER BY p.price ASC, p.id ASC
+    """, countQuery = """
+        SELECT COUNT(p) FROM BatteryDetails b
+        JOIN b.product p
+        WHERE p.status = 'ACTIVE'
+        AND (:minCap IS NULL OR b.capacityKwh >= :minCap)
+        AND (:maxCap IS NULL OR b.capacityKwh <= :maxCap)
+        AND (:minHp IS NULL OR b.healthPercent >= :minHp)
+        AND (:maxHp IS NULL OR b.healthPercent <= :maxHp)
+        AND (:minPrice IS NULL OR p.price >= :minPrice)
+        AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+        AND (:typeId IS NULL OR b.batteryType.id = :typeId)
+    """)
+    Page<String> findActiveIdsInBox(@Param("minCap") BigDecimal minCap,
+                                    @Param("maxCap") BigDecimal maxCap,
+                                    @Param("minHp") Integer minHp,
+                                    @Param("maxHp") Integer maxHp,
+                                    @Param("minPrice") BigDecimal minPrice,
+                                    @Param("maxPrice") BigDecimal maxPrice,
+                                    @Param("typeId") String typeId,
+                                    Pageable pageable);
+
 }
\ No newline at end of file
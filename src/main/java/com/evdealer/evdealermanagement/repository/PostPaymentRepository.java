@@ -2,6 +2,7 @@ package com.evdealer.evdealermanagement.repository;
 
 import com.evdealer.evdealermanagement.entity.post.PostPayment;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,4 +49,17 @@ public interface PostPaymentRepository extends JpaRepository<PostPayment, String
     Page<PostPayment> findByProductSellerIdOrderByCreatedAtDesc(String sellerId, Pageable pageable);
 
     Optional<PostPayment> findTopByProductIdOrderByCreatedAtDesc(String id);
+
+    // [productId, package code] theo payment mới nhất của từng product (dùng khi dựng homepage feed)
+    @Query("""
+            SELECT pay.product.id, pkg.code FROM PostPayment pay
+            JOIN pay.postPackage pkg
+            WHERE pay.product.id IN :productIds
+              AND pay.createdAt = (
+                  SELECT MAX(pp.createdAt)
+                  FROM PostPayment pp
+                  WHERE pp.product = pay.product
+              )
+            """)
+    List<Object[]> findLatestPackageCodes(@Param("productIds") Collection<String> productIds);
 }
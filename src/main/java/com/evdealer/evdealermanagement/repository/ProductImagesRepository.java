@@ -1,9 +1,12 @@
 package com.evdealer.evdealermanagement.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.evdealer.evdealermanagement.entity.product.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.evdealer.evdealermanagement.entity.product.ProductImages;
 
@@ -11,4 +14,8 @@ public interface ProductImagesRepository extends JpaRepository<ProductImages, St
     List<ProductImages> findByProductIdOrderByPositionAsc(String productId);
     void deleteAllByProduct(Product product);
     List<ProductImages> findByProduct(Product product);
+
+    // ảnh của nhiều product trong 1 query (tránh lazy-load images từng product)
+    @Query("SELECT i FROM ProductImages i WHERE i.product.id IN :productIds")
+    List<ProductImages> findByProductIdIn(@Param("productIds") Collection<String> productIds);
 }
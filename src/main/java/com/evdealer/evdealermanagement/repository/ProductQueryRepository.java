@@ -0,0 +1,32 @@
+package com.evdealer.evdealermanagement.repository;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Truy vấn product theo Specification nhưng chỉ trả về ID (theo đúng thứ tự sắp xếp),
+ * để nạp chi tiết một lần bằng ProductDetailAssembler thay vì từng entity.
+ */
+public interface ProductQueryRepository {
+
+    /**
+     * Trang ID theo spec + pageable (COUNT chỉ chạy khi cần, giống findAll(spec, pageable))
+     */
+    Page<String> findIdPage(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Trang ID theo spec + pageable, không chạy COUNT: lấy size + 1 dòng để biết còn trang sau hay không
+     */
+    Slice<String> findIdSlice(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Tối đa limit ID theo spec + sort, không chạy COUNT (dùng cho phân trang keyset)
+     */
+    List<String> findIdsLimited(Specification<Product> spec, Sort sort, int limit);
+}
@@ -0,0 +1,94 @@
+package com.evdealer.evdealermanagement.repository;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductQueryRepositoryImpl implements ProductQueryRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Page<String> findIdPage(Specification<Product> spec, Pageable pageable) {
+        TypedQuery<Tuple> query = idQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<String> ids = toIds(query.getResultList());
+        return PageableExecutionUtils.getPage(ids, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Slice<String> findIdSlice(Specification<Product> spec, Pageable pageable) {
+        TypedQuery<Tuple> query = idQuery(spec, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(toIds(query.getResultList()));
+        }
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<String> ids = toIds(query.getResultList());
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? ids.subList(0, pageable.getPageSize()) : ids, pageable, hasNext);
+    }
+
+    @Override
+    public List<String> findIdsLimited(Specification<Product> spec, Sort sort, int limit) {
+        return toIds(idQuery(spec, sort).setMaxResults(limit).getResultList());
+    }
+
+    // SELECT p.id (+ các cột sort, bắt buộc với DISTINCT trên MySQL) ... ORDER BY sort
+    private TypedQuery<Tuple> idQuery(Specification<Product> spec, Sort sort) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id"));
+        for (Sort.Order order : sort) {
+            selections.add(root.get(order.getProperty()));
+        }
+        query.multiselect(selections);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return em.createQuery(query);
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+        // COUNT không cần DISTINCT ở mức câu query
+        query.distinct(false);
+        return em.createQuery(query).getSingleResult();
+    }
+
+    private static List<String> toIds(List<Tuple> rows) {
+        return rows.stream().map(row -> row.get(0, String.class)).toList();
+    }
+}
@@ -6,16 +6,19 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product>,
+    ProductQueryRepository {
   List<Product> findByType(Product.ProductType type);
 
   boolean existsById(@NotNull String productId);
@@ -52,16 +55,58 @@ public interface ProductRepository extends JpaRepository<Product, String>, JpaSp
 
   Optional<Product> findById(@NotNull String productId);
 
+  // Phân trang 2 bước: trang ID ở DB, sau đó fetch ảnh cho đúng các ID đó
+  // (JOIN FETCH collection + Pageable sẽ khiến Hibernate phân trang trong bộ nhớ)
+  @Query(value = "SELECT p.id FROM Product p WHERE p.status = :status",
+          countQuery = "SELECT COUNT(p) FROM Product p WHERE p.status = :status")
+  Page<String> findIdsByStatus(@Param("status") Product.Status status, Pageable pageable);
+
+  @Query(value = "SELECT p.id FROM Product p",
+          countQuery = "SELECT COUNT(p) FROM Product p")
+  Page<String> findAllIds(Pageable pageable);
+
   @Query("SELECT DISTINCT p FROM Product p " +
           "LEFT JOIN FETCH p.images " +
-          "WHERE p.status = :status")
-  Page<Product> findByStatusWithImages(@Param("status") Product.Status status, Pageable pageable);
+          "WHERE p.id IN :ids")
+  List<Product> findAllWithImagesByIdIn(@Param("ids") Collection<String> ids);
 
+  List<Product> findByStatus(Product.Status status);
+
+  // nạp product kèm chi tiết xe/pin để dựng các index trong bộ nhớ
   @Query("SELECT DISTINCT p FROM Product p " +
-          "LEFT JOIN FETCH p.images")
-  Page<Product> findAllWithImages(Pageable pageable);
+          "LEFT JOIN FETCH p.vehicleDetails vd " +
+          "LEFT JOIN FETCH vd.vehicleCatalog " +
+          "LEFT JOIN FETCH p.batteryDetails bd " +
+          "LEFT JOIN FETCH bd.brand " +
+          "LEFT JOIN FETCH bd.batteryType " +
+          "WHERE p.status = :status")
+  List<Product> findAllForIndex(@Param("status") Product.Status status);
 
-  List<Product> findByStatus(Product.Status status);
+  // như findAllForIndex nhưng theo danh sách id (mọi trạng thái)
+  @Query("SELECT DISTINCT p FROM Product p " +
+          "LEFT JOIN FETCH p.vehicleDetails vd " +
+          "LEFT JOIN FETCH vd.vehicleCatalog " +
+          "LEFT JOIN FETCH p.batteryDetails bd " +
+          "LEFT JOIN FETCH bd.brand " +
+          "LEFT JOIN FETCH bd.batteryType " +
+          "WHERE p.id IN :ids")
+  List<Product> findAllForIndexByIdIn(@Param("ids") Collection<String> ids);
+
+  // nạp cả đồ thị cần cho ProductDetail (seller, chi tiết xe/pin, brand/model/version/type) trong 1 query
+  @Query("SELECT DISTINCT p FROM Product p " +
+          "LEFT JOIN FETCH p.seller " +
+          "LEFT JOIN FETCH p.approvedBy " +
+          "LEFT JOIN FETCH p.vehicleDetails vd " +
+          "LEFT JOIN FETCH vd.brand " +
+          "LEFT JOIN FETCH vd.model " +
+          "LEFT JOIN FETCH vd.version " +
+          "LEFT JOIN FETCH vd.category " +
+          "LEFT JOIN FETCH vd.vehicleCatalog " +
+          "LEFT JOIN FETCH p.batteryDetails bd " +
+          "LEFT JOIN FETCH bd.brand " +
+          "LEFT JOIN FETCH bd.batteryType " +
+          "WHERE p.id IN :ids")
+  List<Product> findAllWithDetailsByIdIn(@Param("ids") Collection<String> ids);
 
   Page<Product> findByStatus(Product.Status status, Pageable pageable);
 
@@ -91,6 +136,38 @@ public interface ProductRepository extends JpaRepository<Product, String>, JpaSp
       @Param("start") LocalDateTime start,
       @Param("end") LocalDateTime end);
 
+  // nhắc hết hạn theo lô: khoá lô kế tiếp (keyset theo id) trong transaction của job,
+  // dòng đang bị node khác khoá thì bỏ qua (MySQL 8 SKIP LOCKED) để mỗi tin chỉ một node nhận;
+  // tin đang được lần chạy khác giữ (lease còn hạn) cũng bỏ qua, lease quá hạn thì nhận lại
+  @Query(value = "SELECT p.id FROM products p " +
+      "WHERE p.expires_at BETWEEN :start AND :end " +
+      "AND (p.remind_before2_sent = false OR p.remind_before2_sent IS NULL) " +
+      "AND (p.remind_claimed_at IS NULL OR p.remind_claimed_at < :leaseBefore) " +
+      "AND p.status = 'ACTIVE' AND p.id > :afterId " +
+      "ORDER BY p.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+  List<String> lockExpiringNotRemindedAfter(
+      @Param("start") LocalDateTime start,
+      @Param("end") LocalDateTime end,
+      @Param("leaseBefore") LocalDateTime leaseBefore,
+      @Param("afterId") String afterId,
+      @Param("limit") int limit);
+
+  // dữ liệu gửi nhắc của các tin đã khoá, kèm id + email người bán (không nạp entity)
+  // [0]=id, [1]=title, [2]=expiresAt, [3]=sellerId, [4]=sellerEmail
+  @Query("SELECT p.id, p.title, p.expiresAt, s.id, s.email FROM Product p JOIN p.seller s " +
+      "WHERE p.id IN :ids ORDER BY p.id")
+  List<Object[]> findReminderRowsByIdIn(@Param("ids") Collection<String> ids);
+
+  // lease của job nhắc hết hạn: claimedAt = null là nhả tin (gửi lỗi, lần chạy sau thử lại)
+  @Modifying
+  @Query("UPDATE Product p SET p.remindClaimedAt = :claimedAt WHERE p.id IN :ids")
+  int updateRemindClaimedAt(@Param("ids") Collection<String> ids, @Param("claimedAt") LocalDateTime claimedAt);
+
+  // đã gửi nhắc xong: đánh dấu và bỏ lease
+  @Modifying
+  @Query("UPDATE Product p SET p.remindBefore2Sent = true, p.remindClaimedAt = null WHERE p.id IN :ids")
+  int markRemindBefore2Sent(@Param("ids") Collection<String> ids);
+
   // tìm để ẩn đi vì hết hạn
   @Query("SELECT p FROM Product p " +
       "WHERE p.expiresAt < :now " +
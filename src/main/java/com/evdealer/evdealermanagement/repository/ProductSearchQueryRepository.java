@@ -0,0 +1,17 @@
+package com.evdealer.evdealermanagement.repository;
+
+import com.evdealer.evdealermanagement.entity.product.ProductSearch;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Truy vấn bảng product_search chỉ trả về ID, không chạy COUNT
+ */
+public interface ProductSearchQueryRepository {
+
+    /**
+     * Trang ID theo spec + pageable: lấy size + 1 dòng để biết còn trang sau hay không
+     */
+    Slice<String> findIdSlice(Specification<ProductSearch> spec, Pageable pageable);
+}
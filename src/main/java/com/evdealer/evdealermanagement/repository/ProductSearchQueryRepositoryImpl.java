@@ -0,0 +1,57 @@
+package com.evdealer.evdealermanagement.repository;
+
+import com.evdealer.evdealermanagement.entity.product.ProductSearch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductSearchQueryRepositoryImpl implements ProductSearchQueryRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Slice<String> findIdSlice(Specification<ProductSearch> spec, Pageable pageable) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ProductSearch> root = query.from(ProductSearch.class);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        // Chọn thêm các cột sort (bắt buộc nếu spec bật DISTINCT trên MySQL)
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id"));
+        Sort sort = pageable.getSort();
+        for (Sort.Order order : sort) {
+            selections.add(root.get(order.getProperty()));
+        }
+        query.multiselect(selections);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        TypedQuery<Tuple> typed = em.createQuery(query);
+        if (pageable.isPaged()) {
+            typed.setFirstResult((int) pageable.getOffset());
+            typed.setMaxResults(pageable.getPageSize() + 1);
+        }
+        List<String> ids = typed.getResultList().stream().map(row -> row.get(0, String.class)).toList();
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(ids);
+        }
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? ids.subList(0, pageable.getPageSize()) : ids, pageable, hasNext);
+    }
+}
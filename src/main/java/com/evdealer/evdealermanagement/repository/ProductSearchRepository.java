@@ -0,0 +1,11 @@
+package com.evdealer.evdealermanagement.repository;
+
+import com.evdealer.evdealermanagement.entity.product.ProductSearch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductSearchRepository extends JpaRepository<ProductSearch, String>, JpaSpecificationExecutor<ProductSearch>,
+        ProductSearchQueryRepository {
+}
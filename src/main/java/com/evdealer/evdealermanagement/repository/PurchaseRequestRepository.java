@@ -62,14 +62,17 @@ public interface PurchaseRequestRepository extends JpaRepository<PurchaseRequest
 
     List<PurchaseRequest> findByContractStatus(PurchaseRequest.ContractStatus status);
 
-    @Query("""
-            SELECT pr FROM PurchaseRequest pr
-            JOIN FETCH pr.product p
-            LEFT JOIN FETCH p.images
+    // Chỉ phân trang trên ID product ở DB; chi tiết + ảnh của trang được nạp ở bước sau
+    @Query(value = """
+            SELECT pr.product.id FROM PurchaseRequest pr
+            WHERE pr.buyer.id = :buyerId
+              AND pr.contractStatus = 'COMPLETED'
+            """, countQuery = """
+            SELECT COUNT(pr) FROM PurchaseRequest pr
             WHERE pr.buyer.id = :buyerId
               AND pr.contractStatus = 'COMPLETED'
             """)
-    Page<PurchaseRequest> findCompletedByBuyerId(@Param("buyerId") String buyerId, Pageable pageable);
+    Page<String> findCompletedProductIdsByBuyerId(@Param("buyerId") String buyerId, Pageable pageable);
 
     // Lấy 1 đơn bất kỳ (mới nhất) theo productId để suy ra sellerId
     Optional<PurchaseRequest> findTopByProduct_IdOrderByCreatedAtDesc(String productId);
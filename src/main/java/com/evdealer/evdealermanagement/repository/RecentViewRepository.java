@@ -36,4 +36,23 @@ public interface RecentViewRepository extends JpaRepository<RecentView, Long> {
             @Param("userId") String userId,
             org.springframework.data.domain.Pageable pageable);
 
+    // chỉ lấy ID theo thứ tự xem, chi tiết được nạp theo lô bằng ProductDetailAssembler
+    @Query("""
+                SELECT rv.product.id FROM RecentView rv
+                WHERE rv.user.id = :userId
+                ORDER BY rv.viewedAt DESC
+            """)
+    List<String> findProductIdsByUserId(@Param("userId") String userId);
+
+    @Query(value = """
+                SELECT rv.product.id FROM RecentView rv
+                WHERE rv.user.id = :userId
+                ORDER BY rv.viewedAt DESC
+            """, countQuery = """
+                SELECT COUNT(rv) FROM RecentView rv
+                WHERE rv.user.id = :userId
+            """)
+    org.springframework.data.domain.Page<String> findPagedProductIdsByUserId(
+            @Param("userId") String userId,
+            org.springframework.data.domain.Pageable pageable);
 }
@@ -3,11 +3,33 @@ package com.evdealer.evdealermanagement.repository;
 import com.evdealer.evdealermanagement.entity.compatibility.VehicleBatteryCompatibility;
 import com.evdealer.evdealermanagement.entity.product.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface VehicleBatteryCompatibilityRepository extends JpaRepository<VehicleBatteryCompatibility, Long> {
 
     List<VehicleBatteryCompatibility> findByVehicle(Product vehicle);
     List<VehicleBatteryCompatibility> findByBattery(Product battery);
+
+    // [vehicleId, batteryId, level] của mọi cạnh, không nạp entity Product
+    @Query("SELECT c.vehicle.id, c.battery.id, c.compatibilityLevel FROM VehicleBatteryCompatibility c")
+    List<Object[]> findAllEdges();
+
+    // Các cạnh chạm vào một trong các xe hoặc pin đã cho
+    @Query("SELECT c.vehicle.id, c.battery.id, c.compatibilityLevel FROM VehicleBatteryCompatibility c " +
+            "WHERE c.vehicle.id IN :vehicleIds OR c.battery.id IN :batteryIds")
+    List<Object[]> findEdgesTouching(@Param("vehicleIds") Collection<String> vehicleIds,
+                                     @Param("batteryIds") Collection<String> batteryIds);
+
+    // [sourceId, targetId, level, targetPrice] với target ACTIVE, dùng khi index chưa sẵn sàng
+    @Query("SELECT c.vehicle.id, c.battery.id, c.compatibilityLevel, b.price FROM VehicleBatteryCompatibility c " +
+            "JOIN c.battery b WHERE c.vehicle.id IN :vehicleIds AND b.status = 'ACTIVE'")
+    List<Object[]> findActiveBatteriesForVehicles(@Param("vehicleIds") Collection<String> vehicleIds);
+
+    @Query("SELECT c.battery.id, c.vehicle.id, c.compatibilityLevel, v.price FROM VehicleBatteryCompatibility c " +
+            "JOIN c.vehicle v WHERE c.battery.id IN :batteryIds AND v.status = 'ACTIVE'")
+    List<Object[]> findActiveVehiclesForBatteries(@Param("batteryIds") Collection<String> batteryIds);
 }
@@ -3,6 +3,8 @@ package com.evdealer.evdealermanagement.repository;
 import com.evdealer.evdealermanagement.entity.product.Product;
 import com.evdealer.evdealermanagement.entity.vehicle.VehicleBrands;
 import com.evdealer.evdealermanagement.entity.vehicle.VehicleDetails;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,21 +27,23 @@ public interface VehicleDetailsRepository extends JpaRepository<VehicleDetails,
         @Query("SELECT vd.product.id FROM VehicleDetails vd " +
                         "JOIN vd.product p " +
                         "WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :name, '%'))")
-        List<Long> findVehicleProductIdsByName(@Param("name") String name);
+        List<String> findVehicleProductIdsByName(@Param("name") String name);
 
         // Tìm theo tên hãng xe
         @Query("SELECT vd.product.id FROM VehicleDetails vd " +
                         "JOIN vd.brand vb " +
                         "WHERE LOWER(vb.name) LIKE LOWER(CONCAT('%', :brandName, '%'))")
-        List<Long> findVehicleProductIdsByBrand(@Param("brandName") String brandName);
+        List<String> findVehicleProductIdsByBrand(@Param("brandName") String brandName);
 
         // Tìm xe theo model
         @Query("SELECT vd FROM VehicleDetails vd " +
-                        "WHERE LOWER(vd.model) LIKE LOWER(CONCAT('%', :model, '%'))")
+                        "JOIN vd.model m " +
+                        "WHERE LOWER(m.name) LIKE LOWER(CONCAT('%', :model, '%'))")
         List<VehicleDetails> findVehiclesByModel(@Param("model") String model);
 
         // Tìm xe theo năm sản xuất
-        @Query("SELECT vc FROM VehicleCatalog vc " +
+        @Query("SELECT vd FROM VehicleDetails vd " +
+                        "JOIN vd.vehicleCatalog vc " +
                         "WHERE vc.year = :year")
         List<VehicleDetails> findVehiclesByYear(@Param("year") Integer year);
 
@@ -53,22 +57,25 @@ public interface VehicleDetailsRepository extends JpaRepository<VehicleDetails,
         @Query("SELECT vd FROM VehicleDetails vd " +
                         "JOIN vd.product p " +
                         "WHERE p.price BETWEEN :minPrice AND :maxPrice " +
-                        "AND p.status = 'active'")
-        List<VehicleDetails> findVehiclesByPriceRange(@Param("minPrice") Double minPrice,
-                        @Param("maxPrice") Double maxPrice);
+                        "AND p.status = 'ACTIVE'")
+        List<VehicleDetails> findVehiclesByPriceRange(@Param("minPrice") BigDecimal minPrice,
+                        @Param("maxPrice") BigDecimal maxPrice);
 
         // Tìm xe theo tốc độ tối thiểu
-        @Query("SELECT vc FROM VehicleCatalog vc " +
+        @Query("SELECT vd FROM VehicleDetails vd " +
+                        "JOIN vd.vehicleCatalog vc " +
                         "WHERE vc.topSpeedKmh >= :minSpeed")
         List<VehicleDetails> findVehiclesByMinSpeed(@Param("minSpeed") Integer minSpeed);
 
         // Tìm xe theo range tối thiểu
-        @Query("SELECT vc FROM VehicleCatalog vc " +
+        @Query("SELECT vd FROM VehicleDetails vd " +
+                        "JOIN vd.vehicleCatalog vc " +
                         "WHERE vc.rangeKm >= :minRange")
         List<VehicleDetails> findVehiclesByMinRange(@Param("minRange") Integer minRange);
 
         // Tìm xe có pin tháo rời
-        @Query("SELECT vc FROM VehicleCatalog vc " +
+        @Query("SELECT vd FROM VehicleDetails vd " +
+                        "JOIN vd.vehicleCatalog vc " +
                         "WHERE vc.removableBattery = true")
         List<VehicleDetails> findVehiclesWithRemovableBattery();
 
@@ -122,5 +129,37 @@ public interface VehicleDetailsRepository extends JpaRepository<VehicleDetails,
                 @Param("maxPrice") BigDecimal maxPrice
         );
 
+        // Lọc tin xe ACTIVE theo thông số catalog (tham số null = bỏ qua), mới nhất trước.
+        // LEFT JOIN: xe chưa có catalog chỉ bị loại khi có điều kiện (giống VehicleSpecIndex);
+        // minRange là số nguyên vì range_km là SMALLINT
+        @Query(value = """
+            SELECT p.id FROM VehicleDetails vd
+            JOIN vd.product p
+            LEFT JOIN vd.vehicleCatalog vc
+            WHERE p.status = 'ACTIVE'
+            AND (:minRange IS NULL OR vc.rangeKm >= :minRange)
+            AND (:minKwh IS NULL OR vc.batteryCapacityKwh >= :minKwh)
+            AND (:minSpeed IS NULL OR vc.topSpeedKmh >= :minSpeed)
+            AND (:maxAcceleration IS NULL OR vc.acceleration0100s <= :maxAcceleration)
+            AND (:removable IS NULL OR vc.removableBattery = :removable)
+            ORDER BY p.createdAt DESC, p.id ASC
+        """, countQuery = """
+            SELECT COUNT(p) FROM VehicleDetails vd
+            JOIN vd.product p
+            LEFT JOIN vd.vehicleCatalog vc
+            WHERE p.status = 'ACTIVE'
+            AND (:minRange IS NULL OR vc.rangeKm >= :minRange)
+            AND (:minKwh IS NULL OR vc.batteryCapacityKwh >= :minKwh)
+            AND (:minSpeed IS NULL OR vc.topSpeedKmh >= :minSpeed)
+            AND (:maxAcceleration IS NULL OR vc.acceleration0100s <= :maxAcceleration)
+            AND (:removable IS NULL OR vc.removableBattery = :removable)
+        """)
+        Page<String> findActiveIdsBySpecs(@Param("minRange") Integer minRange,
+                                          @Param("minKwh") Double minKwh,
+                                          @Param("minSpeed") Double minSpeed,
+                                          @Param("maxAcceleration") Double maxAcceleration,
+                                          @Param("removable") Boolean removable,
+                                          Pageable pageable);
+
     boolean existsByBrand_Id(String brandId);
 }
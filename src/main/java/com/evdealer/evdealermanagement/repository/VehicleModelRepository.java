@@ -2,6 +2,7 @@ package com.evdealer.evdealermanagement.repository;
 
 import com.evdealer.evdealermanagement.entity.vehicle.Model;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,4 +14,7 @@ public interface VehicleModelRepository extends JpaRepository<Model, String> {
     Model findByName(String productName);
 
     Optional<Model> findByNameIgnoreCaseAndBrandIdAndVehicleTypeId(String name, String brandId, String vehicleTypeId);
+
+    @Query("SELECT m FROM Model m LEFT JOIN FETCH m.brand")
+    List<Model> findAllWithBrand();
 }
@@ -2,6 +2,7 @@ package com.evdealer.evdealermanagement.repository;
 
 import com.evdealer.evdealermanagement.entity.vehicle.ModelVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +12,7 @@ public interface VehicleModelVersionRepository extends JpaRepository<ModelVersio
     List<ModelVersion> findAllByModel_Id(String modelId);
 
     Optional<ModelVersion> findByNameIgnoreCaseAndModelId(String name, String modelId);
+
+    @Query("SELECT v FROM ModelVersion v LEFT JOIN FETCH v.model m LEFT JOIN FETCH m.brand")
+    List<ModelVersion> findAllWithModel();
 }
@@ -33,6 +33,8 @@ public interface IProductService {
      * Searches for products by name (supports partial matching)
      * Searches in both vehicle and battery products
      * @param name the product name to search for
+     * @param after keyset cursor from a previous page's nextCursor ("" for the first page), null for page/size mode
+     * @param withCount false to skip the exact COUNT and return hasNextPage plus a cached approximate total
      * @return List of matching product details, empty list if none found
      * @throws IllegalArgumentException if name is null or empty
      */
@@ -42,6 +44,8 @@ public interface IProductService {
                                                  BigDecimal maxPrice,
                                                  Integer yearFrom,
                                                  Integer yearTo,
+                                                 String after,
+                                                 boolean withCount,
                                                  Pageable pageable);
 
     /**
@@ -63,6 +67,14 @@ public interface IProductService {
      */
     List<ProductDetail> getProductByBrand(String brand);
 
+    /**
+     * Paginated variant of {@link #getProductByBrand(String)}, ordered by createdAt ascending
+     * @param brand the brand name to search for
+     * @param pageable page number and size (sort is ignored)
+     * @return one page of ACTIVE products from the matching brands
+     */
+    PageResponse<ProductDetail> getProductByBrand(String brand, Pageable pageable);
+
     /**
      * Searches for products using multiple criteria
      * @param name product name (optional)
@@ -0,0 +1,192 @@
+package com.evdealer.evdealermanagement.service.implement;
+
+import com.evdealer.evdealermanagement.dto.account.custom.CustomAccountDetails;
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import com.evdealer.evdealermanagement.entity.account.Account;
+import com.evdealer.evdealermanagement.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ảnh chụp nhỏ (id, username, role, status) của account cho JwtAuthenticationFilter:
+ * request có token hợp lệ dựng principal từ đây thay vì query accounts mỗi lần.
+ * Entry bị xoá khi admin ban/unban/đổi trạng thái/xoá account hoặc user sửa hồ sơ
+ * ({@link #evict(String)}, phát qua Redis kênh {@link #CHANNEL} cho các node khác),
+ * và hết hạn theo TTL ngắn để thay đổi ngoài app cũng có hiệu lực sau vài giây.
+ */
+@Slf4j
+@Component
+public class AccountStatusCache implements MessageListener {
+
+    public static final String CHANNEL = "account-changed";
+
+    private final AccountRepository accountRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Tăng mỗi lần có account bị xoá khỏi cache: bản nạp bắt đầu trước đó không được ghi vào
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LinkedHashMap<String, Entry> entries;
+
+    public AccountStatusCache(AccountRepository accountRepository,
+                              StringRedisTemplate redisTemplate,
+                              @Value("${security.account-status.max-entries:10000}") int maxEntries,
+                              @Value("${security.account-status.ttl-ms:30000}") long ttlMillis) {
+        this.accountRepository = accountRepository;
+        this.redisTemplate = redisTemplate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > AccountStatusCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Ảnh chụp của account, nạp bằng khoá chính khi chưa có; null nếu account không tồn tại
+     */
+    public Snapshot get(String accountId) {
+        long now = System.currentTimeMillis();
+        long current = version.get();
+        synchronized (entries) {
+            Entry e = entries.get(accountId);
+            if (e != null) {
+                if (e.expiresAt > now) {
+                    hits.increment();
+                    return e.snapshot;
+                }
+                entries.remove(accountId);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        Snapshot snapshot = accountRepository.findById(accountId)
+                .map(Snapshot::of)
+                .orElse(null);
+        if (snapshot != null) {
+            synchronized (entries) {
+                if (version.get() == current) {
+                    entries.put(accountId, new Entry(snapshot, now + ttlMillis));
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Xoá account khỏi cache trên node này và báo cho các node khác
+     */
+    public void evict(String accountId) {
+        evictLocal(accountId);
+        try {
+            redisTemplate.convertAndSend(CHANNEL, accountId);
+        } catch (RuntimeException e) {
+            // Node khác vẫn nhận thay đổi khi entry hết TTL
+            log.warn("Failed to broadcast account change {}: {}", accountId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evictLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void evictLocal(String accountId) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            if (entries.remove(accountId) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public CacheStatsResponse getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return CacheStatsResponse.builder()
+                .name("account-status")
+                .size(size)
+                .hits(h)
+                .misses(m)
+                .evictions(evictions.sum())
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    /**
+     * Phần của account mà filter cần để xác thực và phân quyền
+     */
+    public static final class Snapshot {
+        private final String id;
+        private final String username;
+        private final Account.Role role;
+        private final Account.Status status;
+
+        private Snapshot(String id, String username, Account.Role role, Account.Status status) {
+            this.id = id;
+            this.username = username;
+            this.role = role;
+            this.status = status;
+        }
+
+        static Snapshot of(Account account) {
+            return new Snapshot(account.getId(), account.getUsername(), account.getRole(), account.getStatus());
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isBanned() {
+            return status == Account.Status.BANNED;
+        }
+
+        /**
+         * Principal không giữ entity thật: Account chỉ có id, username, role, status
+         * (đủ cho getAccountId/getUsername/getAuthorities ở controller)
+         */
+        public CustomAccountDetails toPrincipal() {
+            Account account = new Account();
+            account.setId(id);
+            account.setUsername(username);
+            account.setRole(role);
+            account.setStatus(status);
+            return new CustomAccountDetails(account);
+        }
+    }
+
+    private static final class Entry {
+        final Snapshot snapshot;
+        final long expiresAt;
+
+        Entry(Snapshot snapshot, long expiresAt) {
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
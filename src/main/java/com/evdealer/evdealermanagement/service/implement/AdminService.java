@@ -39,6 +39,8 @@ public class AdminService {
     public AccountRepository accountRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private AccountStatusCache accountStatusCache;
 
     @Transactional(readOnly = true)
     public PageResponse<ProductDetail> getAllProducts(Pageable pageable) {
@@ -80,6 +82,7 @@ public class AdminService {
             log.debug("Deleting account with id: {}", id);
             if (accountRepository.existsById(id)) {
                 accountRepository.deleteById(id);
+                accountStatusCache.evict(id);
                 return true;
             } else {
                 log.warn("Account with id: {} not found", id);
@@ -98,6 +101,7 @@ public class AdminService {
             account.setStatus(status);
             account.setUpdatedAt(VietNamDatetime.nowVietNam());
             accountRepository.save(account);
+            accountStatusCache.evict(id);
             return true;
         } else {
             log.warn("Account with id: {} not found", id);
@@ -131,6 +135,7 @@ public class AdminService {
         account.setBanReason(reason);
         account.setUpdatedAt(VietNamDatetime.nowVietNam());
         accountRepository.save(account);
+        accountStatusCache.evict(accountId);
     }
 
     public void unBanAccount(String accountId) {
@@ -141,6 +146,7 @@ public class AdminService {
         account.setBanReason(null);
         account.setUpdatedAt(VietNamDatetime.nowVietNam());
         accountRepository.save(account);
+        accountStatusCache.evict(accountId);
     }
 
     public void deleteAccountForAdmin(String accountId, String adminPassword, CustomAccountDetails adminDetails) {
@@ -166,6 +172,7 @@ public class AdminService {
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
 
         accountRepository.delete(target);
+        accountStatusCache.evict(accountId);
         log.info("Account {} deleted successfully by admin {}", target.getUsername(), adminUsername);
     }
 }
@@ -2,6 +2,7 @@ package com.evdealer.evdealermanagement.service.implement;
 
 import com.evdealer.evdealermanagement.dto.battery.brand.BatteryBrandsResponse;
 import com.evdealer.evdealermanagement.dto.battery.brand.BatteryTypesResponse;
+import com.evdealer.evdealermanagement.dto.common.PageResponse;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.evdealer.evdealermanagement.dto.battery.brand.BatteryBrandsRequest;
@@ -12,6 +13,7 @@ import com.evdealer.evdealermanagement.dto.battery.update.BatteryUpdateProductRe
 import com.evdealer.evdealermanagement.dto.post.battery.BatteryPostRequest;
 import com.evdealer.evdealermanagement.dto.post.battery.BatteryPostResponse;
 import com.evdealer.evdealermanagement.dto.post.common.ProductImageResponse;
+import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
 import com.evdealer.evdealermanagement.dto.product.similar.SimilarProductResponse;
 import com.evdealer.evdealermanagement.entity.battery.BatteryBrands;
 import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
@@ -23,20 +25,33 @@ import com.evdealer.evdealermanagement.exceptions.ErrorCode;
 import com.evdealer.evdealermanagement.mapper.battery.BatteryBrandMapper;
 import com.evdealer.evdealermanagement.mapper.battery.BatteryDetailsMapper;
 import com.evdealer.evdealermanagement.mapper.battery.BatteryMapper;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
+import com.evdealer.evdealermanagement.mapper.product.ProductMapper;
 import com.evdealer.evdealermanagement.repository.*;
+import com.evdealer.evdealermanagement.service.index.BatteryRangeIndex;
+import com.evdealer.evdealermanagement.service.index.IdSlice;
+import com.evdealer.evdealermanagement.service.index.SimilarProductIndex;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
+import com.evdealer.evdealermanagement.service.index.ReferenceDataSnapshot;
+import com.evdealer.evdealermanagement.service.index.TaxonomyChangedEvent;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -53,6 +68,14 @@ public class BatteryService {
     private final ProductImagesRepository productImagesRepository;
     private final Cloudinary cloudinary;
     private final BatteryTypesRepository batteryTypeRepository;
+    private final SimilarProductIndex similarProductIndex;
+    private final BatteryRangeIndex batteryRangeIndex;
+    private final ProductDetailAssembler productDetailAssembler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+
+    private static final int SIMILAR_LIMIT = 12;
+    private static final int MAX_PAGE_SIZE = 100;
 
     /**
      * Lấy danh sách Battery Product IDs theo tên sản phẩm
@@ -207,11 +230,19 @@ public class BatteryService {
     }
 
     public List<BatteryTypesResponse> listAllBatteryTypesSorted() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getBatteryTypes();
+        }
         var all = batteryTypesRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
         return all.stream().map(b -> new BatteryTypesResponse(b.getId(), b.getName())).collect(Collectors.toList());
     }
 
     public List<BatteryBrandsResponse> listAllBatteryBrandsSorted() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getBatteryBrands();
+        }
         var all = batteryBrandsRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
         return all.stream().map(b -> BatteryBrandsResponse.builder()
                 .brandId(b.getId())
@@ -221,6 +252,10 @@ public class BatteryService {
     }
 
     public List<BatteryBrandsResponse> listAllBatteryNameAndLogo() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getBatteryBrandLogos();
+        }
         var all = batteryBrandsRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
         return all.stream().map(b -> BatteryBrandsResponse.builder()
                 .brandName(b.getName())
@@ -240,6 +275,7 @@ public class BatteryService {
         e.setName(brandName);
         e.setLogoUrl(req.getLogoUrl());
         e = batteryBrandsRepository.save(e);
+        eventPublisher.publishEvent(new TaxonomyChangedEvent());
         return BatteryMapper.mapToBatteryBrandsResponse(e);
     }
 
@@ -326,6 +362,7 @@ public class BatteryService {
 
         productRepository.save(product);
         batteryDetailRepository.save(details);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         return BatteryDetailsMapper.toBatteryPostResponse(product, details, request, imageDtos);
     }
@@ -414,6 +451,7 @@ public class BatteryService {
 
         productRepository.save(product);
         batteryDetailRepository.save(details);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         return BatteryDetailsMapper.toBatteryPostResponse(product, details, request, imageDtos);
     }
@@ -443,32 +481,85 @@ public class BatteryService {
 
     }
 
-    @Transactional
+    /**
+     * Tìm pin ACTIVE theo hộp dung lượng × sức khoẻ × giá (+ loại pin), giá tăng dần.
+     * Mỗi cận null = không giới hạn. Dùng k-d tree trong bộ nhớ, chưa nạp xong thì query DB.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<ProductDetail> searchBatteries(BigDecimal minCapacityKwh, BigDecimal maxCapacityKwh,
+                                                       Integer minHealthPercent, Integer maxHealthPercent,
+                                                       BigDecimal minPrice, BigDecimal maxPrice,
+                                                       String batteryTypeId, Pageable pageable) {
+        checkRange(minCapacityKwh, maxCapacityKwh, "capacityKwh");
+        checkRange(minHealthPercent == null ? null : BigDecimal.valueOf(minHealthPercent),
+                maxHealthPercent == null ? null : BigDecimal.valueOf(maxHealthPercent), "healthPercent");
+        checkRange(minPrice, maxPrice, "price");
+        String typeId = batteryTypeId == null || batteryTypeId.isBlank() ? null : batteryTypeId.trim();
+        int size = Math.min(pageable.getPageSize(), MAX_PAGE_SIZE);
+
+        List<String> pageIds;
+        long total;
+        if (batteryRangeIndex.isReady()) {
+            IdSlice slice = batteryRangeIndex.find(
+                    toDouble(minCapacityKwh), toDouble(maxCapacityKwh), minHealthPercent, maxHealthPercent,
+                    toDouble(minPrice), toDouble(maxPrice), typeId,
+                    (int) Math.min((long) pageable.getPageNumber() * size, Integer.MAX_VALUE), size);
+            pageIds = slice.getIds();
+            total = slice.getTotal();
+        } else {
+            Page<String> page = batteryDetailRepository.findActiveIdsInBox(minCapacityKwh, maxCapacityKwh,
+                    minHealthPercent, maxHealthPercent, minPrice, maxPrice, typeId,
+                    PageRequest.of(pageable.getPageNumber(), size));
+            pageIds = page.getContent();
+            total = page.getTotalElements();
+        }
+
+        List<Product> products = productDetailAssembler.loadInOrder(pageIds).stream()
+                .filter(p -> p.getStatus() == Product.Status.ACTIVE)
+                .toList();
+        return PageResponse.of(productDetailAssembler.toDetails(products), pageable.getPageNumber(), size, total);
+    }
+
+    private static void checkRange(BigDecimal min, BigDecimal max, String field) {
+        if (min != null && min.signum() < 0) {
+            throw new IllegalArgumentException("min " + field + " must be >= 0");
+        }
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("min " + field + " cannot be greater than max " + field);
+        }
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value == null ? null : value.doubleValue();
+    }
+
+    @Transactional(readOnly = true)
     public List<SimilarProductResponse> getSimilarBatteries(String productId) {
 
         BatteryDetails details = batteryDetailRepository.findByProductsId(productId)
                 .orElseThrow(() -> new AppException(ErrorCode.BATTERY_NOT_FOUND));
 
-        String batteryTypeId = details.getBatteryType().getId();
-        String brandId = details.getBrand().getId();
-
-        List<Product> similar = new ArrayList<>(
-                batteryDetailRepository.findSimilarBatteriesByType(batteryTypeId, productId));
-        List<Product> similarBrand = batteryDetailRepository.findSimilarBatteriesByBrand(brandId, batteryTypeId,
-                productId);
-
-        for (Product p : similarBrand) {
-            boolean alreadyExisted = similar.stream()
-                    .anyMatch(sp -> sp.getId().equals(p.getId()));
-            if (!alreadyExisted) {
-                similar.add(p);
-            }
+        List<String> similarIds;
+        if (similarProductIndex.isReady()) {
+            similarIds = similarProductIndex.similarBatteries(details, SIMILAR_LIMIT);
+        } else {
+            // Index chưa nạp xong (vừa khởi động) -> cùng loại pin trước, rồi cùng brand
+            String batteryTypeId = details.getBatteryType().getId();
+            Set<String> ids = new LinkedHashSet<>();
+            batteryDetailRepository.findSimilarBatteriesByType(batteryTypeId, productId)
+                    .forEach(p -> ids.add(p.getId()));
+            batteryDetailRepository.findSimilarBatteriesByBrand(details.getBrand().getId(), batteryTypeId, productId)
+                    .forEach(p -> ids.add(p.getId()));
+            similarIds = ids.stream().limit(SIMILAR_LIMIT).toList();
         }
 
-        return similar.stream()
+        List<Product> products = productDetailAssembler.loadInOrder(similarIds);
+        Map<String, List<ProductImages>> images = productDetailAssembler.loadImages(similarIds);
+
+        return products.stream()
+                .filter(p -> p.getStatus() == Product.Status.ACTIVE)
                 .map(p -> {
-                    BatteryDetails b = batteryDetailRepository.findByProductsId(p.getId())
-                            .orElse(null);
+                    BatteryDetails b = p.getBatteryDetails();
 
                     return SimilarProductResponse.builder()
                             .productId(p.getId())
@@ -476,10 +567,7 @@ public class BatteryService {
                             .price(p.getPrice())
                             .brandName(b != null && b.getBrand() != null ? b.getBrand().getName() : null)
                             .modelName(b != null && b.getBatteryType() != null ? b.getBatteryType().getName() : null)
-                            .images(
-                                    p.getImages() != null && !p.getImages().isEmpty()
-                                            ? p.getImages().get(0).getImageUrl()
-                                            : null)
+                            .images(ProductMapper.firstImageUrl(images.get(p.getId())))
                             .build();
                 })
                 .collect(Collectors.toList());
@@ -555,6 +643,7 @@ public class BatteryService {
 
         if (changed) {
             batteryBrandsRepository.save(brand);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             log.info("Battery brand updated successfully: id={}, name='{}', logo='{}'",
                     brand.getId(), brand.getName(), brand.getLogoUrl());
         } else {
@@ -642,6 +731,7 @@ public class BatteryService {
         entity.setName(name);
         entity.setLogoUrl(secureUrl);
         BatteryBrands saved = batteryBrandsRepository.save(entity);
+        eventPublisher.publishEvent(new TaxonomyChangedEvent());
 
         log.info("Created battery brand id={} name='{}'", saved.getId(), saved.getName());
         return BatteryMapper.toBrandRes(saved);
@@ -666,6 +756,7 @@ public class BatteryService {
         BatteryTypes entity = new BatteryTypes();
         entity.setName(typeName);
         BatteryTypes saved = batteryTypeRepository.save(entity);
+        eventPublisher.publishEvent(new TaxonomyChangedEvent());
 
         log.info("Created battery type id={} name='{}'", saved.getId(), saved.getName());
         return BatteryMapper.toTypeRes(saved);
@@ -9,8 +9,11 @@ import com.evdealer.evdealermanagement.repository.BatteryBrandsRepository;
 import com.evdealer.evdealermanagement.repository.BatteryDetailsRepository;
 import com.evdealer.evdealermanagement.repository.VehicleBrandsRepository;
 import com.evdealer.evdealermanagement.repository.VehicleDetailsRepository;
+import com.evdealer.evdealermanagement.service.index.ReferenceDataSnapshot;
+import com.evdealer.evdealermanagement.service.index.TaxonomyChangedEvent;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -28,9 +31,16 @@ public class BrandService {
     private final BatteryBrandsRepository batteryRepo;
     private final BatteryDetailsRepository batteryDetailsRepository;
     private final VehicleDetailsRepository vehicleDetailsRepository;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+    private final ApplicationEventPublisher eventPublisher;
 
     // --- Lấy tất cả brand ---
     public List<BrandItemResponse> listAllBrands() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getBrands();
+        }
+
         List<BrandItemResponse> result = new ArrayList<>();
 
         result.addAll(
@@ -67,6 +77,7 @@ public class BrandService {
             brand.setName(name);
             brand.setLogoUrl(logoUrl);
             vehicleRepo.save(brand);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             return BrandItemResponse.builder()
                     .id(brand.getId())
                     .name(brand.getName())
@@ -78,6 +89,7 @@ public class BrandService {
             brand.setName(name);
             brand.setLogoUrl(logoUrl);
             batteryRepo.save(brand);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             return BrandItemResponse.builder()
                     .id(brand.getId())
                     .name(brand.getName())
@@ -114,6 +126,7 @@ public class BrandService {
             if (logoUrl != null)
                 brand.setLogoUrl(logoUrl);
             vehicleRepo.save(brand);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             return BrandItemResponse.builder()
                     .id(brand.getId())
                     .name(brand.getName())
@@ -129,6 +142,7 @@ public class BrandService {
             if (logoUrl != null)
                 brand.setLogoUrl(logoUrl);
             batteryRepo.save(brand);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             return BrandItemResponse.builder()
                     .id(brand.getId())
                     .name(brand.getName())
@@ -151,6 +165,7 @@ public class BrandService {
             }
             if (vehicleRepo.existsById(brandId)) {
                 vehicleRepo.deleteById(brandId);
+                eventPublisher.publishEvent(new TaxonomyChangedEvent());
                 return true;
             }
 
@@ -161,6 +176,7 @@ public class BrandService {
             }
             if (batteryRepo.existsById(brandId)) {
                 batteryRepo.deleteById(brandId);
+                eventPublisher.publishEvent(new TaxonomyChangedEvent());
                 return true;
             }
         }
@@ -169,25 +185,12 @@ public class BrandService {
     }
 
     public PageResponse<BrandItemResponse> listAllBrandsPageable(Pageable pageable) {
-        List<BrandItemResponse> all = new ArrayList<>();
-
-        all.addAll(vehicleRepo.findAll().stream()
-                .map(v -> BrandItemResponse.builder()
-                        .id(v.getId()).name(v.getName())
-                        .logoUrl(v.getLogoUrl()).type("VEHICLE").build())
-                .toList());
-
-        all.addAll(batteryRepo.findAll().stream()
-                .map(b -> BrandItemResponse.builder()
-                        .id(b.getId()).name(b.getName())
-                        .logoUrl(b.getLogoUrl()).type("BATTERY").build())
-                .toList());
-
-        all.sort(Comparator.comparing(BrandItemResponse::getName, String.CASE_INSENSITIVE_ORDER));
+        // Danh sách gộp đã sắp sẵn trong snapshot, chỉ cắt trang
+        List<BrandItemResponse> all = listAllBrands();
 
-        int start = (int) pageable.getOffset();
+        int start = (int) Math.min(pageable.getOffset(), all.size());
         int end = Math.min(start + pageable.getPageSize(), all.size());
-        List<BrandItemResponse> content = (start <= end) ? all.subList(start, end) : List.of();
+        List<BrandItemResponse> content = all.subList(start, end);
 
         Page<BrandItemResponse> page = new PageImpl<>(content, pageable, all.size());
         return PageResponse.fromPage(page, x -> x);
@@ -0,0 +1,137 @@
+package com.evdealer.evdealermanagement.service.implement;
+
+import com.evdealer.evdealermanagement.dto.product.compatibility.CompatibilityLookupRequest;
+import com.evdealer.evdealermanagement.dto.product.compatibility.CompatibleProductResponse;
+import com.evdealer.evdealermanagement.entity.compatibility.VehicleBatteryCompatibility.CompatibilityLevel;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.product.ProductImages;
+import com.evdealer.evdealermanagement.exceptions.AppException;
+import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
+import com.evdealer.evdealermanagement.mapper.product.ProductMapper;
+import com.evdealer.evdealermanagement.repository.VehicleBatteryCompatibilityRepository;
+import com.evdealer.evdealermanagement.service.index.CompatibilityIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tra cứu tương thích xe ↔ pin cho nhiều tin trong một lần gọi.
+ * Đọc từ {@link CompatibilityIndex}; index chưa nạp xong thì query DB rồi sắp xếp như index.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CompatibilityService {
+
+    private static final int MAX_IDS = 100;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+
+    private final CompatibilityIndex compatibilityIndex;
+    private final VehicleBatteryCompatibilityRepository compatibilityRepository;
+    private final ProductDetailAssembler productDetailAssembler;
+
+    /**
+     * Pin ACTIVE lắp được cho từng xe, PERFECT trước rồi giá tăng dần
+     */
+    @Transactional(readOnly = true)
+    public Map<String, List<CompatibleProductResponse>> findCompatibleBatteries(CompatibilityLookupRequest request) {
+        List<String> ids = validIds(request);
+        int limit = limitOf(request);
+        Map<String, List<CompatibilityIndex.Match>> matches = compatibilityIndex.isReady()
+                ? compatibilityIndex.batteriesFor(ids, limit)
+                : fromRows(ids, compatibilityRepository.findActiveBatteriesForVehicles(ids), limit);
+        return hydrate(matches);
+    }
+
+    /**
+     * Xe ACTIVE mà từng pin lắp được, PERFECT trước rồi giá tăng dần
+     */
+    @Transactional(readOnly = true)
+    public Map<String, List<CompatibleProductResponse>> findCompatibleVehicles(CompatibilityLookupRequest request) {
+        List<String> ids = validIds(request);
+        int limit = limitOf(request);
+        Map<String, List<CompatibilityIndex.Match>> matches = compatibilityIndex.isReady()
+                ? compatibilityIndex.vehiclesFor(ids, limit)
+                : fromRows(ids, compatibilityRepository.findActiveVehiclesForBatteries(ids), limit);
+        return hydrate(matches);
+    }
+
+    private List<String> validIds(CompatibilityLookupRequest request) {
+        List<String> ids = request == null || request.getProductIds() == null ? List.of()
+                : request.getProductIds().stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            throw new AppException(ErrorCode.MISSING_REQUIRED_FIELD, "productIds is required");
+        }
+        if (ids.size() > MAX_IDS) {
+            throw new AppException(ErrorCode.OUT_OF_RANGE, "At most " + MAX_IDS + " productIds per request");
+        }
+        return ids;
+    }
+
+    private static int limitOf(CompatibilityLookupRequest request) {
+        Integer limit = request.getLimitPerProduct();
+        return limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+
+    // rows: [sourceId, targetId, level, targetPrice]
+    private static Map<String, List<CompatibilityIndex.Match>> fromRows(List<String> sourceIds, List<Object[]> rows,
+                                                                        int limit) {
+        Map<String, List<Object[]>> bySource = rows.stream().collect(Collectors.groupingBy(r -> (String) r[0]));
+        Comparator<Object[]> order = Comparator
+                .comparing((Object[] r) -> (CompatibilityLevel) r[2], Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(r -> (BigDecimal) r[3], Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(r -> (String) r[1]);
+
+        Map<String, List<CompatibilityIndex.Match>> result = new LinkedHashMap<>();
+        for (String sourceId : sourceIds) {
+            result.put(sourceId, bySource.getOrDefault(sourceId, List.of()).stream()
+                    .sorted(order)
+                    .limit(limit)
+                    .map(r -> new CompatibilityIndex.Match((String) r[1], (CompatibilityLevel) r[2]))
+                    .toList());
+        }
+        return result;
+    }
+
+    // Nạp tất cả product đích + ảnh của cả lô bằng 2 query
+    private Map<String, List<CompatibleProductResponse>> hydrate(Map<String, List<CompatibilityIndex.Match>> matches) {
+        List<String> targetIds = matches.values().stream()
+                .flatMap(List::stream)
+                .map(CompatibilityIndex.Match::getProductId)
+                .distinct()
+                .toList();
+        Map<String, Product> products = productDetailAssembler.loadInOrder(targetIds).stream()
+                .filter(p -> p.getStatus() == Product.Status.ACTIVE)
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<String, List<ProductImages>> images = productDetailAssembler.loadImages(products.keySet());
+
+        Map<String, List<CompatibleProductResponse>> result = new LinkedHashMap<>();
+        matches.forEach((sourceId, list) -> result.put(sourceId, list.stream()
+                .filter(m -> products.containsKey(m.getProductId()))
+                .map(m -> {
+                    Product p = products.get(m.getProductId());
+                    return CompatibleProductResponse.builder()
+                            .productId(p.getId())
+                            .title(p.getTitle())
+                            .price(p.getPrice())
+                            .compatibilityLevel(m.getLevel() != null ? m.getLevel().name() : null)
+                            .image(ProductMapper.firstImageUrl(images.get(p.getId())))
+                            .build();
+                })
+                .toList()));
+        return result;
+    }
+}
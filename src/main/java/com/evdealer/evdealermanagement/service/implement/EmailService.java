@@ -7,6 +7,7 @@ import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
@@ -183,6 +184,12 @@ public class EmailService {
     // ==============================================
     @Async
     public void sendProductExpireSoon(String to, String productTitle, LocalDateTime expiresAt) {
+        sendProductExpireSoonSync(to, productTitle, expiresAt);
+    }
+
+    // Gửi ngay trên thread gọi: job nhắc hết hạn tự chạy song song trên executor có giới hạn.
+    // Không nuốt lỗi: ném MailSendException khi gửi thất bại (kể cả SendGrid trả mã khác 2xx) để job thử lại
+    public void sendProductExpireSoonSync(String to, String productTitle, LocalDateTime expiresAt) {
 
         Context context = new Context();
         context.setVariable("productTitle", productTitle);
@@ -198,7 +205,7 @@ public class EmailService {
         context.setVariable("daysLeft", daysLeft);
 
         String htmlContent = templateEngine.process("email/product-expire-soon", context);
-        sendEmail(to, "Nhắc nhở: Sản phẩm sắp hết hạn", htmlContent);
+        deliver(to, "Nhắc nhở: Sản phẩm sắp hết hạn", htmlContent);
         log.info("📩 Product expire reminder sent to {}", to);
     }
 
@@ -223,7 +230,16 @@ public class EmailService {
     // ==============================================
     // CORE SEND EMAIL
     // ==============================================
+    // Các email @Async: lỗi chỉ được log như trước
     private void sendEmail(String to, String subject, String htmlContent) {
+        try {
+            deliver(to, subject, htmlContent);
+        } catch (MailSendException e) {
+            log.error("❌ Email to {} failed: {}", to, e.getMessage());
+        }
+    }
+
+    private void deliver(String to, String subject, String htmlContent) {
         if (sendGridApiKey != null && !sendGridApiKey.isBlank()) {
             sendViaSendGrid(to, subject, htmlContent);
         } else {
@@ -232,6 +248,7 @@ public class EmailService {
     }
 
     private void sendViaSendGrid(String to, String subject, String htmlContent) {
+        Response response;
         try {
             com.sendgrid.helpers.mail.objects.Email from = new com.sendgrid.helpers.mail.objects.Email(sendGridFrom,
                     sendGridFromName);
@@ -249,11 +266,15 @@ public class EmailService {
             request.setEndpoint("mail/send");
             request.setBody(mail.build());
 
-            Response response = sg.api(request);
-            log.info("✅ SendGrid → status={}, body={}", response.getStatusCode(), response.getBody());
+            response = sg.api(request);
         } catch (IOException e) {
-            log.error("❌ SendGrid IOException: {}", e.getMessage());
+            throw new MailSendException("SendGrid request failed: " + e.getMessage(), e);
+        }
+        if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+            throw new MailSendException("SendGrid returned status " + response.getStatusCode()
+                    + ": " + response.getBody());
         }
+        log.info("✅ SendGrid → status={}, body={}", response.getStatusCode(), response.getBody());
     }
 
     private void sendViaJavaMail(String to, String subject, String htmlContent) {
@@ -266,8 +287,10 @@ public class EmailService {
             helper.setText(htmlContent, true);
             mailSender.send(message);
             log.info("✅ JavaMailSender → sent to {}", to);
+        } catch (MailSendException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("❌ JavaMailSender failed: {}", e.getMessage());
+            throw new MailSendException("JavaMailSender failed: " + e.getMessage(), e);
         }
     }
 
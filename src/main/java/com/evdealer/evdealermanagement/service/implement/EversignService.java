@@ -12,9 +12,11 @@ import com.evdealer.evdealermanagement.repository.ContractDocumentRepository;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
 import com.evdealer.evdealermanagement.repository.PurchaseRequestRepository;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -41,6 +43,7 @@ public class EversignService {
     private final ProductRepository productRepository;
     private final EmailService emailService;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Eversign Config
     @Getter
@@ -332,6 +335,7 @@ public class EversignService {
         if (product != null) {
             product.setStatus(Product.Status.SOLD);
             productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
             log.info("✅ Cập nhật trạng thái sản phẩm ID {} thành SOLD.", product.getId());
         } else {
             log.warn("⚠️ Không tìm thấy sản phẩm liên quan đến request ID {}.", request.getId());
@@ -0,0 +1,105 @@
+package com.evdealer.evdealermanagement.service.implement;
+
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import com.evdealer.evdealermanagement.utils.TokenHashes;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Claims đã kiểm chữ ký, giữ tới exp của token: request lặp lại với cùng token không phải
+ * decode + HMAC lại. Key là SHA-256 của token (không giữ token gốc trong bộ nhớ),
+ * giới hạn bằng LRU theo số entry. Blacklist vẫn được kiểm riêng ở filter cho mọi request.
+ * Chi phí parse mỗi lần so với trúng cache (phần lớn là SHA-256 của key) đo bằng JwtClaimsCacheBenchmark (src/test).
+ */
+@Component
+public class JwtClaimsCache {
+
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LinkedHashMap<String, Entry> entries;
+
+    public JwtClaimsCache(@Value("${jwt.claims-cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > JwtClaimsCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Claims đã xác thực của token, null nếu chưa có hoặc đã quá exp
+     */
+    public Claims get(String token) {
+        String key = TokenHashes.sha256Hex(token);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (e.expiresAt > now) {
+                    hits.increment();
+                    return e.claims;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Chỉ gọi với claims vừa parse thành công (chữ ký hợp lệ); token không có exp thì không cache
+     */
+    public void put(String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return;
+        }
+        String key = TokenHashes.sha256Hex(token);
+        synchronized (entries) {
+            entries.put(key, new Entry(claims, expiration.getTime()));
+        }
+    }
+
+    public CacheStatsResponse getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return CacheStatsResponse.builder()
+                .name("jwt-claims")
+                .size(size)
+                .hits(h)
+                .misses(m)
+                .evictions(evictions.sum())
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    private static final class Entry {
+        final Claims claims;
+        final long expiresAt;
+
+        Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
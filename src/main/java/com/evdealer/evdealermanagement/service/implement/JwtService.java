@@ -1,10 +1,12 @@
 package com.evdealer.evdealermanagement.service.implement;
 
+import com.evdealer.evdealermanagement.dto.account.custom.CustomAccountDetails;
 import com.evdealer.evdealermanagement.service.contract.IJwtService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,9 @@ public class JwtService implements IJwtService {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
 
+    // Claim chứa account id, để filter dựng principal không cần tra accounts theo username
+    public static final String ACCOUNT_ID_CLAIM = "aid";
+
     @Value("${jwt.secret}")
     private String secretKey;
 
@@ -26,6 +31,12 @@ public class JwtService implements IJwtService {
 
     private Key signingKey;
 
+    // Parser dựng một lần (không phụ thuộc token), thread-safe
+    private volatile JwtParser parser;
+
+    @Autowired
+    private JwtClaimsCache claimsCache;
+
     @Override
     public Key getSignKey() {
         if (signingKey == null) {
@@ -45,9 +56,14 @@ public class JwtService implements IJwtService {
                 .map(auth -> auth.getAuthority())
                 .toList();
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userDetails.getUsername())
-                .claim("roles", roles)
+                .claim("roles", roles);
+        if (userDetails instanceof CustomAccountDetails accountDetails) {
+            builder.claim(ACCOUNT_ID_CLAIM, accountDetails.getAccountId());
+        }
+
+        return builder
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
                 .signWith(getSignKey(), SignatureAlgorithm.HS256)
@@ -68,24 +84,40 @@ public class JwtService implements IJwtService {
 
 
 
+    /**
+     * Kiểm chữ ký + exp một lần rồi trả claims; token đã kiểm trước đó (còn hạn) lấy từ {@link JwtClaimsCache}
+     */
     @Override
     public Claims extractAllClaims(String token) {
         if (token == null) {
             throw new IllegalArgumentException("Token cannot be null");
         }
 
+        Claims cached = claimsCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSignKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = parser().parseClaimsJws(token).getBody();
+            claimsCache.put(token, claims);
+            return claims;
         } catch (Exception e) {
             logger.error("Failed to parse JWT token: {}", e.getMessage());
             throw e;
         }
     }
 
+    private JwtParser parser() {
+        JwtParser p = parser;
+        if (p == null) {
+            p = Jwts.parserBuilder()
+                    .setSigningKey(getSignKey())
+                    .build();
+            parser = p;
+        }
+        return p;
+    }
+
     @Override
     public String extractUsername(String token) {
         if (token == null) {
@@ -116,9 +148,29 @@ public class JwtService implements IJwtService {
         }
 
         try {
-            Claims claims = extractAllClaims(token);
+            return validateClaims(extractAllClaims(token), userDetails);
+        } catch (JwtException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Unexpected error validating token: {}", e.getMessage());
+            throw new JwtException("General token error", e);
+        }
+    }
+
+    /**
+     * Như {@link #validateToken(String, UserDetails)} nhưng dùng claims đã parse, không decode lại token
+     */
+    public boolean validateClaims(Claims claims, UserDetails userDetails) {
+        if (claims == null || userDetails == null) {
+            logger.warn("Claims or UserDetails is null during validation");
+            return false;
+        }
+
+        try {
             String username = claims.getSubject();
-            boolean isTokenValid = username.equals(userDetails.getUsername()) && !isExpired(token);
+            Date expiration = claims.getExpiration();
+            boolean isTokenValid = username.equals(userDetails.getUsername())
+                    && expiration != null && !expiration.before(new Date());
 
             if (!isTokenValid) {
                 throw new MalformedJwtException("Token data validation failed.");
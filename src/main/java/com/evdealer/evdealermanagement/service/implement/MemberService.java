@@ -4,18 +4,21 @@ import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
 import com.evdealer.evdealermanagement.dto.product.status.ProductStatusResponse;
 import com.evdealer.evdealermanagement.entity.account.Account;
 import com.evdealer.evdealermanagement.entity.product.Product;
-import com.evdealer.evdealermanagement.entity.transactions.PurchaseRequest;
 import com.evdealer.evdealermanagement.exceptions.AppException;
 import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
 import com.evdealer.evdealermanagement.mapper.product.ProductMapper;
 import com.evdealer.evdealermanagement.repository.AccountRepository;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
 import com.evdealer.evdealermanagement.repository.PurchaseRequestRepository;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -37,6 +40,8 @@ public class MemberService {
     private final PurchaseRequestRepository purchaseRequestRepository;
     private final UserContextService userContextService;
     private final SellerReviewService sellerReviewService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductDetailAssembler productDetailAssembler;
 
 
     /**
@@ -75,6 +80,7 @@ public class MemberService {
         product.setStatus(Product.Status.SOLD);
         product.setUpdatedAt(VietNamDatetime.nowVietNam());
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         return ProductStatusResponse.builder()
                 .id(product.getId())
@@ -108,18 +114,18 @@ public class MemberService {
     }
 
 
+    @Transactional
     public Page<ProductDetail> getBoughtProduct( Pageable pageable) {
         String buyerId = userContextService.getCurrentUserId()
                 .orElseThrow(() -> new AppException(ErrorCode.UNAUTHORIZED));
 
-        Page<PurchaseRequest> completedPurchase = purchaseRequestRepository.findCompletedByBuyerId(buyerId, pageable);
+        // Trang ID ở DB, sau đó nạp chi tiết + ảnh của đúng trang đó
+        Page<String> productIds = purchaseRequestRepository.findCompletedProductIdsByBuyerId(buyerId, pageable);
+        List<Product> products = productDetailAssembler.loadInOrder(productIds.getContent());
+
+        List<ProductDetail> content = productDetailAssembler.toDetails(products);
+        content.forEach(dto -> dto.setHasReview(sellerReviewService.hasReview(buyerId, dto.getId())));
 
-        return completedPurchase.map(request -> {
-            Product product = request.getProduct();
-            ProductDetail dto = ProductMapper.toDetailDto(product);
-            boolean reviewed = sellerReviewService.hasReview(buyerId, product.getId());
-            dto.setHasReview(reviewed);
-            return dto;
-        });
+        return new PageImpl<>(content, pageable, productIds.getTotalElements());
     }
 }
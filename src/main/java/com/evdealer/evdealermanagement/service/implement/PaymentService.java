@@ -6,7 +6,6 @@ import com.evdealer.evdealermanagement.dto.payment.VnpayRequest;
 import com.evdealer.evdealermanagement.dto.payment.VnpayResponse;
 import com.evdealer.evdealermanagement.dto.post.packages.PackageRequest;
 import com.evdealer.evdealermanagement.dto.post.packages.PackageResponse;
-import com.evdealer.evdealermanagement.dto.post.packages.PostPackageOptionResponse;
 import com.evdealer.evdealermanagement.dto.post.packages.PostPackageResponse;
 import com.evdealer.evdealermanagement.entity.post.PostPackage;
 import com.evdealer.evdealermanagement.entity.post.PostPackageOption;
@@ -14,15 +13,19 @@ import com.evdealer.evdealermanagement.entity.post.PostPayment;
 import com.evdealer.evdealermanagement.entity.product.Product;
 import com.evdealer.evdealermanagement.exceptions.AppException;
 import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import com.evdealer.evdealermanagement.mapper.post.PostPackageMapper;
 import com.evdealer.evdealermanagement.repository.PostPackageOptionRepository;
 import com.evdealer.evdealermanagement.repository.PostPackageRepository;
 import com.evdealer.evdealermanagement.repository.PostPaymentRepository;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
+import com.evdealer.evdealermanagement.service.index.ReferenceDataSnapshot;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -44,6 +47,8 @@ public class PaymentService {
     private final PostPaymentRepository postPaymentRepository;
     private final VnpayService vnpayService;
     private final MomoService momoService;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final ZoneId VIETNAM_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
 
@@ -119,6 +124,7 @@ public class PaymentService {
                 : Product.Status.PENDING_PAYMENT);
         product.setUpdatedAt(VietNamDatetime.nowVietNam());
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         String paymentUrl = null;
         if (totalPayable.signum() > 0 && request.getPaymentMethod() != null) {
@@ -205,6 +211,7 @@ public class PaymentService {
 
         postPaymentRepository.save(payment);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         log.info(" Payment and Product saved successfully");
         log.info(" Final - Payment status: {}, Product status: {}",
@@ -212,46 +219,16 @@ public class PaymentService {
     }
 
     public List<PostPackageResponse> getAllPackages() {
-        var packages = packageRepo.findByStatusOrderByPriorityLevelDesc(PostPackage.Status.ACTIVE);
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getPackages();
+        }
 
-        return packages.stream().map(p -> {
-            List<PostPackageOptionResponse> optionResponses = optionRepo
-                    .findByPostPackage_IdAndStatusOrderBySortOrderAsc(p.getId(), PostPackageOption.Status.ACTIVE)
-                    .stream()
-                    .map(o -> PostPackageOptionResponse.builder()
-                            .id(o.getId())
-                            .name(o.getName())
-                            .durationDays(o.getDurationDays())
-                            .price(o.getPrice())
-                            .listPrice(o.getListPrice())
-                            .isDefault(o.getIsDefault())
-                            .sortOrder(o.getSortOrder())
-                            .build())
-                    .toList();
-
-            String note = "STANDARD".equals(p.getCode()) ? "Miễn phí lần đăng đầu tiên" : null;
-
-            return PostPackageResponse.builder()
-                    .postPackageId(p.getId())
-                    .postPackageCode(p.getCode())
-                    .postPackageName(p.getName())
-                    .postPackageDesc(p.getDescription())
-                    .billingMode(p.getBillingMode())
-                    .category(p.getCategory())
-                    .baseDurationDays(p.getBaseDurationDays())
-                    .price(p.getPrice())
-                    .dailyPrice(p.getDailyPrice())
-                    .includesPostFee(p.getIncludesPostFee())
-                    .priorityLevel(p.getPriorityLevel())
-                    .badgeLabel(p.getBadgeLabel())
-                    .showInLatest(p.getShowInLatest())
-                    .showTopSearch(p.getShowTopSearch())
-                    .listPrice(p.getListPrice())
-                    .isDefault(p.getIsDefault())
-                    .note(note)
-                    .options(optionResponses)
-                    .build();
-        }).toList();
+        var packages = packageRepo.findByStatusOrderByPriorityLevelDesc(PostPackage.Status.ACTIVE);
+        return packages.stream()
+                .map(p -> PostPackageMapper.toResponse(p, optionRepo
+                        .findByPostPackage_IdAndStatusOrderBySortOrderAsc(p.getId(), PostPackageOption.Status.ACTIVE)))
+                .toList();
     }
 
     @Transactional
@@ -281,6 +258,7 @@ public class PaymentService {
 
         postPaymentRepository.save(payment);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         log.info("Retry payment URL created successfully for {}", paymentId);
 
@@ -1,96 +1,265 @@
 package com.evdealer.evdealermanagement.service.implement;
 
-import com.evdealer.evdealermanagement.entity.account.Account;
 import com.evdealer.evdealermanagement.entity.notify.Notification;
 import com.evdealer.evdealermanagement.entity.product.Product;
-import com.evdealer.evdealermanagement.repository.AccountRepository;
-import com.evdealer.evdealermanagement.repository.NotificationRepository;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
-import com.evdealer.evdealermanagement.repository.PurchaseRequestRepository;
-import lombok.RequiredArgsConstructor;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Job nhắc tin sắp hết hạn (trước 2 ngày) và ẩn tin đã hết hạn.
+ * Nhắc hết hạn chạy theo lô: khoá lô kế tiếp bằng SELECT ... FOR UPDATE SKIP LOCKED (keyset theo id),
+ * ghi lease remind_claimed_at cho đúng các tin đã khoá trong cùng transaction, nên nhiều replica chạy cron
+ * cùng lúc chia nhau các tin thay vì gửi trùng, rồi mới gửi thông báo + email song song trên executor
+ * có giới hạn. Gửi xong lô thì đánh dấu remind_before2_sent và bỏ lease (checkpoint).
+ * Node chết giữa chừng: lease của lô dở hết hạn sau leaseMillis và lần chạy sau (chạy bù lúc khởi động
+ * hoặc cron) nhận lại các tin chưa đánh dấu; tin của các lô đã checkpoint thì không gửi lại.
+ * Tin gửi lỗi được thử lại ngay trong lần chạy (tối đa maxAttempts lần, chờ tăng dần, thông báo web đã gửi
+ * thì không gửi lại); vẫn lỗi thì nhả lease. Cửa sổ quét là từ bây giờ tới hết ngày (hôm nay + 2),
+ * nên tin bị nhả lease còn được nhắc ở lần chạy ngày hôm sau trước khi hết hạn.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ProductExpireReminderJobService {
 
     private final EmailService emailService;
     private final NotificationService notificationService;
     private final ProductRepository productRepository;
-    private final AccountRepository accountRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final long leaseMillis;
+    private final long retryBackoffMillis;
+    private final ThreadPoolExecutor dispatcher;
+
+    // Cron và lần chạy bù lúc khởi động không được chồng lên nhau
+    private final AtomicBoolean reminderRunning = new AtomicBoolean();
 
     private static final ZoneId VN = ZoneId.of("Asia/Ho_Chi_Minh");
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final LocalTime REMIND_TIME = LocalTime.of(8, 0);
+
+    public ProductExpireReminderJobService(EmailService emailService,
+                                           NotificationService notificationService,
+                                           ProductRepository productRepository,
+                                           ApplicationEventPublisher eventPublisher,
+                                           TransactionTemplate transactionTemplate,
+                                           @Value("${product.expiry-reminder.chunk-size:200}") int chunkSize,
+                                           @Value("${product.expiry-reminder.max-attempts:3}") int maxAttempts,
+                                           @Value("${product.expiry-reminder.lease-ms:1800000}") long leaseMillis,
+                                           @Value("${product.expiry-reminder.retry-backoff-ms:2000}") long retryBackoffMillis,
+                                           @Value("${product.expiry-reminder.parallelism:2}") int parallelism) {
+        this.emailService = emailService;
+        this.notificationService = notificationService;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.leaseMillis = leaseMillis;
+        this.retryBackoffMillis = retryBackoffMillis;
+        // Hàng đợi đầy thì thread của job tự gửi (CallerRuns): không bỏ việc, không phình bộ nhớ.
+        // Mỗi lần gửi giữ một kết nối DB (lưu notification): parallelism + thread job phải nhỏ hơn pool Hikari (5)
+        this.dispatcher = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(chunkSize), r -> {
+                    Thread t = new Thread(r, "expiry-reminder");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        // Job chạy mỗi ngày một lần: thread rảnh tự dừng
+        this.dispatcher.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * App khởi động sau giờ chạy cron (hoặc vừa chết giữa job): chạy bù cho hôm nay,
+     * các tin đã được đánh dấu ở lần chạy trước tự bị bỏ qua.
+     * Chạy trên thread riêng để không giữ thread phát ApplicationReadyEvent (các listener khác phải chờ).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (!LocalTime.now(VN).isBefore(REMIND_TIME)) {
+            Thread catchUp = new Thread(this::remindBefore2Days, "expiry-reminder-catchup");
+            catchUp.setDaemon(true);
+            catchUp.start();
+        }
+    }
 
     @Scheduled(cron = "0 0 8 * * *", zone = "Asia/Ho_Chi_Minh")
-    @Transactional
     public void remindBefore2Days() {
+        if (!reminderRunning.compareAndSet(false, true)) {
+            log.info("Product expiry reminder job is already running, skipping");
+            return;
+        }
+        try {
+            runReminder();
+        } finally {
+            reminderRunning.set(false);
+        }
+    }
+
+    private void runReminder() {
         ZonedDateTime nowVN = ZonedDateTime.now(VN);
 
         //Tính thời gian hết hạn
         LocalDate targetExpiryDate = nowVN.plusDays(2).toLocalDate();
 
-        // Khoảng thời gian: từ 00:00:00 đến 23:59:59 của ngày (hôm nay + 2)
-        LocalDateTime start = targetExpiryDate.atStartOfDay();
+        // Khoảng thời gian: từ bây giờ đến 23:59:59 của ngày (hôm nay + 2); gồm cả tin chưa nhắc được
+        // ở các lần chạy trước (gửi lỗi hoặc app tắt vào giờ cron) mà vẫn chưa hết hạn
+        LocalDateTime start = nowVN.toLocalDateTime();
         LocalDateTime end = targetExpiryDate.atTime(23, 59, 59, 999999999);
 
         log.info("=== Product Expiry Reminder Job Started ===");
         log.info("Current time (VN): {}", nowVN.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
-        log.info("Looking for products expiring on: {} (2 days from now)", targetExpiryDate.format(DATE_FMT));
-
-        //Tìm các products hết hạn trong khoảng thời gian và chưa gửi thông báo
-        List<Product> productToRemind = productRepository.findExpiringBetweenAndNotReminded(start, end);
-
-        log.info("=== Product Expiring Reminder Job Completed ===");
-        log.info("Found {} products to remind", productToRemind.size());
+        log.info("Looking for products expiring until: {} (2 days from now)", targetExpiryDate.format(DATE_FMT));
 
         int successCount = 0;
         int failCount = 0;
+        int chunkNo = 0;
+        String afterId = "";
 
-        for (Product p : productToRemind) {
-            try {
-                //Tính số giờ còn lại
-                long hoursLeft = Duration.between(nowVN.toLocalDateTime(), p.getExpiresAt()).toHours();
-                long daysLeft = hoursLeft / 24;
-
-                //Lấy email của seller
-                String sellerEmail = String.valueOf(accountRepository.findById(p.getSeller().getId()).map(Account::getEmail).orElse(""));
-                String expiryDateStr = p.getExpiresAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+        while (true) {
+            //Khoá lô kế tiếp (keyset theo id) và ghi lease ngay trong cùng transaction
+            String cursor = afterId;
+            List<ReminderItem> chunk = transactionTemplate.execute(status -> claimChunk(start, end, cursor));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            chunkNo++;
+            afterId = chunk.get(chunk.size() - 1).productId;
 
-                //1. Gửi thông báo trong web
-                notificationService.createAndPush(p.getSeller().getId(),
-                        "Tin đăng sắp hết hạn",
-                        String.format("Tin đăng %s sẽ hết hạn vào %s (còn %d ngày.) " + "Vui lòng gia hạn để tiếp tục hiển thị.", p.getTitle(), expiryDateStr, daysLeft),
-                        Notification.NotificationType.PRODUCT_EXPIRE_SOON, p.getId());
+            //Gửi thông báo + email song song, chờ hết lô rồi mới sang lô sau; tin lỗi được thử lại
+            List<ReminderItem> pending = chunk;
+            for (int attempt = 1; attempt <= maxAttempts && !pending.isEmpty(); attempt++) {
+                if (attempt > 1 && !sleepBeforeRetry(attempt)) {
+                    break;
+                }
+                pending = dispatchAll(pending, nowVN);
+            }
+            Set<String> failedIds = new HashSet<>();
+            for (ReminderItem item : pending) {
+                failedIds.add(item.productId);
+            }
+            List<String> sentIds = chunk.stream().map(item -> item.productId)
+                    .filter(id -> !failedIds.contains(id)).toList();
+            successCount += sentIds.size();
+            failCount += failedIds.size();
 
-                //2. Gửi email
-                if(sellerEmail != null && !sellerEmail.isBlank()) {
-                    emailService.sendProductExpireSoon(sellerEmail, p.getTitle(), p.getExpiresAt());
+            //Checkpoint: đánh dấu tin đã gửi, nhả lease tin gửi lỗi để lần chạy sau thử lại
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!sentIds.isEmpty()) {
+                    productRepository.markRemindBefore2Sent(sentIds);
+                }
+                if (!failedIds.isEmpty()) {
+                    productRepository.updateRemindClaimedAt(failedIds, null);
                 }
-                log.debug("Email sent to: {} for product: {}", sellerEmail, p.getTitle());
+            });
+            log.info("Reminder chunk {} done: size={}, failed={}, lastId={}",
+                    chunkNo, chunk.size(), failedIds.size(), afterId);
 
-                //3. Đánh giá đã gửi thong báo
-                 p.setRemindBefore2Sent(true);
-                 productRepository.save(p);
-                 successCount++;
-            } catch (Exception e) {
-                failCount++;
-                log.error("Failed to send reminder for product {} (ID: {}): {}",
-                        p.getTitle(), p.getId(), e.getMessage(), e);
+            if (chunk.size() < chunkSize) {
+                break;
             }
         }
-        log.info("=== Job Completed: Success={}, Failed={} ===", successCount, failCount);
+        log.info("=== Job Completed: Success={}, Failed={}, Chunks={} ===", successCount, failCount, chunkNo);
+    }
+
+    // Chỉ trả về các tin transaction này đã khoá và ghi lease: tin node khác đang giữ bị bỏ qua
+    private List<ReminderItem> claimChunk(LocalDateTime start, LocalDateTime end, String afterId) {
+        LocalDateTime now = LocalDateTime.now(VN);
+        List<String> ids = productRepository.lockExpiringNotRemindedAfter(
+                start, end, now.minus(Duration.ofMillis(leaseMillis)), afterId, chunkSize);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        productRepository.updateRemindClaimedAt(ids, now);
+        List<ReminderItem> items = new ArrayList<>(ids.size());
+        for (Object[] row : productRepository.findReminderRowsByIdIn(ids)) {
+            items.add(new ReminderItem((String) row[0], (String) row[1],
+                    (LocalDateTime) row[2], (String) row[3], (String) row[4]));
+        }
+        return items;
+    }
 
+    // Trả về các tin gửi lỗi
+    private List<ReminderItem> dispatchAll(List<ReminderItem> items, ZonedDateTime nowVN) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(items.size());
+        for (ReminderItem item : items) {
+            futures.add(CompletableFuture.supplyAsync(() -> dispatch(item, nowVN), dispatcher));
+        }
+        List<ReminderItem> failed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (!Boolean.TRUE.equals(futures.get(i).join())) {
+                failed.add(items.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis * (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean dispatch(ReminderItem item, ZonedDateTime nowVN) {
+        try {
+            //Tính số giờ còn lại
+            long hoursLeft = Duration.between(nowVN.toLocalDateTime(), item.expiresAt).toHours();
+            long daysLeft = hoursLeft / 24;
+            String expiryDateStr = item.expiresAt.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+
+            //1. Gửi thông báo trong web (lần thử lại không gửi lại nếu đã gửi)
+            if (!item.notified) {
+                notificationService.createAndPush(item.sellerId,
+                        "Tin đăng sắp hết hạn",
+                        String.format("Tin đăng %s sẽ hết hạn vào %s (còn %d ngày.) " + "Vui lòng gia hạn để tiếp tục hiển thị.", item.title, expiryDateStr, daysLeft),
+                        Notification.NotificationType.PRODUCT_EXPIRE_SOON, item.productId);
+                item.notified = true;
+            }
+
+            //2. Gửi email
+            if (item.sellerEmail != null && !item.sellerEmail.isBlank()) {
+                emailService.sendProductExpireSoonSync(item.sellerEmail, item.title, item.expiresAt);
+            }
+            log.debug("Email sent to: {} for product: {}", item.sellerEmail, item.title);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to send reminder for product {} (ID: {}): {}",
+                    item.title, item.productId, e.getMessage(), e);
+            return false;
+        }
     }
-    
 
     @Scheduled(cron = "0 30 0 * * *", zone = "Asia/Ho_Chi_Minh")
     @Transactional
@@ -102,18 +271,36 @@ public class ProductExpireReminderJobService {
         //Tìm các products đã hết hạn và đang active
         List<Product> expiredProducts = productRepository.findExpiredAndActive(now);
         log.info("Found {} expired products to hide", expiredProducts.size());
+        List<String> hiddenIds = new ArrayList<>();
         for (Product p : expiredProducts) {
             try {
                 p.setStatus(Product.Status.EXPIRED);
                 productRepository.save(p);
+                hiddenIds.add(p.getId());
                 log.info("Hidden expired product: {} (ID: {})", p.getTitle(), p.getId());
             } catch (Exception e) {
                 log.error("Failed to hide product {}: {}", p.getId(), e.getMessage());
             }
         }
+        eventPublisher.publishEvent(new ProductChangedEvent(hiddenIds));
         log.info("=== Hide Job Completed ===");
     }
 
+    private static final class ReminderItem {
+        final String productId;
+        final String title;
+        final LocalDateTime expiresAt;
+        final String sellerId;
+        final String sellerEmail;
+        // Thông báo web đã gửi ở lần thử trước
+        volatile boolean notified;
 
-
+        ReminderItem(String productId, String title, LocalDateTime expiresAt, String sellerId, String sellerEmail) {
+            this.productId = productId;
+            this.title = title;
+            this.expiresAt = expiresAt;
+            this.sellerId = sellerId;
+            this.sellerEmail = sellerEmail;
+        }
+    }
 }
@@ -5,6 +5,7 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +24,7 @@ import com.evdealer.evdealermanagement.repository.PostPackageOptionRepository;
 import com.evdealer.evdealermanagement.repository.PostPackageRepository;
 import com.evdealer.evdealermanagement.repository.PostPaymentRepository;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +41,7 @@ public class ProductRenewalService {
     private final PostPaymentRepository postPaymentRepository;
     private final VnpayService vnpayService;
     private final MomoService momoService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public ProductRenewalResponse renewalProduct(String productId, ProductRenewalRequest req) {
@@ -215,6 +218,7 @@ public class ProductRenewalService {
             }
             postPaymentRepository.save(payment);
             productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
             log.warn("Payment failed - reverted to DRAFT if new post");
             return;
         }
@@ -279,6 +283,7 @@ public class ProductRenewalService {
         // ===== Lưu thay đổi =====
         postPaymentRepository.save(payment);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         log.info("""
                    Payment COMPLETED:
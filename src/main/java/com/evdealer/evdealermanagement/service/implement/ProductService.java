@@ -7,6 +7,8 @@ import com.evdealer.evdealermanagement.dto.product.compare.ProductCompareRespons
 import com.evdealer.evdealermanagement.dto.product.compare.ProductSuggestionResponse;
 import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
 import com.evdealer.evdealermanagement.dto.product.moderation.ProductPendingResponse;
+import com.evdealer.evdealermanagement.dto.product.search.ProductFacetResponse;
+import com.evdealer.evdealermanagement.dto.product.search.TypeaheadSuggestion;
 import com.evdealer.evdealermanagement.dto.product.status.ProductActiveOrHiddenResponse;
 import com.evdealer.evdealermanagement.dto.product.status.ProductStatusResponse;
 import com.evdealer.evdealermanagement.dto.vehicle.detail.VehicleDetailResponse;
@@ -14,31 +16,55 @@ import com.evdealer.evdealermanagement.entity.account.Account;
 import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
 import com.evdealer.evdealermanagement.entity.post.PostPayment;
 import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.product.ProductImages;
+import com.evdealer.evdealermanagement.entity.product.ProductSearch;
 import com.evdealer.evdealermanagement.entity.vehicle.VehicleDetails;
 import com.evdealer.evdealermanagement.exceptions.AppException;
 import com.evdealer.evdealermanagement.exceptions.ErrorCode;
 import com.evdealer.evdealermanagement.mapper.post.PostVerifyMapper;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
 import com.evdealer.evdealermanagement.mapper.product.ProductMapper;
 import com.evdealer.evdealermanagement.repository.BatteryDetailRepository;
 import com.evdealer.evdealermanagement.repository.PostPaymentRepository;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
+import com.evdealer.evdealermanagement.repository.ProductSearchRepository;
 import com.evdealer.evdealermanagement.repository.VehicleDetailsRepository;
 import com.evdealer.evdealermanagement.service.contract.IProductService;
+import com.evdealer.evdealermanagement.service.index.ApproximateCountCache;
+import com.evdealer.evdealermanagement.service.index.BrandBitmapIndex;
+import com.evdealer.evdealermanagement.service.index.HomepageFeed;
+import com.evdealer.evdealermanagement.service.index.IdSlice;
+import com.evdealer.evdealermanagement.service.index.PriceBandIndex;
+import com.evdealer.evdealermanagement.service.index.ProductDetailResponseCache;
+import com.evdealer.evdealermanagement.service.index.ProductFacetSnapshot;
+import com.evdealer.evdealermanagement.service.index.ProductQueryCache;
+import com.evdealer.evdealermanagement.service.index.ProductSearchProjection;
+import com.evdealer.evdealermanagement.service.index.ProductTitleIndex;
+import com.evdealer.evdealermanagement.service.index.TypeaheadIndex;
+import com.evdealer.evdealermanagement.service.index.VehicleSpecIndex;
+import com.evdealer.evdealermanagement.utils.ProductCursor;
+import com.evdealer.evdealermanagement.utils.ProductSearchSpecs;
 import com.evdealer.evdealermanagement.utils.ProductSpecs;
 import com.evdealer.evdealermanagement.utils.SecurityUtils;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,7 +80,27 @@ public class ProductService implements IProductService {
     private final PostPaymentRepository postPaymentRepository;
     private final VehicleDetailsRepository vehicleDetailsRepository;
     private final BatteryDetailRepository batteryDetailRepository;
+    private final ProductTitleIndex productTitleIndex;
+    private final ProductFacetSnapshot productFacetSnapshot;
+    private final HomepageFeed homepageFeed;
+    private final PriceBandIndex priceBandIndex;
+    private final BrandBitmapIndex brandBitmapIndex;
+    private final ProductSearchProjection productSearchProjection;
+    private final ProductSearchRepository productSearchRepository;
+    private final ProductQueryCache productQueryCache;
+    private final ApproximateCountCache approximateCountCache;
+    private final ProductDetailResponseCache productDetailResponseCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TypeaheadIndex typeaheadIndex;
+    private final VehicleSpecIndex vehicleSpecIndex;
+    private final ProductDetailAssembler productDetailAssembler;
+    private final ApplicationEventPublisher eventPublisher;
     private static final int MAX_PAGE_SIZE = 100;
+    // Thuộc tính sort có cùng tên và cùng ý nghĩa trên Product và ProductSearch
+    private static final Set<String> SEARCH_TABLE_SORTS = Set.of("id", "type", "price", "manufactureYear",
+            "isHot", "featuredEndAt", "createdAt", "updatedAt");
+    private static final int SUGGESTION_LIMIT = 10;
+    private static final int MAX_TYPEAHEAD_LIMIT = 20;
 
     @Override
     @Transactional(readOnly = true)
@@ -67,9 +113,9 @@ public class ProductService implements IProductService {
             Product.Status statusEnum = validateAndParseStatus(status);
 
             Specification<Product> specification = Specification.where(ProductSpecs.hasStatus(statusEnum));
-            Page<Product> products = productRepository.findByStatusWithImages(statusEnum, pageable);
+            Page<String> products = productRepository.findIdsByStatus(statusEnum, pageable);
 
-            List<PostVerifyResponse> content = products.getContent().stream().map(
+            List<PostVerifyResponse> content = findWithImagesInOrder(products.getContent()).stream().map(
                     product -> {
                         PostPayment payments = postPaymentRepository
                                 .findFirstByProductIdOrderByCreatedAtDesc(product.getId());
@@ -95,9 +141,9 @@ public class ProductService implements IProductService {
             pageable = capPageSize(pageable);
 
             Specification<Product> specification = Specification.where(ProductSpecs.all());
-            Page<Product> products = productRepository.findAllWithImages( pageable);
+            Page<String> products = productRepository.findAllIds(pageable);
 
-            List<PostVerifyResponse> content = products.getContent().stream()
+            List<PostVerifyResponse> content = findWithImagesInOrder(products.getContent()).stream()
                     .map(product -> {
                         PostPayment payments = postPaymentRepository
                                 .findFirstByProductIdOrderByCreatedAtDesc(product.getId());
@@ -153,6 +199,33 @@ public class ProductService implements IProductService {
         }
     }
 
+    /**
+     * Body JSON đã serialize sẵn (gốc + gzip) của /product/search/{id}; chỉ nạp DB khi cache trượt
+     */
+    public Optional<ProductDetailResponseCache.Body> getProductDetailBody(String id) {
+        if (id == null || id.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(productDetailResponseCache.get(id, () -> transactionTemplate.execute(status ->
+                productRepository.findById(id).map(ProductMapper::toDetailDto).orElse(null))));
+    }
+
+    /**
+     * isWishlisted của người đang đăng nhập, null nếu là khách (giống getProductById)
+     */
+    public Boolean getWishlistFlag(String productId) {
+        String accountId = SecurityUtils.getCurrentAccountId();
+        if (accountId == null) {
+            return null;
+        }
+        try {
+            return wishlistService.isProductInWishlist(accountId, productId);
+        } catch (Exception e) {
+            log.error("Error checking wishlist status for product {}", productId, e);
+            return false;
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public PageResponse<ProductDetail> getProductByName(String name,
@@ -161,6 +234,8 @@ public class ProductService implements IProductService {
             BigDecimal maxPrice,
             Integer yearFrom,
             Integer yearTo,
+            String after,
+            boolean withCount,
             Pageable pageable) {
 
         pageable = capPageSize(pageable);
@@ -171,19 +246,72 @@ public class ProductService implements IProductService {
                     .items(Collections.emptyList())
                     .page(0)
                     .size(0)
-                    .totalElements(0)
+                    .totalElements(0L)
                     .totalPages(0)
                     .hasNextPage(false)
                     .hasPreviousPage(false)
                     .build();
         }
 
-        Sort sort = Sort.by(
+        String baseKey = ProductQueryCache.key("by-name", normalizeKey(name), normalizeKey(city),
+                minPrice, maxPrice, yearFrom, yearTo, pageable.getPageSize());
+
+        // Chế độ cursor: luôn theo (isHot, updatedAt, id), không đếm tổng
+        if (after != null) {
+            ProductCursor cursor = decodeCursorOrNull(after);
+            int size = pageable.getPageSize();
+            ProductQueryCache.IdPage ids = productQueryCache.getOrLoad(baseKey + "c" + after, () -> {
+                if (productTitleIndex.isReady()) {
+                    return ProductQueryCache.IdPage.cursor(productTitleIndex.searchAfter(name, city, minPrice,
+                            maxPrice, yearFrom, yearTo, cursor, size + 1));
+                }
+                return ProductQueryCache.IdPage.cursor(seekIds(byNameSpec(name, city, minPrice, maxPrice,
+                        yearFrom, yearTo), cursor, ProductCursor.Mode.HOT_UPDATED, size));
+            });
+            return toCursorPage(findActiveByIdsInOrder(ids.getIds()), size, cursor != null,
+                    ProductCursor.Mode.HOT_UPDATED);
+        }
+
+        Pageable page = pageable;
+        Sort byNameSort = Sort.by(
                 Sort.Order.desc("isHot"),
                 Sort.Order.desc("updatedAt"));
-        pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
 
-        Specification<Product> spec = Specification
+        // count=false: index trong bộ nhớ đã có tổng chính xác miễn phí, chỉ đường DB mới bỏ COUNT
+        if (!withCount && !productTitleIndex.isReady()) {
+            Specification<Product> spec = byNameSpec(name, city, minPrice, maxPrice, yearFrom, yearTo);
+            ProductQueryCache.IdPage ids = productQueryCache.getOrLoad(baseKey + "s" + page.getPageNumber(), () -> {
+                Slice<String> slice = productRepository.findIdSlice(spec,
+                        PageRequest.of(page.getPageNumber(), page.getPageSize(), byNameSort));
+                return ProductQueryCache.IdPage.slice(slice.getContent(), slice.hasNext());
+            });
+            Long approxTotal = approximateCountCache.peek(ProductQueryCache.key("by-name", normalizeKey(name),
+                    normalizeKey(city), minPrice, maxPrice, yearFrom, yearTo), () -> productRepository.count(spec));
+            List<ProductDetail> content = toDetailsWithWishlist(findActiveByIdsInOrder(ids.getIds()));
+            return PageResponse.ofSlice(content, page.getPageNumber(), page.getPageSize(), ids.isHasNext(),
+                    approxTotal);
+        }
+
+        ProductQueryCache.IdPage ids = productQueryCache.getOrLoad(baseKey + "p" + page.getPageNumber(), () -> {
+            // Tìm trên index trong bộ nhớ, DB chỉ dùng để nạp đúng trang ID
+            if (productTitleIndex.isReady()) {
+                ProductTitleIndex.Hits hits = productTitleIndex.search(name, city, minPrice, maxPrice,
+                        yearFrom, yearTo, page.getOffset(), page.getPageSize());
+                return ProductQueryCache.IdPage.of(hits.getIds(), hits.getTotal());
+            }
+            Page<String> idPage = productRepository.findIdPage(
+                    byNameSpec(name, city, minPrice, maxPrice, yearFrom, yearTo),
+                    PageRequest.of(page.getPageNumber(), page.getPageSize(), byNameSort));
+            return ProductQueryCache.IdPage.of(idPage.getContent(), idPage.getTotalElements());
+        });
+
+        List<ProductDetail> content = toDetailsWithWishlist(findActiveByIdsInOrder(ids.getIds()));
+        return PageResponse.of(content, page.getPageNumber(), page.getPageSize(), ids.getTotal());
+    }
+
+    private Specification<Product> byNameSpec(String name, String city, BigDecimal minPrice, BigDecimal maxPrice,
+            Integer yearFrom, Integer yearTo) {
+        return Specification
                 .where(ProductSpecs.hasStatus(Product.Status.ACTIVE))
                 .and(ProductSpecs.titleLike(name))
                 .and(ProductSpecs.cityEq(city))
@@ -191,12 +319,6 @@ public class ProductService implements IProductService {
                 .and(ProductSpecs.priceLte(maxPrice))
                 .and(ProductSpecs.yearGte(yearFrom))
                 .and(ProductSpecs.yearLte(yearTo));
-        Page<Product> products = productRepository.findAll(spec, pageable);
-
-        List<ProductDetail> content = toDetailsWithWishlist(products.getContent());
-
-        return PageResponse.of(content, products);
-
     }
 
     @Override
@@ -260,6 +382,11 @@ public class ProductService implements IProductService {
         try {
             log.info("Fetching products by brand: {}", brand);
 
+            if (brandBitmapIndex.isReady()) {
+                List<String> ids = brandBitmapIndex.findByBrandName(brand.trim(), 0, Integer.MAX_VALUE).getIds();
+                return toDetailsWithWishlist(findActiveByIdsInOrder(ids));
+            }
+
             List<String> allProductIds = getProductIdsByBrand(brand);
 
             if (allProductIds.isEmpty()) {
@@ -268,31 +395,14 @@ public class ProductService implements IProductService {
             }
 
             // Filter ACTIVE and sort by createdAt
-            List<Product> products = productRepository.findAllById(allProductIds)
-                    .stream()
-                    .filter(product -> product.getStatus() == Product.Status.ACTIVE)
-                    .collect(Collectors.toList());
+            List<Product> products = findActiveByIdsInOrder(allProductIds);
 
             if (products.isEmpty()) {
                 log.info("No ACTIVE products found for brand: {}", brand);
                 return List.of();
             }
 
-            String accountId = SecurityUtils.getCurrentAccountId();
-            List<ProductDetail> result;
-
-            try {
-                result = wishlistService.attachWishlistFlag(
-                        accountId,
-                        products,
-                        ProductMapper::toDetailDto,
-                        ProductDetail::setIsWishlisted);
-            } catch (Exception e) {
-                log.error("Error attaching wishlist flags, using basic mapping", e);
-                result = products.stream()
-                        .map(ProductMapper::toDetailDto)
-                        .collect(Collectors.toList());
-            }
+            List<ProductDetail> result = new ArrayList<>(toDetailsWithWishlist(products));
 
             // Sort by createdAt with null-safe comparator
             result.sort(Comparator.comparing(
@@ -308,18 +418,54 @@ public class ProductService implements IProductService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<ProductDetail> getProductByBrand(String brand, Pageable pageable) {
+        pageable = capPageSize(pageable);
+        if (brand == null || brand.trim().isEmpty()) {
+            return PageResponse.of(List.of(), pageable.getPageNumber(), pageable.getPageSize(), 0);
+        }
+
+        List<String> pageIds;
+        long total;
+        if (brandBitmapIndex.isReady()) {
+            // AND bitmap brand với bitmap ACTIVE, chỉ nạp chi tiết cho đúng trang
+            IdSlice slice = brandBitmapIndex.findByBrandName(
+                    brand.trim(), (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), pageable.getPageSize());
+            pageIds = slice.getIds();
+            total = slice.getTotal();
+        } else {
+            List<String> ordered = findActiveByIdsInOrder(getProductIdsByBrand(brand)).stream()
+                    .sorted(Comparator.comparing(Product::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder())))
+                    .map(Product::getId)
+                    .toList();
+            int from = (int) Math.min(pageable.getOffset(), ordered.size());
+            pageIds = ordered.subList(from, Math.min(from + pageable.getPageSize(), ordered.size()));
+            total = ordered.size();
+        }
+
+        List<ProductDetail> content = toDetailsWithWishlist(findActiveByIdsInOrder(pageIds));
+        return PageResponse.of(content, pageable.getPageNumber(), pageable.getPageSize(), total);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ProductDetail> getNewProducts() {
         try {
             log.info("=== START getNewProducts ===");
 
-            // Lấy nhiều hơn 12 để có buffer
-            List<Product> products = productRepository.findActiveFeaturedSorted(
-                    Product.Status.ACTIVE,
-                    VietNamDatetime.nowVietNam(),
-                    PageRequest.of(0, 120) // Lấy 120 để đảm bảo sau khi filter vẫn còn đủ
-            );
+            List<Product> products;
+            if (homepageFeed.isReady()) {
+                // Feed đã xếp hạng sẵn trong bộ nhớ: cắt 120 ID rồi nạp 1 lần
+                products = findActiveByIdsInOrder(homepageFeed.slice(0, 120));
+            } else {
+                // Lấy nhiều hơn 12 để có buffer
+                products = productRepository.findActiveFeaturedSorted(
+                        Product.Status.ACTIVE,
+                        VietNamDatetime.nowVietNam(),
+                        PageRequest.of(0, 120) // Lấy 120 để đảm bảo sau khi filter vẫn còn đủ
+                );
+            }
 
             log.info("Found {} products from DB", products.size());
 
@@ -359,14 +505,86 @@ public class ProductService implements IProductService {
     @Transactional(readOnly = true)
     public PageResponse<ProductDetail> filterProducts(String name, String brand, String type, String city,
             String district, BigDecimal minPrice, BigDecimal maxPrice, Integer yearFrom, Integer yearTo,
-            Pageable pageable) {
+            String after, boolean withCount, Pageable pageable) {
         validateFilters(minPrice, maxPrice, yearFrom, yearTo);
         pageable = capPageSize(pageable);
 
         Product.ProductType emunType = parseTypeOrNull(type);
+        // Bảng product_search (một bảng, cột đã chuẩn hoá) khi đã nạp xong và sort có cột tương ứng,
+        // nếu không thì JOIN trên products (vd. sort=title)
+        boolean fromSearchTable = productSearchProjection.isReady() && sortableOnSearchTable(pageable.getSort());
+        String baseKey = ProductQueryCache.key("filter", fromSearchTable, normalizeKey(name), normalizeKey(brand),
+                emunType, normalizeKey(city), normalizeKey(district), minPrice, maxPrice, yearFrom, yearTo,
+                pageable.getSort(), pageable.getPageSize());
+
+        if (after != null) {
+            ProductCursor cursor = decodeCursorOrNull(after);
+            ProductCursor.Mode mode = cursor != null ? cursor.getMode() : ProductCursor.modeFor(pageable.getSort());
+            int size = pageable.getPageSize();
+            ProductQueryCache.IdPage ids = productQueryCache.getOrLoad(baseKey + "c" + after, () -> {
+                if (fromSearchTable) {
+                    return ProductQueryCache.IdPage.cursor(productSearchRepository.findIdSlice(
+                                    searchTableSpec(name, brand, emunType, city, district, minPrice, maxPrice,
+                                            yearFrom, yearTo).and(ProductSpecs.after(cursor)),
+                                    PageRequest.of(0, size + 1, ProductCursor.sortFor(mode)))
+                            .getContent());
+                }
+                return ProductQueryCache.IdPage.cursor(seekIds(filterSpec(name, brand, emunType, city, district,
+                        minPrice, maxPrice, yearFrom, yearTo), cursor, mode, size));
+            });
+            // Bảng đọc có thể trễ hơn products trong tích tắc -> vẫn lọc lại ACTIVE khi nạp
+            return toCursorPage(findActiveByIdsInOrder(ids.getIds()), size, cursor != null, mode);
+        }
+
+        Pageable page = pageable;
+        if (!withCount) {
+            // Lấy thừa một dòng thay cho COUNT; tổng xấp xỉ được đếm ở luồng nền
+            String countKey = ProductQueryCache.key("filter-count", fromSearchTable, normalizeKey(name),
+                    normalizeKey(brand), emunType, normalizeKey(city), normalizeKey(district), minPrice, maxPrice,
+                    yearFrom, yearTo);
+            ProductQueryCache.IdPage ids;
+            Long approxTotal;
+            if (fromSearchTable) {
+                Specification<ProductSearch> spec = searchTableSpec(name, brand, emunType, city, district,
+                        minPrice, maxPrice, yearFrom, yearTo);
+                ids = productQueryCache.getOrLoad(baseKey + "s" + page.getPageNumber(), () -> {
+                    Slice<String> slice = productSearchRepository.findIdSlice(spec, page);
+                    return ProductQueryCache.IdPage.slice(slice.getContent(), slice.hasNext());
+                });
+                approxTotal = approximateCountCache.peek(countKey, () -> productSearchRepository.count(spec));
+            } else {
+                Specification<Product> spec = filterSpec(name, brand, emunType, city, district,
+                        minPrice, maxPrice, yearFrom, yearTo);
+                ids = productQueryCache.getOrLoad(baseKey + "s" + page.getPageNumber(), () -> {
+                    Slice<String> slice = productRepository.findIdSlice(spec, page);
+                    return ProductQueryCache.IdPage.slice(slice.getContent(), slice.hasNext());
+                });
+                approxTotal = approximateCountCache.peek(countKey, () -> productRepository.count(spec));
+            }
+            List<ProductDetail> content = toDetailsWithWishlist(findActiveByIdsInOrder(ids.getIds()));
+            return PageResponse.ofSlice(content, page.getPageNumber(), page.getPageSize(), ids.isHasNext(),
+                    approxTotal);
+        }
+
+        ProductQueryCache.IdPage ids = productQueryCache.getOrLoad(baseKey + "p" + page.getPageNumber(), () -> {
+            // Chỉ lấy trang ID, chi tiết được nạp một lần bằng ProductDetailAssembler
+            Page<String> idPage = fromSearchTable
+                    ? productSearchRepository.findAll(searchTableSpec(name, brand, emunType, city, district,
+                            minPrice, maxPrice, yearFrom, yearTo), page).map(ProductSearch::getId)
+                    : productRepository.findIdPage(filterSpec(name, brand, emunType, city, district,
+                            minPrice, maxPrice, yearFrom, yearTo), page);
+            return ProductQueryCache.IdPage.of(idPage.getContent(), idPage.getTotalElements());
+        });
+
+        // Lưu ý: thứ tự trả về đã theo pageable.sort (không cần sort lại ở đây)
+        List<ProductDetail> content = toDetailsWithWishlist(findActiveByIdsInOrder(ids.getIds()));
+        return PageResponse.of(content, page.getPageNumber(), page.getPageSize(), ids.getTotal());
+    }
 
+    private Specification<Product> filterSpec(String name, String brand, Product.ProductType type, String city,
+            String district, BigDecimal minPrice, BigDecimal maxPrice, Integer yearFrom, Integer yearTo) {
         Specification<Product> brandSpec;
-        if (emunType == Product.ProductType.VEHICLE) {
+        if (type == Product.ProductType.VEHICLE) {
             log.info("Using hasVehicleBrandId with brand: {}", brand);
             brandSpec = ProductSpecs.hasVehicleBrandId(brand);
         } else {
@@ -374,10 +592,10 @@ public class ProductService implements IProductService {
             brandSpec = ProductSpecs.hasBatteryBrandId(brand);
         }
 
-        Specification<Product> spec = Specification
+        return Specification
                 .where(ProductSpecs.hasStatus(Product.Status.ACTIVE))
                 .and(ProductSpecs.titleLike(name))
-                .and(ProductSpecs.hasType(emunType))
+                .and(ProductSpecs.hasType(type))
                 .and(brandSpec)
                 .and(ProductSpecs.cityEq(city))
                 .and(ProductSpecs.districtEq(district))
@@ -385,31 +603,99 @@ public class ProductService implements IProductService {
                 .and(ProductSpecs.priceLte(maxPrice))
                 .and(ProductSpecs.yearGte(yearFrom))
                 .and(ProductSpecs.yearLte(yearTo));
+    }
 
-        Page<Product> page = productRepository.findAll(spec, pageable);
+    private static Specification<ProductSearch> searchTableSpec(String name, String brand, Product.ProductType type,
+            String city, String district, BigDecimal minPrice, BigDecimal maxPrice, Integer yearFrom, Integer yearTo) {
+        return Specification
+                .where(ProductSearchSpecs.titleContains(name))
+                .and(ProductSearchSpecs.hasType(type))
+                .and(ProductSearchSpecs.brandEq(brand, type))
+                .and(ProductSearchSpecs.cityEq(city))
+                .and(ProductSearchSpecs.districtEq(district))
+                .and(ProductSearchSpecs.priceGte(minPrice))
+                .and(ProductSearchSpecs.priceLte(maxPrice))
+                .and(ProductSearchSpecs.yearGte(yearFrom))
+                .and(ProductSearchSpecs.yearLte(yearTo));
+    }
 
-        String accountId = SecurityUtils.getCurrentAccountId(); // có thể null nếu chưa đăng nhập
-        List<ProductDetail> content;
-        try {
-            content = wishlistService.attachWishlistFlag(
-                    accountId,
-                    page.getContent(),
-                    ProductMapper::toDetailDto, // Product -> ProductDetail
-                    ProductDetail::setIsWishlisted);
-        } catch (Exception e) {
-            // Không để toàn API fail vì wishlist thất bại
-            content = page.getContent().stream().map(ProductMapper::toDetailDto).toList();
+    // Key cache: bỏ khoảng trắng đầu/cuối, không phân biệt hoa thường, rỗng = null
+    private static String normalizeKey(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
         }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
 
-        // Lưu ý: thứ tự trả về đã theo pageable.sort (không cần sort lại ở đây)
-        return PageResponse.of(content, page);
+    /**
+     * Đếm facet (brand, city, district, year, khoảng giá) cho cùng bộ lọc với filterProducts.
+     * Tính hoàn toàn trên snapshot trong bộ nhớ, không chạm DB.
+     */
+    public ProductFacetResponse getFilterFacets(String name, String brand, String type, String city,
+            String district, BigDecimal minPrice, BigDecimal maxPrice, Integer yearFrom, Integer yearTo) {
+        validateFilters(minPrice, maxPrice, yearFrom, yearTo);
+        Product.ProductType enumType = parseTypeOrNull(type);
+
+        if (!productFacetSnapshot.isReady() || !productTitleIndex.isReady()) {
+            throw new AppException(ErrorCode.SERVICE_UNAVAILABLE, "Bộ đếm bộ lọc đang được khởi tạo, vui lòng thử lại");
+        }
+
+        // Chuỗi con như titleLike / titleContains của filterProducts, không phải khớp tiền tố token
+        Set<String> nameMatches = name == null || name.isBlank() ? null : productTitleIndex.containingIds(name);
+        return productFacetSnapshot.count(nameMatches, enumType, brand, city, district,
+                minPrice, maxPrice, yearFrom, yearTo);
     }
 
+    /**
+     * Lọc tin xe ACTIVE theo thông số catalog (tham số null = bỏ qua), mới nhất trước.
+     * Index cột trong bộ nhớ trả trang ID; index chưa nạp xong thì chạy query JOIN vehicle_catalog.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<ProductDetail> filterVehiclesBySpecs(Double minRangeKm, Double minBatteryKwh,
+            Double minTopSpeedKmh, Double maxAcceleration0100s, Boolean removableBattery, Pageable pageable) {
+        pageable = capPageSize(pageable);
+        for (Double v : new Double[]{minRangeKm, minBatteryKwh, minTopSpeedKmh, maxAcceleration0100s}) {
+            if (v != null && (v.isNaN() || v < 0)) {
+                throw new IllegalArgumentException("Vehicle spec filters must be >= 0");
+            }
+        }
 
+        List<String> pageIds;
+        long total;
+        if (vehicleSpecIndex.isReady()) {
+            IdSlice slice = vehicleSpecIndex.find(minRangeKm, minBatteryKwh, minTopSpeedKmh,
+                    maxAcceleration0100s, removableBattery,
+                    (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE), pageable.getPageSize());
+            pageIds = slice.getIds();
+            total = slice.getTotal();
+        } else {
+            // range_km là số nguyên: >= 300.5 tương đương >= 301
+            Integer minRange = minRangeKm == null ? null : (int) Math.min(Math.ceil(minRangeKm), Integer.MAX_VALUE);
+            Page<String> page = vehicleDetailsRepository.findActiveIdsBySpecs(minRange, minBatteryKwh,
+                    minTopSpeedKmh, maxAcceleration0100s, removableBattery,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+            pageIds = page.getContent();
+            total = page.getTotalElements();
+        }
+
+        List<ProductDetail> content = toDetailsWithWishlist(findActiveByIdsInOrder(pageIds));
+        return PageResponse.of(content, pageable.getPageNumber(), pageable.getPageSize(), total);
+    }
 
+    /**
+     * Gợi ý khi gõ ô tìm kiếm: tiêu đề tin ACTIVE và tên brand/model/version/loại pin khớp tiền tố,
+     * phổ biến nhất trước. Đọc từ trie trong bộ nhớ; index chưa nạp xong thì trả rỗng (không rơi về DB).
+     */
+    public List<TypeaheadSuggestion> getTypeaheadSuggestions(String query, int limit) {
+        if (query == null || query.isBlank() || !typeaheadIndex.isReady()) {
+            return List.of();
+        }
+        return typeaheadIndex.suggest(query, Math.max(1, Math.min(limit, MAX_TYPEAHEAD_LIMIT)));
+    }
 
     @Transactional(readOnly = true)
-    public PageResponse<ProductDetail> findProductsByBrand(String brandId, Pageable pageable) {
+    public PageResponse<ProductDetail> findProductsByBrand(String brandId, String after, boolean withCount,
+            Pageable pageable) {
 
         pageable = capPageSize(pageable);
 
@@ -418,21 +704,24 @@ public class ProductService implements IProductService {
                 .where(ProductSpecs.hasStatus(Product.Status.ACTIVE))
                 .and(ProductSpecs.hasAnyBrand(brandId));
 
-        Page<Product> page = productRepository.findAll(spec, pageable);
+        if (after != null) {
+            return seekPage(spec, after, pageable);
+        }
 
-        String accountId = SecurityUtils.getCurrentAccountId(); // có thể null nếu chưa đăng nhập
-        List<ProductDetail> content;
-        try {
-            content = wishlistService.attachWishlistFlag(
-                    accountId,
-                    page.getContent(),
-                    ProductMapper::toDetailDto, // Product -> ProductDetail
-                    ProductDetail::setIsWishlisted);
-        } catch (Exception e) {
-            // Không để toàn API fail vì wishlist thất bại
-            content = page.getContent().stream().map(ProductMapper::toDetailDto).toList();
+        if (!withCount) {
+            // Lấy thừa một dòng thay cho COUNT; tổng xấp xỉ được đếm ở luồng nền
+            Slice<String> slice = productRepository.findIdSlice(spec, pageable);
+            Long approxTotal = approximateCountCache.peek(ProductQueryCache.key("brand-count", brandId),
+                    () -> productRepository.count(spec));
+            List<ProductDetail> content = toDetailsWithWishlist(productDetailAssembler.loadInOrder(slice.getContent()));
+            return PageResponse.ofSlice(content, pageable.getPageNumber(), pageable.getPageSize(), slice.hasNext(),
+                    approxTotal);
         }
 
+        // Chỉ lấy trang ID, chi tiết được nạp một lần bằng ProductDetailAssembler
+        Page<String> page = productRepository.findIdPage(spec, pageable);
+        List<ProductDetail> content = toDetailsWithWishlist(productDetailAssembler.loadInOrder(page.getContent()));
+
         // Lưu ý: thứ tự trả về đã theo pageable.sort (không cần sort lại ở đây)
         return PageResponse.of(content, page);
     }
@@ -445,10 +734,7 @@ public class ProductService implements IProductService {
             log.debug("Getting product IDs for brand: {}", brand);
 
             // Get vehicle product IDs
-            List<String> vehicleProductIds = vehicleService.getVehicleIdByBrand(brand)
-                    .stream()
-                    .map(String::valueOf)
-                    .toList();
+            List<String> vehicleProductIds = vehicleService.getVehicleIdByBrand(brand);
 
             // Get battery product IDs
             List<String> batteryProductIds = batteryService.getBatteryIdByBrand(brand);
@@ -525,6 +811,10 @@ public class ProductService implements IProductService {
         }
     }
 
+    private static boolean sortableOnSearchTable(Sort sort) {
+        return sort.stream().allMatch(order -> SEARCH_TABLE_SORTS.contains(order.getProperty()));
+    }
+
     private Pageable capPageSize(Pageable pageable) {
         if (pageable.getPageSize() > MAX_PAGE_SIZE) {
             return PageRequest.of(pageable.getPageNumber(), MAX_PAGE_SIZE, pageable.getSort());
@@ -542,20 +832,79 @@ public class ProductService implements IProductService {
         }
     }
 
+    // ============================================
+    // Keyset (cursor) pagination: ?after= (rỗng = trang đầu), bỏ qua COUNT
+    // ============================================
+    private PageResponse<ProductDetail> seekPage(Specification<Product> spec, String after, Pageable pageable) {
+        ProductCursor cursor = decodeCursorOrNull(after);
+        // Cursor mang theo thứ tự của trang đầu, các trang sau không phụ thuộc ?sort
+        ProductCursor.Mode mode = cursor != null ? cursor.getMode() : ProductCursor.modeFor(pageable.getSort());
+        return seekPage(spec, cursor, mode, pageable.getPageSize());
+    }
+
+    private PageResponse<ProductDetail> seekPage(Specification<Product> spec, ProductCursor cursor,
+            ProductCursor.Mode mode, int size) {
+        List<String> ids = seekIds(spec, cursor, mode, size);
+        List<Product> rows = productDetailAssembler.loadInOrder(ids);
+        return toCursorPage(rows, size, cursor != null, mode);
+    }
+
+    // Lấy dư 1 ID để biết còn trang sau hay không
+    private List<String> seekIds(Specification<Product> spec, ProductCursor cursor, ProductCursor.Mode mode,
+            int size) {
+        return productRepository.findIdsLimited(
+                spec.and(ProductSpecs.after(cursor)), ProductCursor.sortFor(mode), size + 1);
+    }
+
+    // rows được lấy dư 1 phần tử để biết còn trang sau hay không
+    private PageResponse<ProductDetail> toCursorPage(List<Product> rows, int size, boolean hasPrevious,
+            ProductCursor.Mode mode) {
+        boolean hasNext = rows.size() > size;
+        List<Product> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? ProductCursor.of(pageRows.get(pageRows.size() - 1), mode).encode() : null;
+        return PageResponse.ofCursor(toDetailsWithWishlist(pageRows), size, hasPrevious, nextCursor);
+    }
+
+    private ProductCursor decodeCursorOrNull(String after) {
+        return after == null || after.isBlank() ? null : ProductCursor.decode(after);
+    }
+
+    // Bước 2 của phân trang theo ID: fetch ảnh cho đúng trang, giữ thứ tự của trang ID
+    private List<Product> findWithImagesInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> byId = productRepository.findAllWithImagesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, p -> p, (a, b) -> a));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    // Nạp theo thứ tự ID (từ index/feed/trang ID), bỏ các tin không còn ACTIVE
+    private List<Product> findActiveByIdsInOrder(List<String> ids) {
+        return productDetailAssembler.loadInOrder(ids).stream()
+                .filter(p -> p.getStatus() == Product.Status.ACTIVE)
+                .toList();
+    }
+
     private List<ProductDetail> toDetailsWithWishlist(List<Product> products) {
         if (products == null || products.isEmpty()) {
             return List.of();
         }
+        // Ảnh của cả trang nạp bằng 1 query thay vì lazy-load từng product
+        Map<String, List<ProductImages>> images = productDetailAssembler.loadImages(
+                products.stream().map(Product::getId).toList());
+        Function<Product, ProductDetail> toDto = p -> ProductMapper.toDetailDto(p, images.get(p.getId()));
+
         String accontId = SecurityUtils.getCurrentAccountId();
         try {
             return wishlistService.attachWishlistFlag(
                     accontId,
                     products,
-                    ProductMapper::toDetailDto,
+                    toDto,
                     ProductDetail::setIsWishlisted);
         } catch (Exception e) {
             log.warn("Attach wishlist failed, fallback basic mapping", e);
-            return products.stream().map(ProductMapper::toDetailDto).toList();
+            return products.stream().map(toDto).toList();
         }
     }
 
@@ -570,53 +919,85 @@ public class ProductService implements IProductService {
         }
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<ProductSuggestionResponse> suggestProducts(String productId) {
         Product current = productRepository.findById(productId)
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
 
         BigDecimal price = current.getPrice();
         BigDecimal difference = price.multiply(BigDecimal.valueOf(0.15));
+        BigDecimal minPrice = price.subtract(difference);
+        BigDecimal maxPrice = price.add(difference);
 
         if (current.getType() == Product.ProductType.VEHICLE) {
             VehicleDetails v = vehicleDetailsRepository.findByProductId(productId)
                     .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
 
-            return vehicleDetailsRepository.findByBrandAndPriceBetween(
-                    v.getBrand(), price.subtract(difference), price.add(difference))
-                    .stream()
-                    .filter(x -> !x.getProduct().getId().equals(productId))
-                    .distinct()
-                    .map(x -> ProductSuggestionResponse.builder()
-                            .id(x.getProduct().getId())
-                            .title(x.getProduct().getTitle())
-                            .price(x.getProduct().getPrice())
-                            .brand(x.getBrand() != null ? x.getBrand().getName() : null)
-                            .model(x.getModel() != null ? x.getModel().getName() : null)
-                            .version(x.getVersion() != null ? x.getVersion().getName() : null)
-                            .build())
+            List<String> ids = priceBandIndex.isReady()
+                    ? priceBandIndex.vehiclesInBand(v.getBrand().getId(), price.longValue(),
+                            toVndCeil(minPrice), toVndFloor(maxPrice), productId, SUGGESTION_LIMIT)
+                    : vehicleDetailsRepository.findByBrandAndPriceBetween(v.getBrand(), minPrice, maxPrice).stream()
+                            .map(VehicleDetails::getProductId)
+                            .filter(id -> !id.equals(productId))
+                            .distinct()
+                            .limit(SUGGESTION_LIMIT)
+                            .toList();
+
+            return findActiveByIdsInOrder(ids).stream()
+                    .filter(p -> p.getVehicleDetails() != null)
+                    .map(p -> {
+                        VehicleDetails x = p.getVehicleDetails();
+                        return ProductSuggestionResponse.builder()
+                                .id(p.getId())
+                                .title(p.getTitle())
+                                .price(p.getPrice())
+                                .brand(x.getBrand() != null ? x.getBrand().getName() : null)
+                                .model(x.getModel() != null ? x.getModel().getName() : null)
+                                .version(x.getVersion() != null ? x.getVersion().getName() : null)
+                                .build();
+                    })
                     .toList();
         } else if (current.getType() == Product.ProductType.BATTERY) {
             BatteryDetails b = batteryDetailRepository.findByProductsId(productId)
                     .orElseThrow(() -> new AppException(ErrorCode.BATTERY_NOT_FOUND));
 
-            return batteryDetailRepository.findByBatteryTypeAndPriceBetween(
-                    b.getBatteryType(), price.subtract(difference), price.add(difference))
-                    .stream()
-                    .filter(x -> !x.getProduct().getId().equals(productId))
-                    .distinct()
-                    .map(x -> ProductSuggestionResponse.builder()
-                            .id(x.getProduct().getId())
-                            .title(x.getProduct().getTitle())
-                            .price(x.getProduct().getPrice())
-                            .brand(x.getBrand() != null ? x.getBrand().getName() : null)
-                            .batteryType(x.getBatteryType() != null ? x.getBatteryType().getName() : null)
-                            .build())
+            List<String> ids = priceBandIndex.isReady()
+                    ? priceBandIndex.batteriesInBand(b.getBatteryType().getId(), price.longValue(),
+                            toVndCeil(minPrice), toVndFloor(maxPrice), productId, SUGGESTION_LIMIT)
+                    : batteryDetailRepository.findByBatteryTypeAndPriceBetween(b.getBatteryType(), minPrice, maxPrice)
+                            .stream()
+                            .map(BatteryDetails::getProductId)
+                            .filter(id -> !id.equals(productId))
+                            .distinct()
+                            .limit(SUGGESTION_LIMIT)
+                            .toList();
+
+            return findActiveByIdsInOrder(ids).stream()
+                    .filter(p -> p.getBatteryDetails() != null)
+                    .map(p -> {
+                        BatteryDetails x = p.getBatteryDetails();
+                        return ProductSuggestionResponse.builder()
+                                .id(p.getId())
+                                .title(p.getTitle())
+                                .price(p.getPrice())
+                                .brand(x.getBrand() != null ? x.getBrand().getName() : null)
+                                .batteryType(x.getBatteryType() != null ? x.getBatteryType().getName() : null)
+                                .build();
+                    })
                     .toList();
         }
         return Collections.emptyList();
     }
 
+    // Biên khoảng giá ±15% làm tròn vào trong để khớp BETWEEN trên giá nguyên VND
+    private static long toVndCeil(BigDecimal value) {
+        return value.setScale(0, RoundingMode.CEILING).longValue();
+    }
+
+    private static long toVndFloor(BigDecimal value) {
+        return value.setScale(0, RoundingMode.FLOOR).longValue();
+    }
+
     @Transactional
     public ProductCompareResponse compareProducts(String currentProductId, String targetProductId) {
         Product current = productRepository.findById(currentProductId)
@@ -684,6 +1065,7 @@ public class ProductService implements IProductService {
         p.setStatus(Product.Status.HIDDEN);
         p.setUpdatedAt(VietNamDatetime.nowVietNam());
         productRepository.save(p);
+        eventPublisher.publishEvent(ProductChangedEvent.of(p.getId()));
 
         return ProductActiveOrHiddenResponse.builder()
                 .productId(p.getId())
@@ -736,6 +1118,7 @@ public class ProductService implements IProductService {
         p.setStatus(Product.Status.ACTIVE);
         p.setUpdatedAt(VietNamDatetime.nowVietNam());
         productRepository.save(p);
+        eventPublisher.publishEvent(ProductChangedEvent.of(p.getId()));
 
         return ProductActiveOrHiddenResponse.builder()
                 .productId(p.getId())
@@ -42,6 +42,7 @@ public class ProfileService implements IAccountService {
     private final Cloudinary cloudinary;
     private final ProductRepository productRepository;
     private final AuthProviderRepository authProviderRepository;
+    private final AccountStatusCache accountStatusCache;
 
     public AccountProfileResponse getProfile(String username) {
         Account account = accountRepository.findByUsername(username)
@@ -133,6 +134,8 @@ public class ProfileService implements IAccountService {
         log.debug("Set updatedAt for accountId={}", existingAccount.getId());
 
         Account saved = accountRepository.save(existingAccount);
+        // username có thể đã đổi: principal dựng từ cache phải nạp lại
+        accountStatusCache.evict(saved.getId());
         log.info("Account updated successfully: id={}, username='{}'", saved.getId(), username);
 
         AccountProfileResponse resp = AccountMapper.mapToAccountProfileResponse(saved);
@@ -9,8 +9,10 @@ import com.evdealer.evdealermanagement.exceptions.AppException;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
 import com.evdealer.evdealermanagement.repository.PurchaseRequestRepository;
 import com.evdealer.evdealermanagement.utils.CurrencyFormatter;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -33,6 +35,7 @@ public class PurchaseRequestService {
     private final EversignService eversignService;
     private final EmailService emailService;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public PurchaseRequestResponse createPurchaseRequest(CreatePurchaseRequestDTO dto) {
@@ -172,6 +175,7 @@ public class PurchaseRequestService {
         product.setPrice(request.getOfferedPrice());
         product.setStatus(Product.Status.HIDDEN);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         request.setSellerResponseMessage(responseMessage);
         request.setRespondedAt(LocalDateTime.now());
@@ -282,6 +286,7 @@ public class PurchaseRequestService {
             log.warn("Reverting product {} status back to ACTIVE", product.getId());
             product.setStatus(Product.Status.ACTIVE);
             productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
             log.info("Product status reverted successfully");
         } catch (Exception e) {
             log.error("Failed to revert product status: {}", e.getMessage(), e);
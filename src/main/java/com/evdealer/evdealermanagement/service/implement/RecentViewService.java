@@ -4,12 +4,14 @@ import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
 import com.evdealer.evdealermanagement.entity.account.Account;
 import com.evdealer.evdealermanagement.entity.account.RecentView;
 import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
 import com.evdealer.evdealermanagement.repository.RecentViewRepository;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -25,6 +27,7 @@ public class RecentViewService {
     private final UserContextService userContextService;
     private final ProductRepository productRepository;
     private final RecentViewRepository recentViewRepository;
+    private final ProductDetailAssembler productDetailAssembler;
 
     @Transactional
     public void addRecentView(String productId) {
@@ -61,11 +64,11 @@ public class RecentViewService {
     public List<ProductDetail> getRecentViewedProducts() {
         Account user = userContextService.getCurrentUser()
                 .orElseThrow(() -> new IllegalStateException("User not authenticated"));
-        return recentViewRepository.findProductsByUserId(user.getId())
+        List<String> productIds = recentViewRepository.findProductIdsByUserId(user.getId())
                 .stream()
                 .distinct()
-                .map(ProductDetail::fromEntity)
                 .toList();
+        return productDetailAssembler.toDetails(productDetailAssembler.loadInOrder(productIds), ProductDetail::fromEntity);
     }
 
     /**
@@ -77,8 +80,10 @@ public class RecentViewService {
                 .orElseThrow(() -> new IllegalStateException("User not authenticated"));
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> paged = recentViewRepository.findPagedProductsByUserId(user.getId(), pageable);
-        return paged.map(ProductDetail::fromEntity);
+        Page<String> paged = recentViewRepository.findPagedProductIdsByUserId(user.getId(), pageable);
+        List<ProductDetail> content = productDetailAssembler.toDetails(
+                productDetailAssembler.loadInOrder(paged.getContent()), ProductDetail::fromEntity);
+        return new PageImpl<>(content, pageable, paged.getTotalElements());
     }
 
 
@@ -1,21 +1,68 @@
 package com.evdealer.evdealermanagement.service.implement;
 
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import com.evdealer.evdealermanagement.utils.RotatingBloomFilter;
+import com.evdealer.evdealermanagement.utils.TokenHashes;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Blacklist token (logout) trên Redis, key "bl:{sha256 của token}" thay vì chuỗi token gốc.
+ * Trước Redis có một bloom filter trong bộ nhớ: token không có trong filter được cho qua ngay,
+ * chỉ khi filter báo có mới hỏi Redis. Filter được nạp bằng SCAN khi khởi động và định kỳ,
+ * cập nhật qua kênh pub/sub {@link #CHANNEL} khi node bất kỳ thêm token, và xoay thế hệ theo
+ * thời hạn JWT. Redis lỗi liên tiếp thì ngắt (circuit breaker) một lúc: trong thời gian đó token
+ * bị filter báo có được coi là đã blacklist.
+ */
+@Slf4j
 @Service
-public class RedisService {
+public class RedisService implements MessageListener {
+
+    public static final String CHANNEL = "token-blacklisted";
+    private static final String KEY_PREFIX = "bl:";
 
     @Autowired
     private StringRedisTemplate redisTemplate;
 
     private final JwtService jwtService;
+    private final RotatingBloomFilter bloomFilter;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    // Chưa SCAN xong lần đầu thì filter chưa đủ, mọi token đều phải hỏi Redis
+    private volatile boolean seeded;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openUntil;
+
+    private final LongAdder skippedByFilter = new LongAdder();
+    private final LongAdder redisChecks = new LongAdder();
+    private final LongAdder redisFailures = new LongAdder();
 
-    public RedisService(JwtService jwtService) {
+    public RedisService(JwtService jwtService,
+                        @Value("${token-blacklist.bloom.expected-insertions:100000}") int expectedInsertions,
+                        @Value("${token-blacklist.bloom.fpp:0.01}") double fpp,
+                        @Value("${token-blacklist.breaker.failure-threshold:3}") int failureThreshold,
+                        @Value("${token-blacklist.breaker.open-ms:30000}") long openMillis) {
         this.jwtService = jwtService;
+        this.bloomFilter = new RotatingBloomFilter(expectedInsertions, fpp);
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
     }
 
     public void addToBlacklist(String token) {
@@ -23,13 +70,107 @@ public class RedisService {
         long current = System.currentTimeMillis()/1000;
 
         if(expiration > current) {
-            redisTemplate.opsForValue().set(token, "blacklisted", Duration.ofSeconds(expiration - current));
+            String hash = TokenHashes.sha256Hex(token);
+            bloomFilter.put(hash);
+            redisTemplate.opsForValue().set(KEY_PREFIX + hash, "blacklisted", Duration.ofSeconds(expiration - current));
+            try {
+                redisTemplate.convertAndSend(CHANNEL, hash);
+            } catch (RuntimeException e) {
+                // Node khác nhận được ở lần SCAN định kỳ
+                log.warn("Failed to broadcast blacklisted token: {}", e.getMessage());
+            }
         }
     }
 
     // Kiểm tra token có trong blacklist không
     public boolean isBlacklisted(String token) {
-        return redisTemplate.hasKey(token);
+        String hash = TokenHashes.sha256Hex(token);
+        if (seeded && !bloomFilter.mightContain(hash)) {
+            skippedByFilter.increment();
+            return false;
+        }
+
+        if (System.currentTimeMillis() < openUntil) {
+            // Redis đang bị ngắt: tin filter (đã nạp thì không có âm tính giả), chưa nạp thì bỏ qua như trước
+            return seeded;
+        }
+        redisChecks.increment();
+        try {
+            // Key cũ lưu nguyên chuỗi token (trước khi đổi sang hash), còn tới khi token hết hạn
+            Long found = redisTemplate.countExistingKeys(List.of(KEY_PREFIX + hash, token));
+            consecutiveFailures.set(0);
+            return found != null && found > 0;
+        } catch (RuntimeException e) {
+            redisFailures.increment();
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                openUntil = System.currentTimeMillis() + openMillis;
+                consecutiveFailures.set(0);
+                log.warn("Redis blacklist check failed {} times, skipping Redis for {} ms", failureThreshold, openMillis);
+            }
+            log.warn("Redis unavailable for blacklist check: {}", e.getMessage());
+            return seeded;
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        bloomFilter.put(new String(message.getBody(), StandardCharsets.UTF_8));
     }
-}
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        resync();
+    }
+
+    /**
+     * Nạp lại filter từ các key blacklist còn sống (bù thông điệp pub/sub bị lỡ)
+     */
+    @Scheduled(fixedDelayString = "${token-blacklist.resync-interval-ms:600000}",
+            initialDelayString = "${token-blacklist.resync-interval-ms:600000}")
+    public void resync() {
+        try {
+            int count = 0;
+            try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build())) {
+                while (keys.hasNext()) {
+                    bloomFilter.put(keys.next().substring(KEY_PREFIX.length()));
+                    count++;
+                }
+            }
+            // Key cũ: nguyên chuỗi JWT (header luôn bắt đầu bằng "eyJ")
+            try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions().match("eyJ*").count(1000).build())) {
+                while (keys.hasNext()) {
+                    bloomFilter.put(TokenHashes.sha256Hex(keys.next()));
+                    count++;
+                }
+            }
+            seeded = true;
+            log.debug("Loaded {} blacklisted tokens into bloom filter", count);
+        } catch (RuntimeException e) {
+            log.warn("Failed to load token blacklist from Redis: {}", e.getMessage());
+        }
+    }
+
+    // Token sống tối đa jwt.expiration: sau hai lần xoay, phần tử cũ chắc chắn đã hết hạn
+    @Scheduled(fixedDelayString = "${jwt.expiration:10800000}", initialDelayString = "${jwt.expiration:10800000}")
+    public void rotateFilter() {
+        bloomFilter.rotate();
+    }
+
+    /**
+     * hits = token được filter cho qua không cần Redis, misses = số lần phải hỏi Redis,
+     * size = số phần tử trong thế hệ filter hiện tại
+     */
+    public CacheStatsResponse getBlacklistStats() {
+        long h = skippedByFilter.sum();
+        long m = redisChecks.sum();
+        return CacheStatsResponse.builder()
+                .name("token-blacklist-bloom")
+                .size(bloomFilter.currentInsertions())
+                .hits(h)
+                .misses(m)
+                .evictions(0)
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .errors(redisFailures.sum())
+                .build();
+    }
+}
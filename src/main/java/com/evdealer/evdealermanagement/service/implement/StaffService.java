@@ -16,9 +16,11 @@ import com.evdealer.evdealermanagement.mapper.post.PostVerifyMapper;
 import com.evdealer.evdealermanagement.mapper.staff.ApprovalRateMapper;
 import com.evdealer.evdealermanagement.repository.*;
 
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
@@ -48,6 +50,7 @@ public class StaffService {
     private final PostPaymentRepository postPaymentRepository;
 
     private final ContractDocumentRepository contractDocumentRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     private LocalDateTime nowVietNam() {
         return ZonedDateTime.now(VIETNAM_ZONE).toLocalDateTime();
@@ -142,6 +145,7 @@ public class StaffService {
 
         // Lưu product
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId()));
         log.info("Product approved successfully: id={}, status={}, featuredEndAt={}, expiresAt={}, isHot: {}",
                 savedProduct.getId(),
                 savedProduct.getStatus(),
@@ -220,6 +224,7 @@ public class StaffService {
 
         // Lưu product
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId()));
         log.info("Product rejected successfully: id={}, status={}, reason='{}'",
                 savedProduct.getId(), savedProduct.getStatus(), rejectReason);
 
@@ -1,23 +1,38 @@
 package com.evdealer.evdealermanagement.service.implement;
 
+import com.evdealer.evdealermanagement.dto.account.custom.CustomAccountDetails;
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
 import com.evdealer.evdealermanagement.entity.account.Account;
 import com.evdealer.evdealermanagement.repository.AccountRepository;
 import com.evdealer.evdealermanagement.service.contract.IUserContextService;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class UserContextService implements IUserContextService {
 
+    // Account đã nạp trong request hiện tại (request attribute, mất khi request kết thúc)
+    private static final String CURRENT_ACCOUNT_ATTR = UserContextService.class.getName() + ".account";
+
     private final AccountRepository accountRepository;
+    private final EntityManager entityManager;
+
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder primaryKeyLoads = new LongAdder();
+    private final LongAdder fallbackLoads = new LongAdder();
 
     @Override
     public Optional<String> getCurrentUsername() {
@@ -32,14 +47,81 @@ public class UserContextService implements IUserContextService {
         return Optional.ofNullable(username);
     }
 
+    /**
+     * Lấy thẳng account id từ principal (gắn lúc xác thực), chỉ query khi principal không phải CustomAccountDetails
+     */
     @Override
     public Optional<String> getCurrentUserId() {
+        String accountId = currentAccountId();
+        if (accountId != null) {
+            return Optional.of(accountId);
+        }
         return getCurrentUser().map(Account::getId);
     }
 
+    /**
+     * Nạp account tối đa một lần mỗi request bằng khoá chính rồi nhớ trong request attribute.
+     * Trong transaction mà bản đã nhớ không thuộc persistence context hiện tại thì nạp lại theo
+     * khoá chính, để caller vẫn nhận entity managed (lazy load được) như trước.
+     */
     @Override
     public Optional<Account> getCurrentUser() {
+        String accountId = currentAccountId();
+        if (accountId == null) {
+            return findByPrincipalName();
+        }
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Object memo = attributes.getAttribute(CURRENT_ACCOUNT_ATTR, RequestAttributes.SCOPE_REQUEST);
+            if (memo instanceof Account account && accountId.equals(account.getId())
+                    && (!TransactionSynchronizationManager.isActualTransactionActive() || entityManager.contains(account))) {
+                memoHits.increment();
+                return Optional.of(account);
+            }
+        }
+
+        primaryKeyLoads.increment();
+        Optional<Account> account = accountRepository.findById(accountId);
+        if (attributes != null) {
+            if (account.isPresent()) {
+                attributes.setAttribute(CURRENT_ACCOUNT_ATTR, account.get(), RequestAttributes.SCOPE_REQUEST);
+            } else {
+                log.warn("❌ No account found for principal id: {}", accountId);
+            }
+        }
+        return account;
+    }
+
+    /**
+     * hits = số query account tránh được nhờ dùng lại bản đã nạp trong request,
+     * misses = số lần phải nạp (theo khoá chính, hoặc dò username/email/id khi principal không có account id)
+     */
+    public CacheStatsResponse getStats() {
+        long h = memoHits.sum();
+        long m = primaryKeyLoads.sum() + fallbackLoads.sum();
+        return CacheStatsResponse.builder()
+                .name("current-account")
+                .size(0)
+                .hits(h)
+                .misses(m)
+                .evictions(0)
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    private String currentAccountId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof CustomAccountDetails user) {
+            return user.getAccountId();
+        }
+        return null;
+    }
+
+    // Principal không mang account id (vd. OAuth2User): dò theo tên như trước
+    private Optional<Account> findByPrincipalName() {
         return getCurrentUsername().flatMap(username -> {
+            fallbackLoads.increment();
             log.debug("Looking up account for principal: {}", username);
 
             // Ưu tiên tìm theo username
@@ -25,15 +25,22 @@ import com.evdealer.evdealermanagement.entity.product.ProductImages;
 import com.evdealer.evdealermanagement.entity.vehicle.*;
 import com.evdealer.evdealermanagement.exceptions.AppException;
 import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
+import com.evdealer.evdealermanagement.mapper.product.ProductMapper;
 import com.evdealer.evdealermanagement.mapper.vehicle.CreateVehicleMapper;
 import com.evdealer.evdealermanagement.mapper.vehicle.VehicleBrandsMapper;
 import com.evdealer.evdealermanagement.mapper.vehicle.VehicleMapper;
 import com.evdealer.evdealermanagement.mapper.vehicle.VehicleModelMapper;
 import com.evdealer.evdealermanagement.mapper.vehicle.VehicleVersionMapper;
 import com.evdealer.evdealermanagement.repository.*;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
+import com.evdealer.evdealermanagement.service.index.ReferenceDataSnapshot;
+import com.evdealer.evdealermanagement.service.index.SimilarProductIndex;
+import com.evdealer.evdealermanagement.service.index.TaxonomyChangedEvent;
 import com.evdealer.evdealermanagement.utils.VietNamDatetime;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -41,6 +48,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -59,11 +67,17 @@ public class VehicleService {
     private final ProductRepository productRepository;
     private final ProductImagesRepository productImagesRepository;
     private final PostService postService;
+    private final SimilarProductIndex similarProductIndex;
+    private final ProductDetailAssembler productDetailAssembler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+
+    private static final int SIMILAR_LIMIT = 12;
 
     /**
      * Lấy danh sách Vehicle Product IDs theo tên sản phẩm
      */
-    public List<Long> getVehicleIdByName(String name) {
+    public List<String> getVehicleIdByName(String name) {
         if (name == null || name.trim().isEmpty()) {
             log.warn("Vehicle name is null or empty");
             return List.of();
@@ -81,7 +95,7 @@ public class VehicleService {
     /**
      * Lấy danh sách Vehicle Product IDs theo tên hãng
      */
-    public List<Long> getVehicleIdByBrand(String brand) {
+    public List<String> getVehicleIdByBrand(String brand) {
         if (brand == null || brand.trim().isEmpty()) {
             log.warn("Vehicle brand is null or empty");
             return List.of();
@@ -210,7 +224,8 @@ public class VehicleService {
 
         try {
             log.debug("Getting vehicles by price range: {} - {}", minPrice, maxPrice);
-            return vehicleDetailsRepository.findVehiclesByPriceRange(minPrice, maxPrice);
+            return vehicleDetailsRepository.findVehiclesByPriceRange(BigDecimal.valueOf(minPrice),
+                    BigDecimal.valueOf(maxPrice));
         } catch (Exception e) {
             log.error("Error getting vehicles by price range: {} - {}", minPrice, maxPrice, e);
             return List.of();
@@ -249,12 +264,20 @@ public class VehicleService {
     }
 
     public List<VehicleCategoriesResponse> listAllVehicleCategoriesSorted() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getVehicleCategories();
+        }
         var all = vehicleCategoryRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
         return all.stream().map(v -> new VehicleCategoriesResponse(v.getId(), v.getName()))
                 .collect(Collectors.toList());
     }
 
     public List<VehicleBrandsResponse> listAllVehicleBrandsSorted() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getVehicleBrands();
+        }
         var all = vehicleBrandsRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
         return all.stream().map(v -> VehicleBrandsResponse.builder()
                 .brandName(v.getName())
@@ -264,6 +287,10 @@ public class VehicleService {
     }
 
     public List<VehicleBrandsResponse> listAllVehicleNameAndLogo() {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.getVehicleBrandLogos();
+        }
         var all = vehicleBrandsRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
         return all.stream().map(v -> VehicleBrandsResponse.builder()
                 .brandName(v.getName())
@@ -282,6 +309,7 @@ public class VehicleService {
         e.setName(brandName);
         e.setLogoUrl(req.getLogoUrl());
         e = vehicleBrandsRepository.save(e);
+        eventPublisher.publishEvent(new TaxonomyChangedEvent());
         return VehicleMapper.mapToVehicleBrandsResponse(e);
     }
 
@@ -325,6 +353,7 @@ public class VehicleService {
         entity.setName(brandNameWithoutSpace);
         entity.setLogoUrl(secureUrl);
         vehicleBrandsRepository.save(entity);
+        eventPublisher.publishEvent(new TaxonomyChangedEvent());
 
         // 6) Trả DTO
         return VehicleBrandsMapper.mapToVehicleBrandsResponse(entity);
@@ -344,6 +373,10 @@ public class VehicleService {
     }
 
     public List<VehicleModelResponse> listAllVehicleModelsSorted(VehicleModelRequest request) {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.modelsOf(request.getBrandId(), request.getCategoryId());
+        }
         var all = vmRepository.findAllByBrand_IdAndVehicleType_Id(request.getBrandId(), request.getCategoryId());
         return all.stream().map(m -> VehicleModelResponse.builder()
                 .modelId(m.getId())
@@ -353,6 +386,10 @@ public class VehicleService {
     }
 
     public List<VehicleModelVersionResponse> listAllVehicleModelVersionsSorted(VehicleModelVersionRequest request) {
+        ReferenceDataSnapshot.Snapshot snapshot = referenceDataSnapshot.current();
+        if (snapshot != null) {
+            return snapshot.versionsOf(request.getModelId());
+        }
         var all = vmvRepository.findAllByModel_Id(request.getModelId());
         return all.stream().map(vmv -> VehicleModelVersionResponse.builder()
                 .modelVersionId(vmv.getId())
@@ -504,6 +541,7 @@ public class VehicleService {
         }
         vehicleDetailsRepository.save(details);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         return VehicleMapper.toVehiclePostResponse(product, details, request, imageDtos);
     }
@@ -596,6 +634,7 @@ public class VehicleService {
         vehicleDetailsRepository.save(details);
         productRepository.save(product);
         productRepository.flush();
+        eventPublisher.publishEvent(ProductChangedEvent.of(product.getId()));
 
         ProductDetail p = ProductDetail.fromEntity(product);
 
@@ -633,31 +672,33 @@ public class VehicleService {
 
 
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<SimilarProductResponse> getSimilarVehicles(String productId) {
 
         VehicleDetails details = vehicleDetailsRepository.findByProductId(productId)
                 .orElseThrow(() -> new AppException(ErrorCode.VEHICLE_NOT_FOUND));
 
-        String modelId = details.getModel().getId();
-        String brandId = details.getBrand().getId();
-
-        List<Product> similar = new ArrayList<>(
-                vehicleDetailsRepository.findSimilarVehiclesByModel(modelId, productId));
-        List<Product> similarBrand = vehicleDetailsRepository.findSimilarVehiclesByBrand(brandId, modelId, productId);
-
-        for (Product p : similarBrand) {
-            boolean alreadyExisted = similar.stream()
-                    .anyMatch(sp -> sp.getId().equals(p.getId()));
-            if (!alreadyExisted) {
-                similar.add(p);
-            }
+        List<String> similarIds;
+        if (similarProductIndex.isReady()) {
+            similarIds = similarProductIndex.similarVehicles(details, SIMILAR_LIMIT);
+        } else {
+            // Index chưa nạp xong (vừa khởi động) -> cùng model trước, rồi cùng brand
+            String modelId = details.getModel().getId();
+            Set<String> ids = new LinkedHashSet<>();
+            vehicleDetailsRepository.findSimilarVehiclesByModel(modelId, productId)
+                    .forEach(p -> ids.add(p.getId()));
+            vehicleDetailsRepository.findSimilarVehiclesByBrand(details.getBrand().getId(), modelId, productId)
+                    .forEach(p -> ids.add(p.getId()));
+            similarIds = ids.stream().limit(SIMILAR_LIMIT).toList();
         }
 
-        return similar.stream()
+        List<Product> products = productDetailAssembler.loadInOrder(similarIds);
+        Map<String, List<ProductImages>> images = productDetailAssembler.loadImages(similarIds);
+
+        return products.stream()
+                .filter(p -> p.getStatus() == Product.Status.ACTIVE)
                 .map(p -> {
-                    VehicleDetails v = vehicleDetailsRepository.findByProductId(p.getId())
-                            .orElse(null);
+                    VehicleDetails v = p.getVehicleDetails();
 
                     return SimilarProductResponse.builder()
                             .productId(p.getId())
@@ -665,10 +706,7 @@ public class VehicleService {
                             .price(p.getPrice())
                             .brandName(v != null && v.getBrand() != null ? v.getBrand().getName() : null)
                             .modelName(v != null && v.getModel() != null ? v.getModel().getName() : null)
-                            .images(
-                                    p.getImages() != null && !p.getImages().isEmpty()
-                                            ? p.getImages().get(0).getImageUrl()
-                                            : null)
+                            .images(ProductMapper.firstImageUrl(images.get(p.getId())))
                             .build();
                 })
                 .collect(Collectors.toList());
@@ -789,6 +827,9 @@ public class VehicleService {
         log.info("Successfully created/linked brand={}, model={}, version={}", brandName, modelName, versionName);
         log.debug("Flags: brandCreated={}, modelCreated={}, versionCreated={}", brandCreated, modelCreated,
                 versionCreated);
+        if (brandCreated || modelCreated || versionCreated) {
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
+        }
 
         return CreateVehicleMapper.mapToCreateVehicleResponse(brand, model, version, brandCreated, modelCreated,
                 versionCreated);
@@ -855,6 +896,7 @@ public class VehicleService {
 
         if (changed) {
             vehicleBrandsRepository.save(brand);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             log.info("Brand updated successfully: id={}, name='{}', logo='{}'", brand.getId(), brand.getName(),
                     brand.getLogoUrl());
         } else {
@@ -935,6 +977,7 @@ public class VehicleService {
 
         if (nameChanged || categoryChanged) {
             vmRepository.save(model);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             log.info("Model updated successfully: id={}, name='{}', brandId={}, vehicleType={}",
                     model.getId(),
                     model.getName(),
@@ -989,6 +1032,7 @@ public class VehicleService {
             log.info("Updating version name: '{}' -> '{}'", ver.getName(), newName);
             ver.setName(newName);
             vmvRepository.save(ver);
+            eventPublisher.publishEvent(new TaxonomyChangedEvent());
             log.info("Version updated successfully: id={}, name='{}', modelId={}",
                     ver.getId(), ver.getName(), ver.getModel().getId());
         } else {
@@ -4,10 +4,12 @@ import com.evdealer.evdealermanagement.dto.wishlist.WishlistItemResponse;
 import com.evdealer.evdealermanagement.dto.common.PageResponse;
 import com.evdealer.evdealermanagement.entity.account.Account;
 import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.product.ProductImages;
 import com.evdealer.evdealermanagement.entity.wishlist.Wishlist;
 import com.evdealer.evdealermanagement.entity.wishlist.WishlistItem;
 import com.evdealer.evdealermanagement.exceptions.AppException;
 import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import com.evdealer.evdealermanagement.mapper.product.ProductDetailAssembler;
 import com.evdealer.evdealermanagement.mapper.wishlist.WishlistMapper;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
 import com.evdealer.evdealermanagement.repository.WishlistItemRepository;
@@ -22,6 +24,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiConsumer;
@@ -38,6 +41,7 @@ public class WishlistService implements IWishlistService {
     private final WishlistRepository wishlistRepository;
     private final ProductRepository productRepository;
     private final EntityManager em;
+    private final ProductDetailAssembler productDetailAssembler;
 
     @Override
     public void addWishlistItem(String accountId, String productId) {
@@ -106,7 +110,14 @@ public class WishlistService implements IWishlistService {
 
         // Fetch page of wishlist items
         Page<WishlistItem> page = wishlistItemRepository.findByWishlist_Account_Id(accountId, pageable);
-        return PageResponse.fromPage(page, WishlistMapper::mapToWishlistItemResponse);
+
+        // Nạp trước product + ảnh của cả trang (2 query) thay vì lazy-load theo từng item
+        List<String> productIds = page.getContent().stream().map(wi -> wi.getProduct().getId()).toList();
+        productDetailAssembler.loadInOrder(productIds);
+        Map<String, List<ProductImages>> images = productDetailAssembler.loadImages(productIds);
+
+        return PageResponse.fromPage(page,
+                wi -> WishlistMapper.mapToWishlistItemResponse(wi, images.get(wi.getProduct().getId())));
     }
 
     private void validateUuid(String id, String fieldName) {
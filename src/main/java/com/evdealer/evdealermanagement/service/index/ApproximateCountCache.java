@@ -0,0 +1,151 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Tổng số tin xấp xỉ cho chế độ phân trang không đếm (count=false).
+ * Request không bao giờ chờ COUNT: {@link #peek} trả giá trị đang có (có thể cũ hoặc null)
+ * và, nếu giá trị đã quá hạn làm mới hoặc đã có product thay đổi, đẩy việc đếm lại cho một luồng nền.
+ * Hàng đợi làm mới có giới hạn, mỗi key chỉ đếm một lần tại một thời điểm; đầy thì bỏ qua (lần peek sau thử lại).
+ */
+@Slf4j
+@Component
+public class ApproximateCountCache {
+
+    private final int maxEntries;
+    private final long refreshMillis;
+
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LinkedHashMap<String, Entry> entries;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refresher;
+
+    public ApproximateCountCache(@Value("${product.approx-count.max-entries:2000}") int maxEntries,
+                                 @Value("${product.approx-count.refresh-ms:300000}") long refreshMillis,
+                                 @Value("${product.approx-count.queue-capacity:64}") int queueCapacity) {
+        this.maxEntries = maxEntries;
+        this.refreshMillis = refreshMillis;
+        this.entries = new LinkedHashMap<>(128, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ApproximateCountCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.refresher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "approx-count-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Tổng đã biết cho key (null nếu chưa đếm lần nào); hết hạn thì lên lịch đếm lại bằng counter.
+     * counter chạy trên luồng khác nên phải tự mở transaction (vd. repository.count(spec)).
+     */
+    public Long peek(String key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        long current = version.get();
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(key);
+        }
+        if (e == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        if (e == null || e.version != current || e.countedAt + refreshMillis <= now) {
+            scheduleRefresh(key, counter, current);
+        }
+        return e == null ? null : e.count;
+    }
+
+    // Giá trị cũ vẫn được trả (xấp xỉ), chỉ đánh dấu để lần peek sau đếm lại
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+    }
+
+    public CacheStatsResponse getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return CacheStatsResponse.builder()
+                .name("approx-count")
+                .size(size)
+                .hits(h)
+                .misses(m)
+                .evictions(evictions.sum())
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void scheduleRefresh(String key, LongSupplier counter, long versionAtRequest) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    long count = counter.getAsLong();
+                    synchronized (entries) {
+                        entries.put(key, new Entry(count, versionAtRequest, System.currentTimeMillis()));
+                    }
+                } catch (Exception ex) {
+                    log.warn("Failed to refresh approximate count for key {}: {}", key, ex.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Hàng đợi đầy: bỏ lượt này, lần peek sau thử lại
+            refreshing.remove(key);
+        }
+    }
+
+    private static final class Entry {
+        final long count;
+        final long version;
+        final long countedAt;
+
+        Entry(long count, long version, long countedAt) {
+            this.count = count;
+            this.version = version;
+            this.countedAt = countedAt;
+        }
+    }
+}
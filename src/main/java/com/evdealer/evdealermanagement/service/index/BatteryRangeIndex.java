@@ -0,0 +1,269 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * k-d tree 3 chiều (dung lượng kWh × % sức khoẻ × giá) cho tin pin ACTIVE, lọc thêm theo loại pin.
+ * Truy vấn hộp (mỗi chiều một khoảng, bỏ trống = không giới hạn) chỉ duyệt các nhánh giao với hộp.
+ * Thay đổi lẻ không dựng lại cây: điểm mới/đã sửa nằm trong vùng delta (quét tuần tự),
+ * điểm cũ bị đánh dấu xoá; delta vượt ngưỡng thì dựng lại cây từ các điểm còn sống.
+ * Giá trị thiếu được lưu là -∞ nên chỉ khớp khi chiều đó không bị giới hạn.
+ */
+@Slf4j
+@Component
+public class BatteryRangeIndex implements ProductIndex {
+
+    private static final int DIMS = 3;
+    private static final int CAPACITY = 0;
+    private static final int HEALTH = 1;
+    private static final int PRICE = 2;
+    private static final int MIN_DELTA_BEFORE_REBUILD = 256;
+    private static final int NO_TYPE = -1;
+
+    private static final Comparator<Point> RESULT_ORDER = Comparator
+            .comparingDouble((Point p) -> p.coords[PRICE])
+            .thenComparing(p -> p.id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Cây ngầm định: nút là đoạn [lo, hi) của tree, gốc ở mid, chiều chia = depth % 3
+    private Point[] tree = new Point[0];
+    private final List<Point> delta = new ArrayList<>();
+    private final Map<String, Point> liveById = new HashMap<>();
+    private final Map<String, Integer> typeCodes = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Tin pin ACTIVE nằm trong hộp [min, max] của từng chiều (null = không giới hạn) và đúng loại pin
+     * (null = mọi loại), giá tăng dần, lấy đoạn [offset, offset + limit)
+     */
+    public IdSlice find(Double minCapacityKwh, Double maxCapacityKwh, Integer minHealthPercent,
+                         Integer maxHealthPercent, Double minPrice, Double maxPrice,
+                         String batteryTypeId, int offset, int limit) {
+        double[] min = new double[DIMS];
+        double[] max = new double[DIMS];
+        min[CAPACITY] = lower(minCapacityKwh, maxCapacityKwh);
+        max[CAPACITY] = upper(maxCapacityKwh);
+        min[HEALTH] = lower(toDouble(minHealthPercent), toDouble(maxHealthPercent));
+        max[HEALTH] = upper(toDouble(maxHealthPercent));
+        min[PRICE] = lower(minPrice, maxPrice);
+        max[PRICE] = upper(maxPrice);
+
+        lock.readLock().lock();
+        try {
+            int type = NO_TYPE;
+            if (batteryTypeId != null) {
+                Integer code = typeCodes.get(batteryTypeId);
+                if (code == null) {
+                    return IdSlice.empty();
+                }
+                type = code;
+            }
+
+            List<Point> matched = new ArrayList<>();
+            search(0, tree.length, 0, min, max, type, matched);
+            for (Point p : delta) {
+                if (p.alive && p.inBox(min, max, type)) {
+                    matched.add(p);
+                }
+            }
+            matched.sort(RESULT_ORDER);
+
+            return IdSlice.of(matched.size(), offset, limit, i -> matched.get(i).id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        lock.writeLock().lock();
+        try {
+            liveById.clear();
+            delta.clear();
+            typeCodes.clear();
+            for (Product p : activeProducts) {
+                Point point = toPoint(p);
+                if (point != null) {
+                    liveById.put(point.id, point);
+                }
+            }
+            buildTree();
+            ready = true;
+            log.info("Battery range index rebuilt: {} batteries", tree.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            Point point = toPoint(product);
+            Point previous = point == null ? liveById.remove(product.getId()) : liveById.put(point.id, point);
+            if (previous != null) {
+                previous.alive = false;
+            }
+            if (point != null) {
+                delta.add(point);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Point previous = liveById.remove(productId);
+            if (previous != null) {
+                previous.alive = false;
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void search(int lo, int hi, int depth, double[] min, double[] max, int type, List<Point> out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        Point p = tree[mid];
+        int dim = depth % DIMS;
+        if (p.alive && p.inBox(min, max, type)) {
+            out.add(p);
+        }
+        // Bên trái <= giá trị chia, bên phải >= giá trị chia
+        if (min[dim] <= p.coords[dim]) {
+            search(lo, mid, depth + 1, min, max, type, out);
+        }
+        if (max[dim] >= p.coords[dim]) {
+            search(mid + 1, hi, depth + 1, min, max, type, out);
+        }
+    }
+
+    // Delta lớn (hoặc nhiều điểm chết trong cây) thì quét tuần tự tốn hơn dựng lại
+    private void compactIfNeeded() {
+        int dead = tree.length + delta.size() - liveById.size();
+        int threshold = Math.max(MIN_DELTA_BEFORE_REBUILD, liveById.size() >>> 3);
+        if (delta.size() > threshold || dead > threshold) {
+            buildTree();
+        }
+    }
+
+    private void buildTree() {
+        Point[] points = liveById.values().toArray(new Point[0]);
+        build(points, 0, points.length, 0);
+        tree = points;
+        delta.clear();
+    }
+
+    private static void build(Point[] points, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(points, lo, hi - 1, mid, depth % DIMS);
+        build(points, lo, mid, depth + 1);
+        build(points, mid + 1, hi, depth + 1);
+    }
+
+    // Quickselect: đưa phần tử thứ k (theo chiều dim) về đúng vị trí, trái <= k <= phải
+    private static void select(Point[] a, int left, int right, int k, int dim) {
+        while (left < right) {
+            double pivot = a[(left + right) >>> 1].coords[dim];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (a[i].coords[dim] < pivot) i++;
+                while (a[j].coords[dim] > pivot) j--;
+                if (i <= j) {
+                    Point t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Point toPoint(Product p) {
+        BatteryDetails b = p.getBatteryDetails();
+        if (b == null) {
+            return null;
+        }
+        double[] coords = new double[DIMS];
+        coords[CAPACITY] = b.getCapacityKwh() == null ? Double.NEGATIVE_INFINITY : b.getCapacityKwh().doubleValue();
+        coords[HEALTH] = b.getHealthPercent() == null ? Double.NEGATIVE_INFINITY : b.getHealthPercent();
+        coords[PRICE] = p.getPrice() == null ? Double.NEGATIVE_INFINITY : p.getPrice().doubleValue();
+        int type = NO_TYPE;
+        if (b.getBatteryType() != null) {
+            type = typeCodes.computeIfAbsent(b.getBatteryType().getId(), k -> typeCodes.size());
+        }
+        return new Point(p.getId(), coords, type);
+    }
+
+    // Chiều có giới hạn (min hoặc max) thì loại giá trị thiếu (-∞)
+    private static double lower(Double min, Double max) {
+        if (min != null) return min;
+        return max != null ? -Double.MAX_VALUE : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double upper(Double max) {
+        return max != null ? max : Double.POSITIVE_INFINITY;
+    }
+
+    private static Double toDouble(Integer v) {
+        return v == null ? null : v.doubleValue();
+    }
+
+    private static final class Point {
+        final String id;
+        final double[] coords;
+        final int type;
+        boolean alive = true;
+
+        Point(String id, double[] coords, int type) {
+            this.id = id;
+            this.coords = coords;
+            this.type = type;
+        }
+
+        boolean inBox(double[] min, double[] max, int wantedType) {
+            if (wantedType != NO_TYPE && type != wantedType) {
+                return false;
+            }
+            for (int d = 0; d < DIMS; d++) {
+                if (coords[d] < min[d] || coords[d] > max[d]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
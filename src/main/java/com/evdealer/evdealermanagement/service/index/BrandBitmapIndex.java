@@ -0,0 +1,217 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.utils.SearchTextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index brand -> product dạng bitmap cho getProductByBrand (tìm theo tên brand, khớp một phần).
+ * Mỗi product được gán một ordinal; mỗi brand (xe hoặc pin) giữ một {@link OrdinalBitmap}
+ * các ordinal thuộc brand đó, thêm một bitmap các ordinal đang ACTIVE.
+ * Lúc rebuild ordinal được cấp theo createdAt tăng dần, nên kết quả AND đọc ra đã đúng thứ tự;
+ * chỉ khi có product cũ được (tái) kích hoạt chen vào cuối mới phải sắp xếp lại lúc truy vấn.
+ */
+@Slf4j
+@Component
+public class BrandBitmapIndex implements ProductIndex {
+
+    private static final int NONE = -1;
+    private static final Comparator<Product> ORDINAL_ORDER = Comparator
+            .comparing(Product::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Product::getId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] ids = new String[1024];
+    private long[] createdAt = new long[1024];
+    private int[] brandOf = new int[1024];
+    private int nextOrdinal = 0;
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+
+    private final Map<String, Integer> brandCodeById = new HashMap<>();
+    private final List<String> brandNames = new ArrayList<>();
+    private final List<OrdinalBitmap> brandBitmaps = new ArrayList<>();
+    private OrdinalBitmap active = new OrdinalBitmap();
+
+    // true khi thứ tự ordinal trùng thứ tự (createdAt, id)
+    private boolean ordered = true;
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Product ACTIVE có tên brand chứa brandName (không phân biệt hoa thường / dấu),
+     * theo createdAt tăng dần, lấy đoạn [offset, offset + limit)
+     */
+    public IdSlice findByBrandName(String brandName, int offset, int limit) {
+        String needle = SearchTextNormalizer.fold(brandName);
+        lock.readLock().lock();
+        try {
+            OrdinalBitmap matched = new OrdinalBitmap();
+            for (int code = 0; code < brandNames.size(); code++) {
+                String name = brandNames.get(code);
+                if (name != null && name.contains(needle)) {
+                    matched = matched.or(brandBitmaps.get(code));
+                }
+            }
+            int[] ordinals = matched.and(active).toArray();
+            if (!ordered) {
+                ordinals = Arrays.stream(ordinals).boxed()
+                        .sorted(Comparator.<Integer>comparingLong(o -> createdAt[o]).thenComparing(o -> ids[o]))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+            }
+
+            int[] sorted = ordinals;
+            return IdSlice.of(sorted.length, offset, limit, i -> ids[sorted[i]]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        List<Product> sorted = new ArrayList<>(activeProducts);
+        sorted.sort(ORDINAL_ORDER);
+
+        lock.writeLock().lock();
+        try {
+            int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, sorted.size())) << 1);
+            ids = new String[capacity];
+            createdAt = new long[capacity];
+            brandOf = new int[capacity];
+            nextOrdinal = 0;
+            ordinalById.clear();
+            brandCodeById.clear();
+            brandNames.clear();
+            brandBitmaps.clear();
+            active = new OrdinalBitmap();
+            ordered = true;
+
+            for (Product p : sorted) {
+                int ordinal = allocate(p);
+                writeBrand(ordinal, p);
+                active.add(ordinal);
+            }
+            ready = true;
+            log.info("Brand bitmap index rebuilt: {} products, {} brands", sorted.size(), brandNames.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinalById.get(product.getId());
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                if (createdAt[ordinal] != createdAtKey(product.getCreatedAt())) {
+                    createdAt[ordinal] = createdAtKey(product.getCreatedAt());
+                    ordered = false;
+                }
+            } else {
+                if (nextOrdinal > 0 && isBefore(product, nextOrdinal - 1)) {
+                    ordered = false;
+                }
+                ordinal = allocate(product);
+            }
+            writeBrand(ordinal, product);
+            active.add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            // Giữ ordinal (và bit brand) để tái sử dụng nếu product ACTIVE lại; bitmap ACTIVE loại nó khỏi kết quả
+            Integer ordinal = ordinalById.get(productId);
+            if (ordinal != null) {
+                active.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int allocate(Product p) {
+        if (nextOrdinal == ids.length) {
+            int capacity = ids.length << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            brandOf = Arrays.copyOf(brandOf, capacity);
+        }
+        int ordinal = nextOrdinal++;
+        ids[ordinal] = p.getId();
+        createdAt[ordinal] = createdAtKey(p.getCreatedAt());
+        brandOf[ordinal] = NONE;
+        ordinalById.put(p.getId(), ordinal);
+        return ordinal;
+    }
+
+    private void writeBrand(int ordinal, Product p) {
+        int code = brandCode(p);
+        if (brandOf[ordinal] == code) {
+            return;
+        }
+        if (brandOf[ordinal] != NONE) {
+            brandBitmaps.get(brandOf[ordinal]).remove(ordinal);
+        }
+        if (code != NONE) {
+            brandBitmaps.get(code).add(ordinal);
+        }
+        brandOf[ordinal] = code;
+    }
+
+    private int brandCode(Product p) {
+        String brandId = null;
+        String brandName = null;
+        if (p.getVehicleDetails() != null && p.getVehicleDetails().getBrand() != null) {
+            brandId = p.getVehicleDetails().getBrand().getId();
+            brandName = p.getVehicleDetails().getBrand().getName();
+        } else if (p.getBatteryDetails() != null && p.getBatteryDetails().getBrand() != null) {
+            brandId = p.getBatteryDetails().getBrand().getId();
+            brandName = p.getBatteryDetails().getBrand().getName();
+        }
+        if (brandId == null) {
+            return NONE;
+        }
+        Integer code = brandCodeById.get(brandId);
+        if (code == null) {
+            code = brandNames.size();
+            brandCodeById.put(brandId, code);
+            brandNames.add(null);
+            brandBitmaps.add(new OrdinalBitmap());
+        }
+        // Tên brand có thể được admin sửa -> luôn lấy tên mới nhất
+        brandNames.set(code, brandName == null ? null : SearchTextNormalizer.fold(brandName));
+        return code;
+    }
+
+    private boolean isBefore(Product p, int ordinal) {
+        long key = createdAtKey(p.getCreatedAt());
+        return key < createdAt[ordinal] || (key == createdAt[ordinal] && p.getId().compareTo(ids[ordinal]) < 0);
+    }
+
+    // createdAt NULL xếp cuối như comparator cũ
+    private static long createdAtKey(LocalDateTime t) {
+        if (t == null) {
+            return Long.MAX_VALUE;
+        }
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + t.getNano();
+    }
+}
@@ -0,0 +1,19 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import lombok.Getter;
+
+/**
+ * Phát ra khi một dòng vehicle_battery_compatibility được thêm / sửa / xoá.
+ * {@link CompatibilityIndex} nạp lại các cạnh của xe và pin liên quan sau khi commit.
+ */
+@Getter
+public class CompatibilityChangedEvent {
+
+    private final String vehicleId;
+    private final String batteryId;
+
+    public CompatibilityChangedEvent(String vehicleId, String batteryId) {
+        this.vehicleId = vehicleId;
+        this.batteryId = batteryId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.compatibility.VehicleBatteryCompatibility;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener của {@link VehicleBatteryCompatibility}: mọi thay đổi qua JPA đều phát
+ * {@link CompatibilityChangedEvent}, không cần từng service tự nhớ publish.
+ * Hibernate lấy bean này từ Spring nên inject được publisher.
+ */
+@Component
+@RequiredArgsConstructor
+public class CompatibilityEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(VehicleBatteryCompatibility row) {
+        if (row.getVehicle() != null && row.getBattery() != null) {
+            eventPublisher.publishEvent(new CompatibilityChangedEvent(
+                    row.getVehicle().getId(), row.getBattery().getId()));
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.compatibility.VehicleBatteryCompatibility.CompatibilityLevel;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.repository.VehicleBatteryCompatibilityRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Đồ thị tương thích xe ↔ pin trong bộ nhớ.
+ * Mỗi product (xe hoặc pin) có một ordinal; mỗi chiều (xe -> pin, pin -> xe) là danh sách kề
+ * int[] ordinal kèm byte mức tương thích (PERFECT 0, GOOD 1, PARTIAL 2).
+ * Giá và cờ ACTIVE lưu theo ordinal nên lọc/sắp xếp không cần chạm DB.
+ * Trạng thái/giá product đồng bộ qua {@link ProductIndex}; cạnh đồng bộ qua {@link CompatibilityChangedEvent}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CompatibilityIndex implements ProductIndex {
+
+    private static final byte UNKNOWN_LEVEL = 3;
+    private static final CompatibilityLevel[] LEVELS = CompatibilityLevel.values();
+
+    private final VehicleBatteryCompatibilityRepository compatibilityRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private String[] ids = new String[1024];
+    private long[] price = new long[1024];
+    private long[] active = new long[16];
+    private int nextOrdinal = 0;
+    private final Adjacency batteriesOfVehicle = new Adjacency();
+    private final Adjacency vehiclesOfBattery = new Adjacency();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Pin ACTIVE tương thích với từng xe, mức tương thích rồi giá tăng dần, tối đa limit mỗi xe
+     */
+    public Map<String, List<Match>> batteriesFor(Collection<String> vehicleIds, int limit) {
+        return lookup(vehicleIds, batteriesOfVehicle, limit);
+    }
+
+    /**
+     * Xe ACTIVE mà từng pin lắp được, mức tương thích rồi giá tăng dần, tối đa limit mỗi pin
+     */
+    public Map<String, List<Match>> vehiclesFor(Collection<String> batteryIds, int limit) {
+        return lookup(batteryIds, vehiclesOfBattery, limit);
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        List<Object[]> edges = compatibilityRepository.findAllEdges();
+
+        lock.writeLock().lock();
+        try {
+            ordinalById.clear();
+            ids = new String[1024];
+            price = new long[1024];
+            active = new long[16];
+            nextOrdinal = 0;
+            batteriesOfVehicle.reset();
+            vehiclesOfBattery.reset();
+
+            for (Product p : activeProducts) {
+                markActive(ordinal(p.getId()), p);
+            }
+            for (Object[] row : edges) {
+                addEdge(row);
+            }
+            ready = true;
+            log.info("Compatibility index rebuilt: {} edges over {} products", edges.size(), nextOrdinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            markActive(ordinal(product.getId()), product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            // Giữ ordinal và cạnh: product ACTIVE lại thì không phải nạp lại cạnh
+            Integer ordinal = ordinalById.get(productId);
+            if (ordinal != null) {
+                active[ordinal >>> 6] &= ~(1L << ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Dòng tương thích vừa đổi: nạp lại mọi cạnh của xe và pin liên quan
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCompatibilityChanged(CompatibilityChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        try {
+            List<Object[]> edges = compatibilityRepository.findEdgesTouching(
+                    List.of(event.getVehicleId()), List.of(event.getBatteryId()));
+            lock.writeLock().lock();
+            try {
+                int vehicle = ordinal(event.getVehicleId());
+                int battery = ordinal(event.getBatteryId());
+                for (int other : batteriesOfVehicle.clear(vehicle)) {
+                    vehiclesOfBattery.remove(other, vehicle);
+                }
+                for (int other : vehiclesOfBattery.clear(battery)) {
+                    batteriesOfVehicle.remove(other, battery);
+                }
+                for (Object[] row : edges) {
+                    addEdge(row);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh compatibility edges for vehicle={} battery={}",
+                    event.getVehicleId(), event.getBatteryId(), e);
+        }
+    }
+
+    private Map<String, List<Match>> lookup(Collection<String> sourceIds, Adjacency adjacency, int limit) {
+        Map<String, List<Match>> result = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String sourceId : sourceIds) {
+                Integer source = ordinalById.get(sourceId);
+                if (source == null || source >= adjacency.degree.length) {
+                    result.put(sourceId, List.of());
+                    continue;
+                }
+                int degree = adjacency.degree[source];
+                int[] targets = adjacency.targets[source];
+                byte[] levels = adjacency.levels[source];
+
+                List<Integer> candidates = new ArrayList<>(degree);
+                for (int i = 0; i < degree; i++) {
+                    if (isActive(targets[i])) {
+                        candidates.add(i);
+                    }
+                }
+                candidates.sort(Comparator.<Integer>comparingInt(i -> levels[i])
+                        .thenComparingLong(i -> price[targets[i]])
+                        .thenComparing(i -> ids[targets[i]]));
+
+                List<Match> matches = new ArrayList<>(Math.min(limit, candidates.size()));
+                for (int i = 0; i < candidates.size() && i < limit; i++) {
+                    int at = candidates.get(i);
+                    byte level = levels[at];
+                    matches.add(new Match(ids[targets[at]], level < LEVELS.length ? LEVELS[level] : null));
+                }
+                result.put(sourceId, matches);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addEdge(Object[] row) {
+        int vehicle = ordinal((String) row[0]);
+        int battery = ordinal((String) row[1]);
+        CompatibilityLevel level = (CompatibilityLevel) row[2];
+        byte weight = level == null ? UNKNOWN_LEVEL : (byte) level.ordinal();
+        batteriesOfVehicle.put(vehicle, battery, weight);
+        vehiclesOfBattery.put(battery, vehicle, weight);
+    }
+
+    private int ordinal(String productId) {
+        Integer existing = ordinalById.get(productId);
+        if (existing != null) {
+            return existing;
+        }
+        if (nextOrdinal == ids.length) {
+            int capacity = ids.length << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            price = Arrays.copyOf(price, capacity);
+            active = Arrays.copyOf(active, capacity >>> 6);
+        }
+        int ordinal = nextOrdinal++;
+        ids[ordinal] = productId;
+        ordinalById.put(productId, ordinal);
+        return ordinal;
+    }
+
+    private void markActive(int ordinal, Product p) {
+        price[ordinal] = p.getPrice() == null ? Long.MAX_VALUE : p.getPrice().longValue();
+        active[ordinal >>> 6] |= 1L << ordinal;
+    }
+
+    private boolean isActive(int ordinal) {
+        return (active[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Danh sách kề một chiều: targets[from][0..degree) kèm levels song song
+     */
+    private static final class Adjacency {
+        private static final int[] NO_TARGETS = new int[0];
+        private static final byte[] NO_LEVELS = new byte[0];
+
+        int[][] targets = new int[0][];
+        byte[][] levels = new byte[0][];
+        int[] degree = new int[0];
+
+        void reset() {
+            targets = new int[0][];
+            levels = new byte[0][];
+            degree = new int[0];
+        }
+
+        void put(int from, int to, byte level) {
+            ensure(from);
+            int n = degree[from];
+            for (int i = 0; i < n; i++) {
+                if (targets[from][i] == to) {
+                    levels[from][i] = level;
+                    return;
+                }
+            }
+            if (n == targets[from].length) {
+                int capacity = Math.max(4, n << 1);
+                targets[from] = Arrays.copyOf(targets[from], capacity);
+                levels[from] = Arrays.copyOf(levels[from], capacity);
+            }
+            targets[from][n] = to;
+            levels[from][n] = level;
+            degree[from] = n + 1;
+        }
+
+        void remove(int from, int to) {
+            if (from >= degree.length) {
+                return;
+            }
+            int n = degree[from];
+            for (int i = 0; i < n; i++) {
+                if (targets[from][i] == to) {
+                    targets[from][i] = targets[from][n - 1];
+                    levels[from][i] = levels[from][n - 1];
+                    degree[from] = n - 1;
+                    return;
+                }
+            }
+        }
+
+        // Xoá mọi cạnh đi ra từ from, trả về các đầu kia để gỡ cạnh ngược
+        int[] clear(int from) {
+            if (from >= degree.length) {
+                return NO_TARGETS;
+            }
+            int[] removed = Arrays.copyOf(targets[from], degree[from]);
+            degree[from] = 0;
+            return removed;
+        }
+
+        private void ensure(int ordinal) {
+            if (ordinal < degree.length) {
+                return;
+            }
+            int old = degree.length;
+            int capacity = Math.max(1024, Integer.highestOneBit(ordinal) << 1);
+            targets = Arrays.copyOf(targets, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+            for (int i = old; i < capacity; i++) {
+                targets[i] = NO_TARGETS;
+                levels[i] = NO_LEVELS;
+            }
+        }
+    }
+
+    /**
+     * Một product tương thích và mức tương thích
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Match {
+        private final String productId;
+        private final CompatibilityLevel level;
+    }
+}
@@ -0,0 +1,109 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Các vùng Hibernate L2 (khai báo trong ehcache.xml, gắn vào entity bằng @Cache):
+ * thống kê hit/miss theo vùng cho /admin/cache/stats và xoá toàn bộ khi dữ liệu bị sửa ngoài app.
+ * Sửa qua JPA (save/delete trong service admin) thì Hibernate chỉ cập nhật vùng trên node đó;
+ * các node khác xoá vùng taxonomy khi nhận {@link TaxonomyChangedEvent} từ Redis.
+ * Thống kê đọc từ MBean CacheStatistics của JCache (bật trong ehcache.xml), không cần
+ * hibernate.generate_statistics; JCache không đếm số phần tử nên size luôn là 0.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EntityCacheRegions {
+
+    private static final List<String> TAXONOMY_REGIONS = List.of(
+            "taxonomy.vehicle-brands",
+            "taxonomy.vehicle-categories",
+            "taxonomy.vehicle-models",
+            "taxonomy.vehicle-model-versions",
+            "taxonomy.battery-brands",
+            "taxonomy.battery-types");
+
+    public static final List<String> REGIONS = List.of(
+            "taxonomy.vehicle-brands",
+            "taxonomy.vehicle-categories",
+            "taxonomy.vehicle-models",
+            "taxonomy.vehicle-model-versions",
+            "taxonomy.battery-brands",
+            "taxonomy.battery-types",
+            "package.post-packages",
+            "package.post-package-options");
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public List<CacheStatsResponse> getStats() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        List<CacheStatsResponse> result = new ArrayList<>(REGIONS.size());
+        for (String region : REGIONS) {
+            try {
+                Set<ObjectName> names = server.queryNames(
+                        new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+                if (names.isEmpty()) {
+                    continue;
+                }
+                ObjectName name = names.iterator().next();
+                long hits = (Long) server.getAttribute(name, "CacheHits");
+                long misses = (Long) server.getAttribute(name, "CacheMisses");
+                result.add(CacheStatsResponse.builder()
+                        .name("l2:" + region)
+                        .size(0)
+                        .hits(hits)
+                        .misses(misses)
+                        .evictions((Long) server.getAttribute(name, "CacheEvictions"))
+                        .hitRatio(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                        .build());
+            } catch (Exception e) {
+                log.debug("Cannot read statistics of cache region {}: {}", region, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Taxonomy bị sửa trên node khác: vùng L2 ở node này còn bản cũ tới hết TTL nên xoá ngay.
+     * Chạy trước các listener khác (ảnh chụp tham chiếu, typeahead) để chúng nạp lại từ DB.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaxonomyChanged(TaxonomyChangedEvent event) {
+        if (!event.isRemote()) {
+            return;
+        }
+        for (String region : TAXONOMY_REGIONS) {
+            sessionFactory().getCache().evictRegion(region);
+        }
+        log.debug("Evicted taxonomy cache regions after remote change");
+    }
+
+    /**
+     * Xoá mọi entity trong L2 (vd. sau khi sửa gói đăng tin trực tiếp trong DB)
+     */
+    public void evictAll() {
+        sessionFactory().getCache().evictAllRegions();
+        log.info("Evicted all second-level cache regions");
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
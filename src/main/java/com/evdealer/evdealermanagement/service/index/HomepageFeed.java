@@ -0,0 +1,193 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.repository.PostPaymentRepository;
+import com.evdealer.evdealermanagement.utils.VietNamDatetime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Feed trang chủ đã xếp hạng sẵn, thay cho việc chạy findActiveFeaturedSorted mỗi request.
+ * Thứ tự giữ nguyên như query cũ:
+ * 1. đang featured (featuredEndAt >= now) trước
+ * 2. gói của payment mới nhất: SPECIAL, PRIORITY, STANDARD, còn lại
+ * 3. createdAt DESC
+ * Chỉ gồm tin ACTIVE còn hạn (expiresAt > now).
+ * <p>
+ * Snapshot là mảng bất biến, chỉ dựng lại khi có product thay đổi hoặc khi tới mốc
+ * featuredEndAt / expiresAt gần nhất; request đọc chỉ cắt mảng.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HomepageFeed implements ProductIndex {
+
+    private static final int ID_CHUNK = 1000;
+    private static final Comparator<FeedEntry> ORDER_WITHIN_TIER = Comparator
+            .comparing(FeedEntry::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(FeedEntry::getId);
+
+    private final PostPaymentRepository postPaymentRepository;
+
+    private final Map<String, FeedEntry> entries = new HashMap<>();
+    private volatile Snapshot snapshot = null;
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Lấy ID theo thứ tự feed trong đoạn [offset, offset + limit)
+     */
+    public List<String> slice(int offset, int limit) {
+        if (snapshot == null) {
+            return List.of();
+        }
+        Snapshot current = currentSnapshot();
+        int from = Math.min(offset, current.ids.length);
+        int to = Math.min(from + limit, current.ids.length);
+        return List.of(Arrays.copyOfRange(current.ids, from, to));
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        Map<String, String> packageCodes = new HashMap<>();
+        List<String> ids = activeProducts.stream().map(Product::getId).toList();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK) {
+            packageCodes.putAll(loadPackageCodes(ids.subList(i, Math.min(i + ID_CHUNK, ids.size()))));
+        }
+
+        synchronized (this) {
+            entries.clear();
+            for (Product p : activeProducts) {
+                entries.put(p.getId(), toEntry(p, packageCodes.get(p.getId())));
+            }
+            snapshot = buildSnapshot(VietNamDatetime.nowVietNam());
+            log.info("Homepage feed rebuilt: {} products, valid until {}", snapshot.ids.length, snapshot.validUntil);
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        String packageCode = loadPackageCodes(List.of(product.getId())).get(product.getId());
+        synchronized (this) {
+            entries.put(product.getId(), toEntry(product, packageCode));
+            if (snapshot != null) {
+                snapshot = buildSnapshot(VietNamDatetime.nowVietNam());
+            }
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        synchronized (this) {
+            if (entries.remove(productId) != null && snapshot != null) {
+                snapshot = buildSnapshot(VietNamDatetime.nowVietNam());
+            }
+        }
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        LocalDateTime now = VietNamDatetime.nowVietNam();
+        if (current.validUntil == null || now.isBefore(current.validUntil)) {
+            return current;
+        }
+        synchronized (this) {
+            // Đã qua mốc featuredEndAt/expiresAt -> xếp hạng lại
+            if (snapshot.validUntil != null && !now.isBefore(snapshot.validUntil)) {
+                snapshot = buildSnapshot(now);
+                log.debug("Homepage feed re-ranked at boundary, {} products", snapshot.ids.length);
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot buildSnapshot(LocalDateTime now) {
+        List<FeedEntry> visible = new ArrayList<>(entries.size());
+        LocalDateTime nextBoundary = null;
+        for (FeedEntry e : entries.values()) {
+            if (e.getExpiresAt() == null || !e.getExpiresAt().isAfter(now)) {
+                continue;
+            }
+            nextBoundary = earliest(nextBoundary, e.getExpiresAt());
+            if (e.getFeaturedEndAt() != null && !e.getFeaturedEndAt().isBefore(now)) {
+                // featured tới hết featuredEndAt (so sánh >=), hết hiệu lực ngay sau mốc đó
+                nextBoundary = earliest(nextBoundary, e.getFeaturedEndAt().plusNanos(1));
+            }
+            visible.add(e);
+        }
+
+        Comparator<FeedEntry> order = Comparator
+                .comparingInt((FeedEntry e) -> e.tier(now))
+                .thenComparing(ORDER_WITHIN_TIER);
+        visible.sort(order);
+
+        String[] ids = new String[visible.size()];
+        byte[] tiers = new byte[visible.size()];
+        for (int i = 0; i < visible.size(); i++) {
+            ids[i] = visible.get(i).getId();
+            tiers[i] = (byte) visible.get(i).tier(now);
+        }
+        return new Snapshot(ids, tiers, nextBoundary);
+    }
+
+    private Map<String, String> loadPackageCodes(List<String> productIds) {
+        Map<String, String> result = new HashMap<>();
+        for (Object[] row : postPaymentRepository.findLatestPackageCodes(productIds)) {
+            result.put((String) row[0], (String) row[1]);
+        }
+        return result;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private static FeedEntry toEntry(Product p, String packageCode) {
+        return new FeedEntry(p.getId(), p.getCreatedAt(), p.getExpiresAt(), p.getFeaturedEndAt(), packageRank(packageCode));
+    }
+
+    // 0 SPECIAL, 1 PRIORITY, 2 STANDARD, 3 còn lại / không có payment
+    static int packageRank(String code) {
+        if (code == null) return 3;
+        return switch (code) {
+            case "SPECIAL" -> 0;
+            case "PRIORITY" -> 1;
+            case "STANDARD" -> 2;
+            default -> 3;
+        };
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class FeedEntry {
+        private final String id;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime expiresAt;
+        private final LocalDateTime featuredEndAt;
+        private final int packageRank;
+
+        // 0..3: đang featured theo gói, 4..7: hết featured theo gói
+        int tier(LocalDateTime now) {
+            boolean featured = featuredEndAt != null && !featuredEndAt.isBefore(now);
+            return (featured ? 0 : 4) + packageRank;
+        }
+    }
+
+    /**
+     * Thứ tự feed tại một thời điểm: ids[i] kèm rank tier[i]; validUntil là mốc cần xếp lại
+     */
+    @AllArgsConstructor
+    private static final class Snapshot {
+        private final String[] ids;
+        private final byte[] tiers;
+        private final LocalDateTime validUntil;
+    }
+}
@@ -0,0 +1,40 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Một đoạn kết quả và tổng số tin khớp, dùng chung cho các index trong bộ nhớ
+ * (BrandBitmapIndex, BatteryRangeIndex, VehicleSpecIndex)
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class IdSlice {
+
+    private static final IdSlice EMPTY = new IdSlice(List.of(), 0);
+
+    private final List<String> ids;
+    private final int total;
+
+    public static IdSlice empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Lấy đoạn [offset, offset + limit) trong total kết quả đã sắp xếp, idAt(i) là id ở vị trí i
+     */
+    public static IdSlice of(int total, int offset, int limit, IntFunction<String> idAt) {
+        int from = Math.min(Math.max(offset, 0), total);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), total);
+        List<String> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(idAt.apply(i));
+        }
+        return new IdSlice(page, total);
+    }
+}
@@ -0,0 +1,402 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap nén theo kiểu roaring cho ordinal của product (int không âm).
+ * Chia theo 16 bit cao thành các container 65536 phần tử:
+ * - ít phần tử (<= 4096): mảng char[] đã sắp xếp,
+ * - nhiều phần tử: bitmap long[1024] (8 KB).
+ * Container tự đổi dạng khi vượt/xuống dưới ngưỡng. Không thread-safe, lớp sở hữu tự khoá.
+ */
+final class OrdinalBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size = 0;
+
+    void add(int x) {
+        char high = (char) (x >>> 16);
+        int i = findKey(high);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) x);
+            return;
+        }
+        int at = -i - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            containers = Arrays.copyOf(containers, size << 1);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = high;
+        containers[at] = new ArrayContainer().add((char) x);
+        size++;
+    }
+
+    void remove(int x) {
+        int i = findKey((char) (x >>> 16));
+        if (i < 0) {
+            return;
+        }
+        Container c = containers[i].remove((char) x);
+        if (c.cardinality() == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            size--;
+            containers[size] = null;
+        } else {
+            containers[i] = c;
+        }
+    }
+
+    boolean contains(int x) {
+        int i = findKey((char) (x >>> 16));
+        return i >= 0 && containers[i].contains((char) x);
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].cardinality();
+        }
+        return total;
+    }
+
+    /**
+     * Giao của 2 bitmap (bitmap mới, không sửa toán hạng)
+     */
+    OrdinalBitmap and(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container c = containers[i].and(other.containers[j]);
+                if (c.cardinality() > 0) {
+                    result.append(keys[i], c);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hợp của 2 bitmap (bitmap mới, không sửa toán hạng)
+     */
+    OrdinalBitmap or(OrdinalBitmap other) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Các ordinal theo thứ tự tăng dần
+     */
+    int[] toArray() {
+        int[] out = new int[cardinality()];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            n = containers[i].writeTo(out, n, keys[i] << 16);
+        }
+        return out;
+    }
+
+    private void append(char key, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            containers = Arrays.copyOf(containers, size << 1);
+        }
+        keys[size] = key;
+        containers[size] = c;
+        size++;
+    }
+
+    private int findKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private abstract static class Container {
+        abstract Container add(char x);
+
+        abstract Container remove(char x);
+
+        abstract boolean contains(char x);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract int writeTo(int[] out, int offset, int high);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] content;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] content, int cardinality) {
+            this.content = content;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, x);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality >= ARRAY_MAX) {
+                return toBitmap().add(x);
+            }
+            int at = -i - 1;
+            if (cardinality == content.length) {
+                content = Arrays.copyOf(content, Math.min(ARRAY_MAX, Math.max(4, cardinality << 1)));
+            }
+            System.arraycopy(content, at, content, at + 1, cardinality - at);
+            content[at] = x;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char x) {
+            int i = Arrays.binarySearch(content, 0, cardinality, x);
+            if (i >= 0) {
+                System.arraycopy(content, i + 1, content, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char x) {
+            return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] out = new char[cardinality];
+            int n = 0;
+            if (other instanceof ArrayContainer a) {
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < a.cardinality) {
+                    if (content[i] < a.content[j]) {
+                        i++;
+                    } else if (content[i] > a.content[j]) {
+                        j++;
+                    } else {
+                        out[n++] = content[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(content[i])) {
+                        out[n++] = content[i];
+                    }
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer a = (ArrayContainer) other;
+            if (cardinality + a.cardinality > ARRAY_MAX) {
+                return toBitmap().or(a);
+            }
+            char[] out = new char[cardinality + a.cardinality];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < a.cardinality) {
+                if (j >= a.cardinality || (i < cardinality && content[i] < a.content[j])) {
+                    out[n++] = content[i++];
+                } else if (i >= cardinality || content[i] > a.content[j]) {
+                    out[n++] = a.content[j++];
+                } else {
+                    out[n++] = content[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(content, Math.max(cardinality, 4)), cardinality);
+        }
+
+        @Override
+        int writeTo(int[] out, int offset, int high) {
+            for (int i = 0; i < cardinality; i++) {
+                out[offset++] = high | content[i];
+            }
+            return offset;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                b.add(content[i]);
+            }
+            return b;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char x) {
+            long before = words[x >>> 6];
+            long after = before | (1L << x);
+            if (before != after) {
+                words[x >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char x) {
+            long before = words[x >>> 6];
+            long after = before & ~(1L << x);
+            if (before != after) {
+                words[x >>> 6] = after;
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer b = (BitmapContainer) other;
+            long[] out = new long[1024];
+            int card = 0;
+            for (int i = 0; i < 1024; i++) {
+                out[i] = words[i] & b.words[i];
+                card += Long.bitCount(out[i]);
+            }
+            BitmapContainer result = new BitmapContainer(out, card);
+            return card <= ARRAY_MAX ? result.toArrayContainer() : result;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] out = words.clone();
+            int card = cardinality;
+            if (other instanceof ArrayContainer a) {
+                for (int i = 0; i < a.cardinality; i++) {
+                    char x = a.content[i];
+                    if ((out[x >>> 6] & (1L << x)) == 0) {
+                        out[x >>> 6] |= 1L << x;
+                        card++;
+                    }
+                }
+            } else {
+                BitmapContainer b = (BitmapContainer) other;
+                card = 0;
+                for (int i = 0; i < 1024; i++) {
+                    out[i] |= b.words[i];
+                    card += Long.bitCount(out[i]);
+                }
+            }
+            return new BitmapContainer(out, card);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        int writeTo(int[] out, int offset, int high) {
+            for (int i = 0; i < 1024; i++) {
+                long w = words[i];
+                while (w != 0) {
+                    out[offset++] = high | (i << 6) | Long.numberOfTrailingZeros(w);
+                    w &= w - 1;
+                }
+            }
+            return offset;
+        }
+
+        private ArrayContainer toArrayContainer() {
+            char[] out = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < 1024; i++) {
+                long w = words[i];
+                while (w != 0) {
+                    out[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+    }
+}
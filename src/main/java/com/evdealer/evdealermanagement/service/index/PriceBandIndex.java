@@ -0,0 +1,252 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index giá đã sắp xếp cho gợi ý "cùng tầm giá" (suggestProducts).
+ * Mỗi brand xe / loại pin giữ một mảng long[] giá (VND) tăng dần và mảng ID song song;
+ * tra một khoảng giá là 2 lần tìm nhị phân thay vì query không giới hạn.
+ */
+@Slf4j
+@Component
+public class PriceBandIndex implements ProductIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PriceList> byVehicleBrand = new HashMap<>();
+    private final Map<String, PriceList> byBatteryType = new HashMap<>();
+    // productId -> danh sách đang chứa nó, để gỡ khi đổi giá / brand / trạng thái
+    private final Map<String, PriceList> ownerById = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Xe ACTIVE cùng brand có giá trong [minVnd, maxVnd], tối đa limit tin gần targetVnd nhất, giá tăng dần
+     */
+    public List<String> vehiclesInBand(String brandId, long targetVnd, long minVnd, long maxVnd,
+                                       String excludeId, int limit) {
+        return band(byVehicleBrand, brandId, targetVnd, minVnd, maxVnd, excludeId, limit);
+    }
+
+    /**
+     * Pin ACTIVE cùng loại có giá trong [minVnd, maxVnd], tối đa limit tin gần targetVnd nhất, giá tăng dần
+     */
+    public List<String> batteriesInBand(String batteryTypeId, long targetVnd, long minVnd, long maxVnd,
+                                        String excludeId, int limit) {
+        return band(byBatteryType, batteryTypeId, targetVnd, minVnd, maxVnd, excludeId, limit);
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        Map<String, List<Product>> vehicles = new HashMap<>();
+        Map<String, List<Product>> batteries = new HashMap<>();
+        for (Product p : activeProducts) {
+            if (p.getPrice() == null) continue;
+            String vehicleBrand = vehicleBrandOf(p);
+            String batteryType = batteryTypeOf(p);
+            if (vehicleBrand != null) {
+                vehicles.computeIfAbsent(vehicleBrand, k -> new ArrayList<>()).add(p);
+            } else if (batteryType != null) {
+                batteries.computeIfAbsent(batteryType, k -> new ArrayList<>()).add(p);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            byVehicleBrand.clear();
+            byBatteryType.clear();
+            ownerById.clear();
+            vehicles.forEach((key, products) -> byVehicleBrand.put(key, bulkLoad(products)));
+            batteries.forEach((key, products) -> byBatteryType.put(key, bulkLoad(products)));
+            ready = true;
+            log.info("Price band index rebuilt: {} products, {} vehicle brands, {} battery types",
+                    ownerById.size(), byVehicleBrand.size(), byBatteryType.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            if (product.getPrice() == null) {
+                return;
+            }
+            String vehicleBrand = vehicleBrandOf(product);
+            String batteryType = batteryTypeOf(product);
+            PriceList target = null;
+            if (vehicleBrand != null) {
+                target = byVehicleBrand.computeIfAbsent(vehicleBrand, k -> new PriceList(8));
+            } else if (batteryType != null) {
+                target = byBatteryType.computeIfAbsent(batteryType, k -> new PriceList(8));
+            }
+            if (target != null) {
+                target.insert(product.getPrice().longValue(), product.getId());
+                ownerById.put(product.getId(), target);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<String> band(Map<String, PriceList> lists, String key, long targetVnd, long minVnd, long maxVnd,
+                              String excludeId, int limit) {
+        if (key == null || limit <= 0 || minVnd > maxVnd) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            PriceList list = lists.get(key);
+            return list == null ? List.of() : list.nearest(targetVnd, minVnd, maxVnd, excludeId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String productId) {
+        PriceList owner = ownerById.remove(productId);
+        if (owner != null) {
+            owner.delete(productId);
+        }
+    }
+
+    private PriceList bulkLoad(List<Product> products) {
+        products.sort(Comparator.comparing(Product::getPrice).thenComparing(Product::getId));
+        PriceList list = new PriceList(products.size());
+        for (Product p : products) {
+            list.append(p.getPrice().longValue(), p.getId());
+            ownerById.put(p.getId(), list);
+        }
+        return list;
+    }
+
+    private static String vehicleBrandOf(Product p) {
+        return p.getVehicleDetails() != null && p.getVehicleDetails().getBrand() != null
+                ? p.getVehicleDetails().getBrand().getId() : null;
+    }
+
+    private static String batteryTypeOf(Product p) {
+        return p.getBatteryDetails() != null && p.getBatteryDetails().getBatteryType() != null
+                ? p.getBatteryDetails().getBatteryType().getId() : null;
+    }
+
+    /**
+     * Cặp mảng (giá, ID) sắp theo giá tăng dần, hoà giá thì theo ID
+     */
+    private static final class PriceList {
+        private long[] prices;
+        private String[] ids;
+        private int size = 0;
+
+        PriceList(int capacity) {
+            prices = new long[Math.max(capacity, 8)];
+            ids = new String[prices.length];
+        }
+
+        void append(long price, String id) {
+            ensureCapacity();
+            prices[size] = price;
+            ids[size] = id;
+            size++;
+        }
+
+        void insert(long price, String id) {
+            ensureCapacity();
+            int at = lowerBound(price);
+            while (at < size && prices[at] == price && ids[at].compareTo(id) < 0) {
+                at++;
+            }
+            System.arraycopy(prices, at, prices, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            prices[at] = price;
+            ids[at] = id;
+            size++;
+        }
+
+        void delete(String id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i].equals(id)) {
+                    System.arraycopy(prices, i + 1, prices, i, size - i - 1);
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    ids[size] = null;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Chọn tối đa limit phần tử trong [minVnd, maxVnd] gần target nhất bằng cách mở rộng 2 phía
+         * từ vị trí target; đoạn được chọn liền nhau nên kết quả vẫn tăng dần theo giá
+         */
+        List<String> nearest(long target, long minVnd, long maxVnd, String excludeId, int limit) {
+            int lo = lowerBound(minVnd);
+            int hi = lowerBound(maxVnd == Long.MAX_VALUE ? maxVnd : maxVnd + 1);
+            int center = Math.max(lo, Math.min(hi, lowerBound(target)));
+
+            int left = center - 1;
+            int right = center;
+            int taken = 0;
+            while (taken < limit && (left >= lo || right < hi)) {
+                boolean takeLeft = right >= hi
+                        || (left >= lo && target - prices[left] <= prices[right] - target);
+                int pick = takeLeft ? left-- : right++;
+                if (!ids[pick].equals(excludeId)) {
+                    taken++;
+                }
+            }
+
+            List<String> result = new ArrayList<>(taken);
+            for (int i = left + 1; i < right; i++) {
+                if (!ids[i].equals(excludeId)) {
+                    result.add(ids[i]);
+                }
+            }
+            return result;
+        }
+
+        // Vị trí đầu tiên có giá >= price
+        private int lowerBound(long price) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (prices[mid] < price) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private void ensureCapacity() {
+            if (size == prices.length) {
+                prices = Arrays.copyOf(prices, size << 1);
+                ids = Arrays.copyOf(ids, size << 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Đồng bộ cache giữa các replica qua Redis pub/sub.
+ * Node có thay đổi: sau commit tăng generation L2 của {@link ProductQueryCache} (INCR trong Redis)
+ * rồi phát "{nodeId}|{generation}|{id1},{id2},..." lên kênh {@link #CHANNEL}.
+ * Node khác nhận được thì đồng bộ index, xoá L1 (trang ID, body chi tiết, số đếm xấp xỉ)
+ * và chuyển sang generation mới. Không tự phát lại {@link ProductChangedEvent} để tránh
+ * ghi lại bảng product_search trên mọi node.
+ * Taxonomy đổi thì phát "{nodeId}" lên kênh {@link #TAXONOMY_CHANNEL}; node khác phát lại
+ * {@link TaxonomyChangedEvent#remote()} trong node để mọi listener (ảnh chụp tham chiếu, typeahead,
+ * body chi tiết, vùng L2) tự làm mới như trên node gốc.
+ */
+@Slf4j
+@Component
+public class ProductChangeBroadcaster implements MessageListener {
+
+    public static final String CHANNEL = "product-changed";
+    public static final String TAXONOMY_CHANNEL = "taxonomy-changed";
+    static final String GENERATION_KEY = "pq:generation";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ProductIndexSyncService productIndexSyncService;
+    private final ProductQueryCache productQueryCache;
+    private final ProductDetailResponseCache productDetailResponseCache;
+    private final ApproximateCountCache approximateCountCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ProductChangeBroadcaster(StringRedisTemplate redisTemplate,
+                                    ProductIndexSyncService productIndexSyncService,
+                                    ProductQueryCache productQueryCache,
+                                    ProductDetailResponseCache productDetailResponseCache,
+                                    ApproximateCountCache approximateCountCache,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${product.cache-sync.enabled:true}") boolean enabled) {
+        this.redisTemplate = redisTemplate;
+        this.productIndexSyncService = productIndexSyncService;
+        this.productQueryCache = productQueryCache;
+        this.productDetailResponseCache = productDetailResponseCache;
+        this.approximateCountCache = approximateCountCache;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadGeneration() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String raw = redisTemplate.opsForValue().get(GENERATION_KEY);
+            productQueryCache.advanceGeneration(raw == null ? 0 : Long.parseLong(raw));
+        } catch (RuntimeException e) {
+            log.warn("Cannot read query cache generation from Redis, L2 stays off: {}", e.getMessage());
+        }
+    }
+
+    // Sau ProductIndexSyncService và các cache L1 của node này
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled || event.getProductIds().isEmpty()) {
+            return;
+        }
+        try {
+            Long generation = redisTemplate.opsForValue().increment(GENERATION_KEY);
+            if (generation != null) {
+                productQueryCache.advanceGeneration(generation);
+            }
+            redisTemplate.convertAndSend(CHANNEL,
+                    nodeId + "|" + generation + "|" + String.join(",", event.getProductIds()));
+        } catch (RuntimeException e) {
+            // Node khác tự hết hạn L1 theo TTL và resync định kỳ
+            log.warn("Failed to broadcast change of products {}: {}", event.getProductIds(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaxonomyChanged(TaxonomyChangedEvent event) {
+        if (!enabled || event.isRemote()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(TAXONOMY_CHANNEL, nodeId);
+        } catch (RuntimeException e) {
+            // Node khác nhận thay đổi ở lần resync định kỳ của ảnh chụp tham chiếu / TTL của vùng L2
+            log.warn("Failed to broadcast taxonomy change: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (TAXONOMY_CHANNEL.equals(new String(message.getChannel(), StandardCharsets.UTF_8))) {
+            if (!nodeId.equals(body)) {
+                try {
+                    eventPublisher.publishEvent(TaxonomyChangedEvent.remote());
+                } catch (RuntimeException e) {
+                    log.error("Failed to apply remote taxonomy change", e);
+                }
+            }
+            return;
+        }
+        String[] parts = body.split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        List<String> productIds = parts[2].isEmpty() ? List.of() : Arrays.asList(parts[2].split(","));
+        try {
+            if (!productIds.isEmpty()) {
+                productIndexSyncService.onProductChanged(new ProductChangedEvent(productIds));
+                productDetailResponseCache.evict(productIds);
+            }
+            if (!"null".equals(parts[1])) {
+                productQueryCache.advanceGeneration(Long.parseLong(parts[1]));
+            }
+            productQueryCache.invalidateAll();
+            approximateCountCache.invalidateAll();
+        } catch (RuntimeException e) {
+            log.error("Failed to apply remote change of products {}", productIds, e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Phát ra mỗi khi một hoặc nhiều product đổi trạng thái / giá / thứ tự hiển thị.
+ * Các index trong bộ nhớ được đồng bộ lại sau khi transaction commit.
+ */
+@Getter
+public class ProductChangedEvent {
+
+    private final List<String> productIds;
+
+    public ProductChangedEvent(Collection<String> productIds) {
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public static ProductChangedEvent of(String productId) {
+        return new ProductChangedEvent(List.of(productId));
+    }
+}
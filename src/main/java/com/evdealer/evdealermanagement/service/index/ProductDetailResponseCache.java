@@ -0,0 +1,210 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import com.evdealer.evdealermanagement.dto.product.detail.ProductDetail;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache body JSON của /product/search/{id} dưới dạng byte đã serialize sẵn, cả bản gốc lẫn bản gzip.
+ * isWishlisted là phần duy nhất phụ thuộc người xem nên mỗi product giữ 3 biến thể
+ * (null cho khách, false, true): request chỉ chọn biến thể rồi ghi thẳng byte ra response.
+ * Entry bị xoá khi product đổi ({@link ProductChangedEvent}), khi taxonomy đổi (tên brand/model
+ * nằm trong body) và theo TTL (thông tin người bán đổi ở hồ sơ không phát sự kiện).
+ */
+@Slf4j
+@Component
+public class ProductDetailResponseCache {
+
+    private static final int ANONYMOUS = 0;
+    private static final int NOT_WISHLISTED = 1;
+    private static final int WISHLISTED = 2;
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Tăng mỗi lần có product bị xoá khỏi cache: bản nạp bắt đầu trước đó không được ghi vào
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LinkedHashMap<String, Entry> entries;
+
+    public ProductDetailResponseCache(ObjectMapper objectMapper,
+                                      @Value("${product.detail-cache.max-entries:5000}") int maxEntries,
+                                      @Value("${product.detail-cache.ttl-ms:300000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ProductDetailResponseCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Body đã serialize của product, hoặc nạp bằng loader (null = không tìm thấy, không cache)
+     */
+    public Body get(String productId, Supplier<ProductDetail> loader) {
+        long now = System.currentTimeMillis();
+        long current = version.get();
+        synchronized (entries) {
+            Entry e = entries.get(productId);
+            if (e != null) {
+                if (e.expiresAt > now) {
+                    hits.increment();
+                    return e.body;
+                }
+                entries.remove(productId);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        ProductDetail detail = loader.get();
+        if (detail == null) {
+            return null;
+        }
+        Body body = serialize(detail);
+        synchronized (entries) {
+            if (version.get() == current) {
+                entries.put(productId, new Entry(body, now + ttlMillis));
+            }
+        }
+        return body;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event.getProductIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaxonomyChanged(TaxonomyChangedEvent event) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            evictions.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public void evict(Iterable<String> productIds) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            for (String id : productIds) {
+                if (entries.remove(id) != null) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public CacheStatsResponse getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return CacheStatsResponse.builder()
+                .name("product-detail-bytes")
+                .size(size)
+                .hits(h)
+                .misses(m)
+                .evictions(evictions.sum())
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    private Body serialize(ProductDetail detail) {
+        Boolean original = detail.getIsWishlisted();
+        try {
+            byte[][] identity = new byte[3][];
+            byte[][] gzip = new byte[3][];
+            Boolean[] flags = {null, Boolean.FALSE, Boolean.TRUE};
+            for (int i = 0; i < flags.length; i++) {
+                detail.setIsWishlisted(flags[i]);
+                identity[i] = objectMapper.writeValueAsBytes(detail);
+                gzip[i] = gzip(identity[i]);
+            }
+            return new Body(identity, gzip);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize product " + detail.getId(), e);
+        } finally {
+            detail.setIsWishlisted(original);
+        }
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Các biến thể body của một product; không sửa mảng byte trả về
+     */
+    public static final class Body {
+        private final byte[][] identity;
+        private final byte[][] gzip;
+
+        Body(byte[][] identity, byte[][] gzip) {
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        /**
+         * wishlisted null = khách chưa đăng nhập (isWishlisted: null như trước)
+         */
+        public byte[] identity(Boolean wishlisted) {
+            return identity[variant(wishlisted)];
+        }
+
+        public byte[] gzip(Boolean wishlisted) {
+            return gzip[variant(wishlisted)];
+        }
+
+        private static int variant(Boolean wishlisted) {
+            if (wishlisted == null) {
+                return ANONYMOUS;
+            }
+            return wishlisted ? WISHLISTED : NOT_WISHLISTED;
+        }
+    }
+
+    private static final class Entry {
+        final Body body;
+        final long expiresAt;
+
+        Entry(Body body, long expiresAt) {
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.product.search.FacetCount;
+import com.evdealer.evdealermanagement.dto.product.search.PriceRangeCount;
+import com.evdealer.evdealermanagement.dto.product.search.ProductFacetResponse;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.utils.SearchTextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Snapshot dạng cột của các product ACTIVE để đếm facet cho /product/filter.
+ * Mỗi product chiếm một slot; brand/city/district được mã hoá thành int qua từ điển,
+ * giá lưu bằng long (VND), năm bằng short. Đếm tất cả facet trong một lần duyệt mảng.
+ */
+@Slf4j
+@Component
+public class ProductFacetSnapshot implements ProductIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NONE = -1;
+    private static final int MIN_YEAR = 1950;
+    private static final int MAX_YEAR = 2100;
+
+    // Mốc khoảng giá (VND): <10tr, 10-50tr, 50-100tr, 100-300tr, 300-500tr, 500tr-1 tỷ, 1-2 tỷ, >2 tỷ
+    private static final long[] PRICE_BOUNDS = {
+            10_000_000L, 50_000_000L, 100_000_000L, 300_000_000L,
+            500_000_000L, 1_000_000_000L, 2_000_000_000L
+    };
+
+    private static final int DIM_BRAND = 0;
+    private static final int DIM_CITY = 1;
+    private static final int DIM_DISTRICT = 2;
+    private static final int DIM_YEAR = 3;
+    private static final int DIM_PRICE = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Cột dữ liệu theo slot
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+    private byte[] type = new byte[INITIAL_CAPACITY];
+    private int[] brand = new int[INITIAL_CAPACITY];
+    private int[] city = new int[INITIAL_CAPACITY];
+    private int[] district = new int[INITIAL_CAPACITY];
+    private short[] year = new short[INITIAL_CAPACITY];
+    private long[] price = new long[INITIAL_CAPACITY];
+
+    private int highWater = 0;
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    // brand lọc theo id; city/district lọc theo tên hiển thị
+    private final Dictionary brands = new Dictionary(true);
+    private final Dictionary cities = new Dictionary(false);
+    private final Dictionary districts = new Dictionary(false);
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        lock.writeLock().lock();
+        try {
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, activeProducts.size())) << 1);
+            ids = new String[capacity];
+            live = new boolean[capacity];
+            type = new byte[capacity];
+            brand = new int[capacity];
+            city = new int[capacity];
+            district = new int[capacity];
+            year = new short[capacity];
+            price = new long[capacity];
+            highWater = 0;
+            slotById.clear();
+            freeSlots.clear();
+            brands.clear();
+            cities.clear();
+            districts.clear();
+
+            for (Product product : activeProducts) {
+                write(allocateSlot(product.getId()), product);
+            }
+            ready = true;
+            log.info("Product facet snapshot rebuilt: {} products, {} brands, {} cities",
+                    slotById.size(), brands.size(), cities.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(product.getId());
+            write(slot != null ? slot : allocateSlot(product.getId()), product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(productId);
+            if (slot != null) {
+                live[slot] = false;
+                ids[slot] = null;
+                freeSlots.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Đếm facet dưới bộ lọc hiện tại.
+     *
+     * @param nameMatches ID khớp tên (từ {@link ProductTitleIndex}), null nếu không lọc theo tên
+     */
+    public ProductFacetResponse count(Set<String> nameMatches, Product.ProductType productType, String brandId,
+                                      String cityName, String districtName, BigDecimal minPrice, BigDecimal maxPrice,
+                                      Integer yearFrom, Integer yearTo) {
+        long minVnd = minPrice == null ? Long.MIN_VALUE : minPrice.longValue();
+        long maxVnd = maxPrice == null ? Long.MAX_VALUE : maxPrice.longValue();
+        int minYear = yearFrom == null ? Integer.MIN_VALUE : yearFrom;
+        int maxYear = yearTo == null ? Integer.MAX_VALUE : yearTo;
+        byte typeCode = productType == null ? NONE : (byte) productType.ordinal();
+
+        lock.readLock().lock();
+        try {
+            // Giá trị lọc chưa có trong từ điển -> không product nào khớp nhóm đó
+            int brandCode = isBlank(brandId) ? NONE : brands.codeOrMissing(brandId.trim());
+            int cityCode = isBlank(cityName) ? NONE : cities.codeOrMissing(SearchTextNormalizer.fold(cityName));
+            int districtCode = isBlank(districtName) ? NONE
+                    : districts.codeOrMissing(SearchTextNormalizer.fold(districtName));
+
+            boolean[] nameOk = null;
+            if (nameMatches != null) {
+                nameOk = new boolean[highWater];
+                for (String id : nameMatches) {
+                    Integer slot = slotById.get(id);
+                    if (slot != null) {
+                        nameOk[slot] = true;
+                    }
+                }
+            }
+
+            long[] brandCounts = new long[brands.size()];
+            long[] cityCounts = new long[cities.size()];
+            long[] districtCounts = new long[districts.size()];
+            long[] yearCounts = new long[MAX_YEAR - MIN_YEAR + 1];
+            long[] priceCounts = new long[PRICE_BOUNDS.length + 1];
+            long total = 0;
+
+            for (int i = 0; i < highWater; i++) {
+                if (!live[i]) continue;
+                if (nameOk != null && !nameOk[i]) continue;
+                if (typeCode != NONE && type[i] != typeCode) continue;
+
+                // Đếm số nhóm facet bị trượt; trượt đúng 1 nhóm thì vẫn tính vào nhóm đó
+                int failedDim = NONE;
+                int failures = 0;
+                if (brandCode != NONE && brand[i] != brandCode) {
+                    failedDim = DIM_BRAND;
+                    failures++;
+                }
+                if (cityCode != NONE && city[i] != cityCode) {
+                    failedDim = DIM_CITY;
+                    failures++;
+                }
+                if (districtCode != NONE && district[i] != districtCode) {
+                    failedDim = DIM_DISTRICT;
+                    failures++;
+                }
+                if (failures < 2 && (yearFrom != null || yearTo != null)
+                        && (year[i] == 0 || year[i] < minYear || year[i] > maxYear)) {
+                    failedDim = DIM_YEAR;
+                    failures++;
+                }
+                if (failures < 2 && (minPrice != null || maxPrice != null)
+                        && (price[i] < 0 || price[i] < minVnd || price[i] > maxVnd)) {
+                    failedDim = DIM_PRICE;
+                    failures++;
+                }
+                if (failures > 1) continue;
+
+                if (failures == 0) total++;
+                if ((failures == 0 || failedDim == DIM_BRAND) && brand[i] != NONE) brandCounts[brand[i]]++;
+                if ((failures == 0 || failedDim == DIM_CITY) && city[i] != NONE) cityCounts[city[i]]++;
+                if ((failures == 0 || failedDim == DIM_DISTRICT) && district[i] != NONE) districtCounts[district[i]]++;
+                if ((failures == 0 || failedDim == DIM_YEAR) && year[i] != 0) yearCounts[year[i] - MIN_YEAR]++;
+                if ((failures == 0 || failedDim == DIM_PRICE) && price[i] >= 0) priceCounts[priceBucket(price[i])]++;
+            }
+
+            return ProductFacetResponse.builder()
+                    .total(total)
+                    .brands(brands.toFacets(brandCounts))
+                    .cities(cities.toFacets(cityCounts))
+                    .districts(districts.toFacets(districtCounts))
+                    .years(toYearFacets(yearCounts))
+                    .priceRanges(toPriceRanges(priceCounts))
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int allocateSlot(String productId) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+        } else {
+            if (highWater == ids.length) {
+                grow();
+            }
+            slot = highWater++;
+        }
+        slotById.put(productId, slot);
+        return slot;
+    }
+
+    private void write(int slot, Product p) {
+        ids[slot] = p.getId();
+        live[slot] = true;
+        type[slot] = p.getType() == null ? NONE : (byte) p.getType().ordinal();
+        brand[slot] = brands.codeOf(brandIdOf(p), brandNameOf(p));
+        city[slot] = cities.codeOf(SearchTextNormalizer.fold(p.getCity()), trimOrNull(p.getCity()));
+        district[slot] = districts.codeOf(SearchTextNormalizer.fold(p.getDistrict()), trimOrNull(p.getDistrict()));
+        Short y = p.getManufactureYear();
+        year[slot] = y != null && y >= MIN_YEAR && y <= MAX_YEAR ? y.shortValue() : (short) 0;
+        price[slot] = p.getPrice() == null ? NONE : p.getPrice().longValue();
+    }
+
+    private void grow() {
+        int capacity = ids.length << 1;
+        ids = Arrays.copyOf(ids, capacity);
+        live = Arrays.copyOf(live, capacity);
+        type = Arrays.copyOf(type, capacity);
+        brand = Arrays.copyOf(brand, capacity);
+        city = Arrays.copyOf(city, capacity);
+        district = Arrays.copyOf(district, capacity);
+        year = Arrays.copyOf(year, capacity);
+        price = Arrays.copyOf(price, capacity);
+    }
+
+    private static String brandIdOf(Product p) {
+        if (p.getVehicleDetails() != null && p.getVehicleDetails().getBrand() != null) {
+            return p.getVehicleDetails().getBrand().getId();
+        }
+        if (p.getBatteryDetails() != null && p.getBatteryDetails().getBrand() != null) {
+            return p.getBatteryDetails().getBrand().getId();
+        }
+        return null;
+    }
+
+    private static String brandNameOf(Product p) {
+        if (p.getVehicleDetails() != null && p.getVehicleDetails().getBrand() != null) {
+            return p.getVehicleDetails().getBrand().getName();
+        }
+        if (p.getBatteryDetails() != null && p.getBatteryDetails().getBrand() != null) {
+            return p.getBatteryDetails().getBrand().getName();
+        }
+        return null;
+    }
+
+    private static int priceBucket(long vnd) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && vnd >= PRICE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static List<FacetCount> toYearFacets(long[] counts) {
+        List<FacetCount> result = new ArrayList<>();
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                String y = String.valueOf(MIN_YEAR + i);
+                result.add(new FacetCount(y, y, counts[i]));
+            }
+        }
+        return result;
+    }
+
+    private static List<PriceRangeCount> toPriceRanges(long[] counts) {
+        List<PriceRangeCount> result = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.add(PriceRangeCount.builder()
+                        .minPrice(BigDecimal.valueOf(i == 0 ? 0 : PRICE_BOUNDS[i - 1]))
+                        .maxPrice(i < PRICE_BOUNDS.length ? BigDecimal.valueOf(PRICE_BOUNDS[i]) : null)
+                        .count(counts[i])
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    private static String trimOrNull(String s) {
+        return isBlank(s) ? null : s.trim();
+    }
+
+    /**
+     * Từ điển key -> mã int liên tục. Mã không bị thu hồi khi product rời snapshot
+     * (số brand/thành phố nhỏ), lần rebuild kế tiếp sẽ dọn lại.
+     */
+    private static class Dictionary {
+        private static final int MISSING = Integer.MIN_VALUE;
+
+        private final boolean keyAsValue;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+
+        Dictionary(boolean keyAsValue) {
+            this.keyAsValue = keyAsValue;
+        }
+
+        int codeOf(String key, String label) {
+            if (key == null || key.isEmpty()) {
+                return NONE;
+            }
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = keys.size();
+                codes.put(key, code);
+                keys.add(key);
+                labels.add(label != null ? label : key);
+            }
+            return code;
+        }
+
+        int codeOrMissing(String key) {
+            return codes.getOrDefault(key, MISSING);
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        void clear() {
+            codes.clear();
+            keys.clear();
+            labels.clear();
+        }
+
+        List<FacetCount> toFacets(long[] counts) {
+            List<FacetCount> result = new ArrayList<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    String value = keyAsValue ? keys.get(code) : labels.get(code);
+                    result.add(new FacetCount(value, labels.get(code), counts[code]));
+                }
+            }
+            result.sort(Comparator.comparingLong(FacetCount::getCount).reversed()
+                    .thenComparing(FacetCount::getLabel));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+
+import java.util.List;
+
+/**
+ * Index trong bộ nhớ trên tập product ACTIVE, được {@link ProductIndexSyncService} giữ đồng bộ.
+ */
+public interface ProductIndex {
+
+    /**
+     * Nạp lại toàn bộ index từ danh sách product ACTIVE hiện tại
+     */
+    void rebuild(List<Product> activeProducts);
+
+    /**
+     * Thêm mới hoặc cập nhật một product ACTIVE
+     */
+    void upsert(Product product);
+
+    /**
+     * Bỏ product khỏi index (không còn ACTIVE hoặc đã bị xoá)
+     */
+    void remove(String productId);
+}
@@ -0,0 +1,150 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Giữ các {@link ProductIndex} khớp với DB:
+ * - nạp toàn bộ product ACTIVE khi app khởi động và định kỳ (phòng lệch dữ liệu),
+ * - cập nhật từng phần khi nhận {@link ProductChangedEvent} sau commit.
+ * Thay đổi commit trong lúc đang nạp lại toàn bộ có thể bị ảnh chụp cũ ghi đè, nên id của chúng
+ * được ghi lại và đồng bộ lại (đọc mới từ DB) ngay sau khi các index đã nạp xong.
+ */
+@Slf4j
+@Service
+public class ProductIndexSyncService {
+
+    private final ProductRepository productRepository;
+    private final List<ProductIndex> indexes;
+    private final ProductQueryCache productQueryCache;
+    // Mỗi lần dùng là một transaction đọc mới (không dùng lại snapshot của lần nạp toàn bộ)
+    private final TransactionTemplate readTransaction;
+
+    private final Object rebuildLock = new Object();
+    private volatile boolean rebuilding;
+    private final Set<String> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    public ProductIndexSyncService(ProductRepository productRepository,
+                                   List<ProductIndex> indexes,
+                                   ProductQueryCache productQueryCache,
+                                   PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.indexes = indexes;
+        this.productQueryCache = productQueryCache;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildAll();
+    }
+
+    @Scheduled(fixedDelayString = "${product.index.resync-interval-ms:900000}",
+            initialDelayString = "${product.index.resync-interval-ms:900000}")
+    public void rebuildAll() {
+        synchronized (rebuildLock) {
+            // Bật trước khi đọc DB: mọi thay đổi commit sau thời điểm này đều được ghi lại
+            changedDuringRebuild.clear();
+            rebuilding = true;
+            try {
+                readTransaction.executeWithoutResult(status -> {
+                    long start = System.currentTimeMillis();
+                    List<Product> active = productRepository.findAllForIndex(Product.Status.ACTIVE);
+                    for (ProductIndex index : indexes) {
+                        try {
+                            index.rebuild(active);
+                        } catch (Exception e) {
+                            log.error("Failed to rebuild index {}", index.getClass().getSimpleName(), e);
+                        }
+                    }
+                    log.info("Rebuilt {} product indexes from {} ACTIVE products in {} ms",
+                            indexes.size(), active.size(), System.currentTimeMillis() - start);
+                });
+            } catch (Exception e) {
+                log.error("Failed to load ACTIVE products for index rebuild", e);
+            } finally {
+                rebuilding = false;
+            }
+
+            // Phát lại các thay đổi xen vào lúc nạp, đọc trạng thái mới nhất từ DB
+            List<String> replay = new ArrayList<>(changedDuringRebuild);
+            changedDuringRebuild.removeAll(replay);
+            if (!replay.isEmpty()) {
+                try {
+                    readTransaction.executeWithoutResult(status -> apply(replay));
+                    log.debug("Replayed {} products changed during index rebuild", replay.size());
+                } catch (Exception e) {
+                    log.error("Failed to replay products changed during index rebuild {}", replay, e);
+                }
+            }
+            // Index vừa được nạp lại có thể lệch so với các trang ID đang cache
+            productQueryCache.invalidateAll();
+        }
+    }
+
+    // Trước ProductQueryCache: cache chỉ được tăng version khi index đã cập nhật xong
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductIds().isEmpty()) {
+            return;
+        }
+        if (rebuilding) {
+            changedDuringRebuild.addAll(event.getProductIds());
+        }
+        apply(event.getProductIds());
+    }
+
+    private void apply(Collection<String> productIds) {
+        try {
+            Map<String, Product> loaded = productRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+            for (String productId : productIds) {
+                Product product = loaded.get(productId);
+                boolean active = product != null && product.getStatus() == Product.Status.ACTIVE;
+                for (ProductIndex index : indexes) {
+                    try {
+                        if (active) {
+                            index.upsert(product);
+                        } else {
+                            index.remove(productId);
+                        }
+                    } catch (Exception e) {
+                        log.error("Failed to sync product {} into {}", productId,
+                                index.getClass().getSimpleName(), e);
+                    }
+                }
+            }
+            log.debug("Synced {} changed products into indexes", productIds.size());
+        } catch (Exception e) {
+            log.error("Failed to sync changed products {}", productIds, e);
+        }
+    }
+}
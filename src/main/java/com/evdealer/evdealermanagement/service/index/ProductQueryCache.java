@@ -0,0 +1,263 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.common.CacheStatsResponse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả truy vấn danh sách (filterProducts, getProductByName): chỉ lưu trang ID + tổng,
+ * chi tiết product vẫn được nạp mới mỗi request.
+ * Mỗi entry gắn version toàn cục lúc bắt đầu truy vấn; mọi {@link ProductChangedEvent}
+ * (duyệt, ẩn, bán, hết hạn, gia hạn...) tăng version nên các entry cũ tự mất hiệu lực.
+ * Giới hạn bằng LRU theo số entry và TTL.
+ * <p>
+ * Hai tầng: L1 là map trong bộ nhớ của node, L2 là Redis dùng chung giữa các replica
+ * (key "pq:{generation}:{key}", có TTL). Generation là bộ đếm trong Redis, được
+ * {@link ProductChangeBroadcaster} tăng sau mỗi thay đổi và phát cho các node khác qua pub/sub,
+ * nên entry L2 của generation cũ không bao giờ được đọc lại. Redis lỗi thì chỉ dùng L1.
+ */
+@Slf4j
+@Component
+public class ProductQueryCache {
+
+    private static final String L2_PREFIX = "pq:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final boolean l2Enabled;
+    private final Duration l2Ttl;
+
+    private final AtomicLong version = new AtomicLong();
+    // Generation dùng chung của L2; -1 = chưa đọc được từ Redis, bỏ qua L2
+    private final AtomicLong generation = new AtomicLong(-1);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder l2Errors = new LongAdder();
+    private final LinkedHashMap<String, Entry> entries;
+
+    public ProductQueryCache(StringRedisTemplate redisTemplate,
+                             @Value("${product.query-cache.max-entries:10000}") int maxEntries,
+                             @Value("${product.query-cache.ttl-ms:60000}") long ttlMillis,
+                             @Value("${product.query-cache.redis.enabled:true}") boolean l2Enabled,
+                             @Value("${product.query-cache.redis.ttl-ms:120000}") long l2TtlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.l2Enabled = l2Enabled;
+        this.l2Ttl = Duration.ofMillis(l2TtlMillis);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ProductQueryCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Trả trang ID đã cache cho key, hoặc chạy loader rồi cache kết quả.
+     * Version được chụp trước khi chạy loader: nếu có thay đổi xen vào, entry sinh ra đã cũ ngay.
+     * L1 miss thì thử L2 trước khi chạy loader.
+     */
+    public IdPage getOrLoad(String key, Supplier<IdPage> loader) {
+        long now = System.currentTimeMillis();
+        long current = version.get();
+        long gen = generation.get();
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (e.version == current && e.expiresAt > now) {
+                    hits.increment();
+                    return e.page;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        IdPage page = readL2(gen, key);
+        boolean fromL2 = page != null;
+        if (!fromL2) {
+            page = loader.get();
+        }
+        if (page != null) {
+            synchronized (entries) {
+                entries.put(key, new Entry(page, current, now + ttlMillis));
+            }
+            if (!fromL2) {
+                writeL2(gen, key, page);
+            }
+        }
+        return page;
+    }
+
+    // Chạy sau ProductIndexSyncService để request kế tiếp không đọc index cũ rồi cache lại với version mới
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Chuyển sang generation L2 mới (nhận từ Redis INCR hoặc pub/sub), không bao giờ lùi lại
+     */
+    public void advanceGeneration(long newGeneration) {
+        generation.accumulateAndGet(newGeneration, Math::max);
+    }
+
+    public CacheStatsResponse getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return CacheStatsResponse.builder()
+                .name("product-query")
+                .size(size)
+                .hits(h)
+                .misses(m)
+                .evictions(evictions.sum())
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    /**
+     * Thống kê tầng Redis: chỉ tính các lần L1 miss
+     */
+    public CacheStatsResponse getL2Stats() {
+        long h = l2Hits.sum();
+        long m = l2Misses.sum();
+        return CacheStatsResponse.builder()
+                .name("product-query-redis")
+                .hits(h)
+                .misses(m)
+                .hitRatio(h + m == 0 ? 0 : (double) h / (h + m))
+                .errors(l2Errors.sum())
+                .build();
+    }
+
+    private IdPage readL2(long gen, String key) {
+        if (!l2Enabled || gen < 0) {
+            return null;
+        }
+        try {
+            String raw = redisTemplate.opsForValue().get(L2_PREFIX + gen + ":" + key);
+            if (raw != null) {
+                l2Hits.increment();
+                return decode(raw);
+            }
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            log.debug("Redis L2 read failed for query cache: {}", e.getMessage());
+        }
+        l2Misses.increment();
+        return null;
+    }
+
+    // Ghi theo generation chụp trước loader: có thay đổi xen vào thì entry nằm ở generation cũ, không ai đọc
+    private void writeL2(long gen, String key, IdPage page) {
+        if (!l2Enabled || gen < 0) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(L2_PREFIX + gen + ":" + key, encode(page), l2Ttl);
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            log.debug("Redis L2 write failed for query cache: {}", e.getMessage());
+        }
+    }
+
+    // "{total}|{hasNext}|{id1},{id2},..." - id là UUID nên không chứa ',' hay '|'
+    private static String encode(IdPage page) {
+        return page.total + "|" + (page.hasNext ? 1 : 0) + "|" + String.join(",", page.ids);
+    }
+
+    private static IdPage decode(String raw) {
+        String[] parts = raw.split("\\|", 3);
+        List<String> ids = parts[2].isEmpty() ? List.of() : Arrays.asList(parts[2].split(","));
+        return new IdPage(List.copyOf(ids), Long.parseLong(parts[0]), "1".equals(parts[1]));
+    }
+
+    /**
+     * Ghép các phần của bộ lọc thành key (null = rỗng, BigDecimal bỏ số 0 thừa)
+     */
+    public static String key(Object... parts) {
+        StringBuilder sb = new StringBuilder(64);
+        for (Object part : parts) {
+            if (part instanceof BigDecimal d) {
+                sb.append(d.stripTrailingZeros().toPlainString());
+            } else if (part != null) {
+                sb.append(part);
+            }
+            sb.append('\u001F');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Một trang ID; total = -1 ở chế độ cursor và count=false (không đếm)
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class IdPage {
+        private final List<String> ids;
+        private final long total;
+        // chỉ dùng ở chế độ count=false
+        private final boolean hasNext;
+
+        public static IdPage cursor(List<String> ids) {
+            return new IdPage(List.copyOf(ids), -1, false);
+        }
+
+        public static IdPage slice(List<String> ids, boolean hasNext) {
+            return new IdPage(List.copyOf(ids), -1, hasNext);
+        }
+
+        public static IdPage of(List<String> ids, long total) {
+            return new IdPage(List.copyOf(ids), total, false);
+        }
+    }
+
+    private static final class Entry {
+        final IdPage page;
+        final long version;
+        final long expiresAt;
+
+        Entry(IdPage page, long version, long expiresAt) {
+            this.page = page;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.product.ProductSearch;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleDetails;
+import com.evdealer.evdealermanagement.repository.PostPaymentRepository;
+import com.evdealer.evdealermanagement.repository.ProductRepository;
+import com.evdealer.evdealermanagement.repository.ProductSearchRepository;
+import com.evdealer.evdealermanagement.utils.SearchTextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Giữ bảng product_search khớp với products:
+ * - nhận {@link ProductChangedEvent} ngay trước khi commit và ghi lại các dòng liên quan trong
+ *   cùng transaction (lỗi ở đây rollback luôn thay đổi của product),
+ * - đối chiếu toàn bộ khi khởi động và định kỳ để sửa lệch.
+ * Việc đối chiếu chỉ chạy trên một node mỗi lần (khoá Redis {@link #LOCK_KEY}): đọc products và bảng
+ * hiện có, tìm các dòng thiếu/thừa/khác rồi ghi lại từng lô nhỏ trong transaction ngắn, mỗi lô đọc lại
+ * product mới nhất nên không ghi đè thay đổi vừa commit. Không còn xoá toàn bảng.
+ * Bảng chỉ được dùng để đọc sau khi đã được dựng thành công ít nhất một lần ({@link #isReady()}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchProjection {
+
+    private static final int ID_CHUNK = 1000;
+    static final String LOCK_KEY = "product-search:rebuild-lock";
+    // Có mặt = bảng đã được một node dựng xong (node khác dùng để bật ready khi không giữ khoá)
+    static final String BUILT_KEY = "product-search:built";
+    private static final DefaultRedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ProductRepository productRepository;
+    private final ProductSearchRepository productSearchRepository;
+    private final PostPaymentRepository postPaymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductQueryCache productQueryCache;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${product.search.rebuild-batch-size:200}")
+    private int batchSize;
+
+    @Value("${product.search.rebuild-lock-ms:600000}")
+    private long lockMillis;
+
+    @Value("${product.search.resync-interval-ms:3600000}")
+    private long resyncMillis;
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${product.search.resync-interval-ms:3600000}",
+            initialDelayString = "${product.search.resync-interval-ms:3600000}")
+    public void rebuild() {
+        String lockToken = UUID.randomUUID().toString();
+        Boolean locked = tryLock(lockToken);
+        if (Boolean.FALSE.equals(locked)) {
+            // Node khác đang đối chiếu; bảng đã từng được dựng thì node này đọc được luôn
+            if (!ready && isBuiltElsewhere()) {
+                ready = true;
+                log.info("Product search table is maintained by another node, using it");
+            }
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            // Dùng TransactionTemplate để lỗi (vd. bảng chưa tạo) chỉ bị log, không làm hỏng lúc khởi động
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            List<String> stale = readOnly.execute(status -> findStaleIds());
+
+            int written = 0;
+            for (int i = 0; i < stale.size(); i += batchSize) {
+                List<String> chunk = stale.subList(i, Math.min(i + batchSize, stale.size()));
+                written += transactionTemplate.execute(status -> project(chunk,
+                        productRepository.findAllForIndexByIdIn(chunk)));
+            }
+            ready = true;
+            markBuilt();
+            if (!stale.isEmpty()) {
+                productQueryCache.invalidateAll();
+            }
+            log.info("Product search table reconciled: {} stale ids, {} rows written in {} ms",
+                    stale.size(), written, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to rebuild product_search table", e);
+        } finally {
+            if (Boolean.TRUE.equals(locked)) {
+                releaseLock(lockToken);
+            }
+        }
+    }
+
+    /**
+     * Id cần ghi lại: product ACTIVE chưa có dòng hoặc dòng khác dữ liệu, và dòng của product không còn ACTIVE
+     */
+    private List<String> findStaleIds() {
+        List<Product> active = productRepository.findAllForIndex(Product.Status.ACTIVE);
+        Map<String, String> packageCodes = loadPackageCodes(active.stream().map(Product::getId).toList());
+        Map<String, ProductSearch> existing = new HashMap<>();
+        for (ProductSearch row : productSearchRepository.findAll()) {
+            existing.put(row.getId(), row);
+        }
+
+        List<String> stale = new ArrayList<>();
+        for (Product p : active) {
+            ProductSearch current = existing.remove(p.getId());
+            if (current == null || !sameContent(current, toRow(p, packageCodes.get(p.getId())))) {
+                stale.add(p.getId());
+            }
+        }
+        // Còn lại trong existing = không còn ACTIVE
+        stale.addAll(existing.keySet());
+        return stale;
+    }
+
+    // BEFORE_COMMIT đã chạy trong transaction của bên phát; không có transaction (fallbackExecution) thì tự mở
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!ready || event.getProductIds().isEmpty()) {
+            // Chưa nạp được lần nào (vd. bảng chưa tạo) -> filter vẫn đọc từ products, lần rebuild sau sẽ bù
+            return;
+        }
+        Integer active = TransactionSynchronizationManager.isActualTransactionActive()
+                ? project(event.getProductIds(), productRepository.findAllById(event.getProductIds()))
+                : transactionTemplate.execute(status -> project(event.getProductIds(),
+                        productRepository.findAllById(event.getProductIds())));
+        log.debug("Projected {} changed products into product_search ({} active)",
+                event.getProductIds().size(), active);
+    }
+
+    /**
+     * Xoá dòng của các id rồi chèn lại dòng cho những product còn ACTIVE; trả số dòng đã chèn
+     */
+    private int project(Collection<String> productIds, List<Product> products) {
+        List<Product> active = products.stream()
+                .filter(p -> p.getStatus() == Product.Status.ACTIVE)
+                .toList();
+        Map<String, String> packageCodes = loadPackageCodes(active.stream().map(Product::getId).toList());
+
+        productSearchRepository.deleteAllByIdInBatch(productIds);
+        productSearchRepository.saveAll(active.stream()
+                .map(p -> toRow(p, packageCodes.get(p.getId())))
+                .toList());
+        return active.size();
+    }
+
+    // null = Redis lỗi: vẫn đối chiếu (ghi theo lô, không xoá toàn bảng nên chạy trùng chỉ tốn công)
+    private Boolean tryLock(String token) {
+        try {
+            return redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, Duration.ofMillis(lockMillis));
+        } catch (RuntimeException e) {
+            log.warn("Cannot take product_search rebuild lock, rebuilding without it: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void releaseLock(String token) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK, List.of(LOCK_KEY), token);
+        } catch (RuntimeException e) {
+            log.warn("Cannot release product_search rebuild lock (expires by TTL): {}", e.getMessage());
+        }
+    }
+
+    private boolean isBuiltElsewhere() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(BUILT_KEY));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void markBuilt() {
+        try {
+            redisTemplate.opsForValue().set(BUILT_KEY, String.valueOf(System.currentTimeMillis()),
+                    Duration.ofMillis(resyncMillis * 2));
+        } catch (RuntimeException e) {
+            log.debug("Cannot mark product_search as built: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, String> loadPackageCodes(List<String> productIds) {
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < productIds.size(); i += ID_CHUNK) {
+            List<String> chunk = productIds.subList(i, Math.min(i + ID_CHUNK, productIds.size()));
+            for (Object[] row : postPaymentRepository.findLatestPackageCodes(chunk)) {
+                result.put((String) row[0], (String) row[1]);
+            }
+        }
+        return result;
+    }
+
+    private static ProductSearch toRow(Product p, String packageCode) {
+        VehicleDetails v = p.getVehicleDetails();
+        BatteryDetails b = p.getBatteryDetails();
+
+        String brandId = null;
+        if (v != null && v.getBrand() != null) {
+            brandId = v.getBrand().getId();
+        } else if (b != null && b.getBrand() != null) {
+            brandId = b.getBrand().getId();
+        }
+
+        return ProductSearch.builder()
+                .id(p.getId())
+                .type(p.getType())
+                .brandId(brandId)
+                .modelId(v != null && v.getModel() != null ? v.getModel().getId() : null)
+                .batteryTypeId(b != null && b.getBatteryType() != null ? b.getBatteryType().getId() : null)
+                .titleNorm(emptyToNull(SearchTextNormalizer.fold(p.getTitle())))
+                .cityCode(emptyToNull(SearchTextNormalizer.fold(p.getCity())))
+                .districtCode(emptyToNull(SearchTextNormalizer.fold(p.getDistrict())))
+                .price(p.getPrice())
+                .manufactureYear(p.getManufactureYear())
+                .isHot(Boolean.TRUE.equals(p.getIsHot()))
+                .featuredRank((byte) HomepageFeed.packageRank(packageCode))
+                .featuredEndAt(p.getFeaturedEndAt())
+                .createdAt(p.getCreatedAt())
+                .updatedAt(p.getUpdatedAt())
+                .build();
+    }
+
+    // Thời gian so tới giây: cột DATETIME có thể làm tròn phần lẻ
+    private static boolean sameContent(ProductSearch a, ProductSearch b) {
+        return Objects.equals(a.getType(), b.getType())
+                && Objects.equals(a.getBrandId(), b.getBrandId())
+                && Objects.equals(a.getModelId(), b.getModelId())
+                && Objects.equals(a.getBatteryTypeId(), b.getBatteryTypeId())
+                && Objects.equals(a.getTitleNorm(), b.getTitleNorm())
+                && Objects.equals(a.getCityCode(), b.getCityCode())
+                && Objects.equals(a.getDistrictCode(), b.getDistrictCode())
+                && samePrice(a.getPrice(), b.getPrice())
+                && Objects.equals(a.getManufactureYear(), b.getManufactureYear())
+                && Objects.equals(a.getIsHot(), b.getIsHot())
+                && Objects.equals(a.getFeaturedRank(), b.getFeaturedRank())
+                && sameTime(a.getFeaturedEndAt(), b.getFeaturedEndAt())
+                && sameTime(a.getCreatedAt(), b.getCreatedAt())
+                && sameTime(a.getUpdatedAt(), b.getUpdatedAt());
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static boolean sameTime(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b == null
+                : b != null && a.truncatedTo(ChronoUnit.SECONDS).equals(b.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+}
@@ -0,0 +1,250 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.utils.ProductCursor;
+import com.evdealer.evdealermanagement.utils.SearchTextNormalizer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index tiêu đề của các product ACTIVE.
+ * Token được bỏ dấu nên "xe điện" khớp "xe dien"; mỗi token của query khớp theo tiền tố
+ * với một token của tiêu đề. Kết quả sắp theo isHot DESC, updatedAt DESC như API search cũ.
+ */
+@Slf4j
+@Component
+public class ProductTitleIndex implements ProductIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing(Entry::isHot, Comparator.reverseOrder())
+            .thenComparing(Entry::getUpdatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Entry::getId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, Set<String>> postings = new TreeMap<>();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            for (Product product : activeProducts) {
+                add(toEntry(product));
+            }
+            ready = true;
+            log.info("Product title index rebuilt: {} products, {} terms", entries.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            add(toEntry(product));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm product ACTIVE theo tên + bộ lọc phụ, trả về đúng trang ID cần hydrate
+     */
+    public Hits search(String name, String city, BigDecimal minPrice, BigDecimal maxPrice,
+                       Integer yearFrom, Integer yearTo, long offset, int limit) {
+        List<String> tokens = SearchTextNormalizer.tokenize(name);
+        if (tokens.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+        String cityKey = city == null || city.isBlank() ? null : SearchTextNormalizer.fold(city);
+
+        lock.readLock().lock();
+        try {
+            Set<String> candidates = matchAllTokens(tokens);
+            List<Entry> matches = new ArrayList<>(candidates.size());
+            for (String id : candidates) {
+                Entry e = entries.get(id);
+                if (e != null && e.matches(cityKey, minPrice, maxPrice, yearFrom, yearTo)) {
+                    matches.add(e);
+                }
+            }
+            matches.sort(ORDER);
+
+            int from = (int) Math.min(offset, matches.size());
+            int to = Math.min(from + limit, matches.size());
+            List<String> ids = matches.subList(from, to).stream().map(Entry::getId).toList();
+            return new Hits(ids, matches.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Chế độ keyset: trả về tối đa limit ID đứng sau cursor (cùng thứ tự với search), không đếm tổng
+     */
+    public List<String> searchAfter(String name, String city, BigDecimal minPrice, BigDecimal maxPrice,
+                                    Integer yearFrom, Integer yearTo, ProductCursor after, int limit) {
+        List<String> tokens = SearchTextNormalizer.tokenize(name);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String cityKey = city == null || city.isBlank() ? null : SearchTextNormalizer.fold(city);
+        Entry probe = after == null ? null
+                : new Entry(after.getId(), Set.of(), null, null, null, after.isHot(), after.getUpdatedAt());
+
+        lock.readLock().lock();
+        try {
+            List<Entry> matches = new ArrayList<>();
+            for (String id : matchAllTokens(tokens)) {
+                Entry e = entries.get(id);
+                if (e != null && (probe == null || ORDER.compare(e, probe) > 0)
+                        && e.matches(cityKey, minPrice, maxPrice, yearFrom, yearTo)) {
+                    matches.add(e);
+                }
+            }
+            matches.sort(ORDER);
+            return matches.subList(0, Math.min(limit, matches.size())).stream().map(Entry::getId).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tập ID product ACTIVE có tiêu đề (đã bỏ dấu) chứa name như một chuỗi con: cùng quy tắc với
+     * LIKE %name% của /product/filter, dùng cho bộ đếm facet đặt cạnh danh sách đó
+     */
+    public Set<String> containingIds(String name) {
+        String needle = SearchTextNormalizer.fold(name);
+        if (needle.isEmpty()) {
+            return Set.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<String> result = new HashSet<>();
+            for (Entry entry : entries.values()) {
+                if (entry.getTitle().contains(needle)) {
+                    result.add(entry.getId());
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<String> matchAllTokens(List<String> tokens) {
+        Set<String> candidates = null;
+        for (String token : tokens) {
+            Set<String> matched = matchPrefix(token);
+            if (candidates == null) {
+                candidates = matched;
+            } else {
+                candidates.retainAll(matched);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private Set<String> matchPrefix(String token) {
+        Set<String> result = new HashSet<>();
+        for (Set<String> ids : postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.getId(), entry);
+        for (String term : entry.getTerms()) {
+            postings.computeIfAbsent(term, k -> new HashSet<>()).add(entry.getId());
+        }
+    }
+
+    private void removeInternal(String productId) {
+        Entry old = entries.remove(productId);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.getTerms()) {
+            Set<String> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static Entry toEntry(Product p) {
+        return new Entry(
+                p.getId(),
+                new HashSet<>(SearchTextNormalizer.tokenize(p.getTitle())),
+                SearchTextNormalizer.fold(p.getTitle()),
+                SearchTextNormalizer.fold(p.getCity()),
+                p.getPrice(),
+                p.getManufactureYear(),
+                Boolean.TRUE.equals(p.getIsHot()),
+                p.getUpdatedAt());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final String id;
+        private final Set<String> terms;
+        // Tiêu đề đã bỏ dấu, cho tìm chuỗi con
+        private final String title;
+        private final String city;
+        private final BigDecimal price;
+        private final Short year;
+        private final boolean hot;
+        private final LocalDateTime updatedAt;
+
+        boolean matches(String cityKey, BigDecimal minPrice, BigDecimal maxPrice, Integer yearFrom, Integer yearTo) {
+            if (cityKey != null && !cityKey.equals(city)) return false;
+            if (minPrice != null && (price == null || price.compareTo(minPrice) < 0)) return false;
+            if (maxPrice != null && (price == null || price.compareTo(maxPrice) > 0)) return false;
+            if (yearFrom != null && (year == null || year < yearFrom)) return false;
+            if (yearTo != null && (year == null || year > yearTo)) return false;
+            return true;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hits {
+        private final List<String> ids;
+        private final long total;
+    }
+}
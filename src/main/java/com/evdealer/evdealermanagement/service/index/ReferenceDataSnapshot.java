@@ -0,0 +1,291 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.battery.brand.BatteryBrandsResponse;
+import com.evdealer.evdealermanagement.dto.battery.brand.BatteryTypesResponse;
+import com.evdealer.evdealermanagement.dto.brand.BrandItemResponse;
+import com.evdealer.evdealermanagement.dto.common.ReferenceDataResponse;
+import com.evdealer.evdealermanagement.dto.post.packages.PostPackageResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.brand.VehicleBrandsResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.brand.VehicleCategoriesResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.model.VehicleModelResponse;
+import com.evdealer.evdealermanagement.dto.vehicle.model.VehicleModelVersionResponse;
+import com.evdealer.evdealermanagement.entity.battery.BatteryBrands;
+import com.evdealer.evdealermanagement.entity.post.PostPackage;
+import com.evdealer.evdealermanagement.entity.post.PostPackageOption;
+import com.evdealer.evdealermanagement.entity.vehicle.Model;
+import com.evdealer.evdealermanagement.entity.vehicle.ModelVersion;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleBrands;
+import com.evdealer.evdealermanagement.mapper.post.PostPackageMapper;
+import com.evdealer.evdealermanagement.repository.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Ảnh chụp bất biến của dữ liệu tham chiếu: brand/loại/model/version xe, brand/loại pin và gói đăng tin ACTIVE.
+ * Các hàm listAll...Sorted, BrandService, PaymentService.getAllPackages đọc thẳng từ đây thay vì findAll + sort.
+ * Payload JSON và ETag được tính sẵn một lần; ảnh chụp mới được dựng đầy đủ rồi mới thay
+ * (một phép gán volatile) sau khi admin sửa taxonomy ({@link TaxonomyChangedEvent}),
+ * và định kỳ để nhận thay đổi gói đăng tin (chỉ sửa trực tiếp trong DB).
+ */
+@Slf4j
+@Component
+public class ReferenceDataSnapshot {
+
+    private static final Comparator<String> BY_NAME = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
+    private final VehicleCategoryRepository vehicleCategoryRepository;
+    private final VehicleBrandsRepository vehicleBrandsRepository;
+    private final VehicleModelRepository vehicleModelRepository;
+    private final VehicleModelVersionRepository vehicleModelVersionRepository;
+    private final BatteryBrandsRepository batteryBrandsRepository;
+    private final BatteryTypesRepository batteryTypesRepository;
+    private final PostPackageRepository postPackageRepository;
+    private final PostPackageOptionRepository postPackageOptionRepository;
+    // Transaction đọc riêng: rebuild() được gọi cả từ listener AFTER_COMMIT, không được dùng lại
+    // transaction (EntityManager, connection) vừa commit của bên phát
+    private final TransactionTemplate readTransaction;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot current;
+
+    public ReferenceDataSnapshot(VehicleCategoryRepository vehicleCategoryRepository,
+                                 VehicleBrandsRepository vehicleBrandsRepository,
+                                 VehicleModelRepository vehicleModelRepository,
+                                 VehicleModelVersionRepository vehicleModelVersionRepository,
+                                 BatteryBrandsRepository batteryBrandsRepository,
+                                 BatteryTypesRepository batteryTypesRepository,
+                                 PostPackageRepository postPackageRepository,
+                                 PostPackageOptionRepository postPackageOptionRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper) {
+        this.vehicleCategoryRepository = vehicleCategoryRepository;
+        this.vehicleBrandsRepository = vehicleBrandsRepository;
+        this.vehicleModelRepository = vehicleModelRepository;
+        this.vehicleModelVersionRepository = vehicleModelVersionRepository;
+        this.batteryBrandsRepository = batteryBrandsRepository;
+        this.batteryTypesRepository = batteryTypesRepository;
+        this.postPackageRepository = postPackageRepository;
+        this.postPackageOptionRepository = postPackageOptionRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ảnh chụp hiện tại; null nếu chưa dựng được, khi đó caller đọc DB như cũ.
+     * Không dựng trên luồng request: {@link #retryIfMissing()} thử lại ở luồng nền.
+     */
+    public Snapshot current() {
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    // Lần dựng lúc khởi động lỗi (vd. DB chưa sẵn sàng) thì thử lại sớm, không đợi chu kỳ resync
+    @Scheduled(fixedDelayString = "${reference-data.retry-interval-ms:30000}",
+            initialDelayString = "${reference-data.retry-interval-ms:30000}")
+    public void retryIfMissing() {
+        if (current == null) {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaxonomyChanged(TaxonomyChangedEvent event) {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${reference-data.resync-interval-ms:600000}",
+            initialDelayString = "${reference-data.resync-interval-ms:600000}")
+    public synchronized void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            Snapshot snapshot = readTransaction.execute(status -> load());
+            Snapshot previous = current;
+            current = snapshot;
+            if (previous == null || !previous.getEtag().equals(snapshot.getEtag())) {
+                log.info("Reference data snapshot rebuilt: etag={}, {} bytes in {} ms",
+                        snapshot.getEtag(), snapshot.getPayload().length, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("Failed to rebuild reference data snapshot", e);
+        }
+    }
+
+    private Snapshot load() {
+        Sort byName = Sort.by(Sort.Direction.ASC, "name");
+
+        List<VehicleCategoriesResponse> categories = vehicleCategoryRepository.findAll(byName).stream()
+                .map(c -> new VehicleCategoriesResponse(c.getId(), c.getName()))
+                .toList();
+
+        List<VehicleBrands> vehicleBrandRows = vehicleBrandsRepository.findAll(byName);
+        List<BatteryBrands> batteryBrandRows = batteryBrandsRepository.findAll(byName);
+
+        List<VehicleBrandsResponse> vehicleBrands = vehicleBrandRows.stream()
+                .map(v -> VehicleBrandsResponse.builder().brandId(v.getId()).brandName(v.getName()).build())
+                .toList();
+        List<VehicleBrandsResponse> vehicleBrandLogos = vehicleBrandRows.stream()
+                .map(v -> VehicleBrandsResponse.builder().brandName(v.getName()).logoUrl(v.getLogoUrl()).build())
+                .toList();
+        List<BatteryBrandsResponse> batteryBrands = batteryBrandRows.stream()
+                .map(b -> BatteryBrandsResponse.builder().brandId(b.getId()).brandName(b.getName()).build())
+                .toList();
+        List<BatteryBrandsResponse> batteryBrandLogos = batteryBrandRows.stream()
+                .map(b -> BatteryBrandsResponse.builder().brandName(b.getName()).logoUrl(b.getLogoUrl()).build())
+                .toList();
+        List<BatteryTypesResponse> batteryTypes = batteryTypesRepository.findAll(byName).stream()
+                .map(t -> new BatteryTypesResponse(t.getId(), t.getName()))
+                .toList();
+
+        // Brand xe + pin gộp, sắp theo tên không phân biệt hoa thường
+        List<BrandItemResponse> brands = new ArrayList<>(vehicleBrandRows.size() + batteryBrandRows.size());
+        for (VehicleBrands v : vehicleBrandRows) {
+            brands.add(BrandItemResponse.builder()
+                    .id(v.getId()).name(v.getName()).logoUrl(v.getLogoUrl()).type("VEHICLE").build());
+        }
+        for (BatteryBrands b : batteryBrandRows) {
+            brands.add(BrandItemResponse.builder()
+                    .id(b.getId()).name(b.getName()).logoUrl(b.getLogoUrl()).type("BATTERY").build());
+        }
+        brands.sort(Comparator.comparing(BrandItemResponse::getName, BY_NAME).thenComparing(BrandItemResponse::getId));
+
+        List<Model> modelRows = new ArrayList<>(vehicleModelRepository.findAll());
+        modelRows.sort(Comparator.comparing(Model::getName, BY_NAME).thenComparing(Model::getId));
+        // TreeMap: thứ tự key cố định để cùng dữ liệu luôn ra cùng payload/ETag
+        Map<String, List<VehicleModelResponse>> models = new TreeMap<>();
+        for (Model m : modelRows) {
+            models.computeIfAbsent(modelKey(m.getBrand().getId(), m.getVehicleType().getId()), k -> new ArrayList<>())
+                    .add(VehicleModelResponse.builder().modelId(m.getId()).modelName(m.getName()).build());
+        }
+
+        List<ModelVersion> versionRows = new ArrayList<>(vehicleModelVersionRepository.findAll());
+        versionRows.sort(Comparator.comparing(ModelVersion::getName, BY_NAME).thenComparing(ModelVersion::getId));
+        Map<String, List<VehicleModelVersionResponse>> versions = new TreeMap<>();
+        for (ModelVersion v : versionRows) {
+            versions.computeIfAbsent(v.getModel().getId(), k -> new ArrayList<>())
+                    .add(VehicleModelVersionResponse.builder().modelVersionId(v.getId()).modelVersionName(v.getName()).build());
+        }
+
+        List<PostPackageResponse> packages = new ArrayList<>();
+        for (PostPackage p : postPackageRepository.findByStatusOrderByPriorityLevelDesc(PostPackage.Status.ACTIVE)) {
+            packages.add(PostPackageMapper.toResponse(p, postPackageOptionRepository
+                    .findByPostPackage_IdAndStatusOrderBySortOrderAsc(p.getId(), PostPackageOption.Status.ACTIVE)));
+        }
+
+        ReferenceDataResponse payload = ReferenceDataResponse.builder()
+                .brands(brands)
+                .vehicleCategories(categories)
+                .vehicleBrands(vehicleBrandRows.stream()
+                        .map(v -> VehicleBrandsResponse.builder()
+                                .brandId(v.getId()).brandName(v.getName()).logoUrl(v.getLogoUrl()).build())
+                        .toList())
+                .vehicleModels(models)
+                .vehicleModelVersions(versions)
+                .batteryBrands(batteryBrandRows.stream()
+                        .map(b -> BatteryBrandsResponse.builder()
+                                .brandId(b.getId()).brandName(b.getName()).logoUrl(b.getLogoUrl()).build())
+                        .toList())
+                .batteryTypes(batteryTypes)
+                .packages(packages)
+                .build();
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize reference data", e);
+        }
+
+        return new Snapshot(categories, vehicleBrands, vehicleBrandLogos, freeze(models), freeze(versions),
+                batteryTypes, batteryBrands, batteryBrandLogos, List.copyOf(brands), List.copyOf(packages),
+                bytes, etagOf(bytes));
+    }
+
+    public static String modelKey(String brandId, String categoryId) {
+        return brandId + ":" + categoryId;
+    }
+
+    private static <T> Map<String, List<T>> freeze(Map<String, List<T>> grouped) {
+        Map<String, List<T>> result = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((k, v) -> result.put(k, List.copyOf(v)));
+        return Collections.unmodifiableMap(result);
+    }
+
+    // ETag theo nội dung: dựng lại mà dữ liệu không đổi thì client vẫn nhận 304
+    private static String etagOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Một phiên bản dữ liệu tham chiếu; mọi danh sách đều không sửa được
+     */
+    @Getter
+    public static final class Snapshot {
+        private final List<VehicleCategoriesResponse> vehicleCategories;
+        private final List<VehicleBrandsResponse> vehicleBrands;
+        private final List<VehicleBrandsResponse> vehicleBrandLogos;
+        private final Map<String, List<VehicleModelResponse>> vehicleModels;
+        private final Map<String, List<VehicleModelVersionResponse>> vehicleModelVersions;
+        private final List<BatteryTypesResponse> batteryTypes;
+        private final List<BatteryBrandsResponse> batteryBrands;
+        private final List<BatteryBrandsResponse> batteryBrandLogos;
+        private final List<BrandItemResponse> brands;
+        private final List<PostPackageResponse> packages;
+        private final byte[] payload;
+        private final String etag;
+
+        Snapshot(List<VehicleCategoriesResponse> vehicleCategories, List<VehicleBrandsResponse> vehicleBrands,
+                 List<VehicleBrandsResponse> vehicleBrandLogos,
+                 Map<String, List<VehicleModelResponse>> vehicleModels,
+                 Map<String, List<VehicleModelVersionResponse>> vehicleModelVersions,
+                 List<BatteryTypesResponse> batteryTypes, List<BatteryBrandsResponse> batteryBrands,
+                 List<BatteryBrandsResponse> batteryBrandLogos, List<BrandItemResponse> brands,
+                 List<PostPackageResponse> packages, byte[] payload, String etag) {
+            this.vehicleCategories = vehicleCategories;
+            this.vehicleBrands = vehicleBrands;
+            this.vehicleBrandLogos = vehicleBrandLogos;
+            this.vehicleModels = vehicleModels;
+            this.vehicleModelVersions = vehicleModelVersions;
+            this.batteryTypes = batteryTypes;
+            this.batteryBrands = batteryBrands;
+            this.batteryBrandLogos = batteryBrandLogos;
+            this.brands = brands;
+            this.packages = packages;
+            this.payload = payload;
+            this.etag = etag;
+        }
+
+        public List<VehicleModelResponse> modelsOf(String brandId, String categoryId) {
+            return vehicleModels.getOrDefault(modelKey(brandId, categoryId), List.of());
+        }
+
+        public List<VehicleModelVersionResponse> versionsOf(String modelId) {
+            return vehicleModelVersions.getOrDefault(modelId, List.of());
+        }
+    }
+}
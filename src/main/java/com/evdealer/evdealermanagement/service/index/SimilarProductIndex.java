@@ -0,0 +1,393 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleCatalog;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index k-NN cho "sản phẩm tương tự", thay cho 2 query theo model/brand không giới hạn.
+ * Mỗi product ACTIVE là một vector đặc trưng số (float) + vài mã phân loại (int):
+ * - xe: rangeKm, batteryCapacityKwh, powerHp, topSpeedKmh, weightKg (từ VehicleCatalog), log(giá), năm;
+ *   phân loại: category, model, brand
+ * - pin: capacityKwh, healthPercent, log(giá); phân loại: batteryType, brand
+ * Mỗi chiều được chuẩn hoá theo độ lệch chuẩn tính lúc rebuild; khác phân loại thì cộng thêm
+ * khoảng cách cố định (khác loại xe rất xa, khác model/brand gần hơn). Truy vấn quét tuyến tính
+ * các mảng nguyên thuỷ và giữ top-K bằng heap, không chạm DB.
+ */
+@Slf4j
+@Component
+public class SimilarProductIndex implements ProductIndex {
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    // rangeKm, batteryCapacityKwh, powerHp, topSpeedKmh, weightKg, log(giá), năm
+    private static final float[] VEHICLE_WEIGHTS = {1f, 1f, 1f, 1f, 0.5f, 1.5f, 1f};
+    // category, model, brand
+    private static final float[] VEHICLE_MISMATCH = {8f, 1f, 0.5f};
+
+    // capacityKwh, healthPercent, log(giá)
+    private static final float[] BATTERY_WEIGHTS = {1f, 1f, 1.5f};
+    // batteryType, brand
+    private static final float[] BATTERY_MISMATCH = {2f, 0.5f};
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Space vehicles = new Space(VEHICLE_WEIGHTS, VEHICLE_MISMATCH);
+    private final Space batteries = new Space(BATTERY_WEIGHTS, BATTERY_MISMATCH);
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Top-K xe ACTIVE gần nhất với xe đã cho (không gồm chính nó), gần nhất trước
+     */
+    public List<String> similarVehicles(VehicleDetails details, int k) {
+        lock.readLock().lock();
+        try {
+            return vehicles.nearest(details.getProductId(), vehicleFeatures(details.getProduct(), details),
+                    vehicleCodes(details, false), k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top-K pin ACTIVE gần nhất với pin đã cho (không gồm chính nó), gần nhất trước
+     */
+    public List<String> similarBatteries(BatteryDetails details, int k) {
+        lock.readLock().lock();
+        try {
+            return batteries.nearest(details.getProductId(), batteryFeatures(details.getProduct(), details),
+                    batteryCodes(details, false), k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        lock.writeLock().lock();
+        try {
+            vehicles.clear(activeProducts.size());
+            batteries.clear(activeProducts.size());
+            for (Product p : activeProducts) {
+                write(p);
+            }
+            vehicles.recomputeScale();
+            batteries.recomputeScale();
+            ready = true;
+            log.info("Similar product index rebuilt: {} vehicles, {} batteries", vehicles.size(), batteries.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            // Product có thể đổi loại chi tiết khi sửa tin -> gỡ khỏi cả 2 trước khi ghi
+            vehicles.remove(product.getId());
+            batteries.remove(product.getId());
+            write(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            vehicles.remove(productId);
+            batteries.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Product p) {
+        if (p.getVehicleDetails() != null) {
+            vehicles.put(p.getId(), vehicleFeatures(p, p.getVehicleDetails()), vehicleCodes(p.getVehicleDetails(), true));
+        } else if (p.getBatteryDetails() != null) {
+            batteries.put(p.getId(), batteryFeatures(p, p.getBatteryDetails()), batteryCodes(p.getBatteryDetails(), true));
+        }
+    }
+
+    private static float[] vehicleFeatures(Product p, VehicleDetails d) {
+        VehicleCatalog c = d.getVehicleCatalog();
+        Short year = p.getManufactureYear() != null ? p.getManufactureYear() : c != null ? c.getYear() : null;
+        return new float[]{
+                c == null ? Float.NaN : toFloat(c.getRangeKm()),
+                c == null ? Float.NaN : toFloat(c.getBatteryCapacityKwh()),
+                c == null ? Float.NaN : toFloat(c.getPowerHp()),
+                c == null ? Float.NaN : toFloat(c.getTopSpeedKmh()),
+                c == null ? Float.NaN : toFloat(c.getWeightKg()),
+                logPrice(p.getPrice()),
+                toFloat(year)
+        };
+    }
+
+    private int[] vehicleCodes(VehicleDetails d, boolean intern) {
+        return new int[]{
+                vehicles.code(0, d.getCategory() == null ? null : d.getCategory().getId(), intern),
+                vehicles.code(1, d.getModel() == null ? null : d.getModel().getId(), intern),
+                vehicles.code(2, d.getBrand() == null ? null : d.getBrand().getId(), intern)
+        };
+    }
+
+    private static float[] batteryFeatures(Product p, BatteryDetails d) {
+        return new float[]{
+                d.getCapacityKwh() == null ? Float.NaN : d.getCapacityKwh().floatValue(),
+                toFloat(d.getHealthPercent()),
+                logPrice(p.getPrice())
+        };
+    }
+
+    private int[] batteryCodes(BatteryDetails d, boolean intern) {
+        return new int[]{
+                batteries.code(0, d.getBatteryType() == null ? null : d.getBatteryType().getId(), intern),
+                batteries.code(1, d.getBrand() == null ? null : d.getBrand().getId(), intern)
+        };
+    }
+
+    private static float toFloat(Number n) {
+        return n == null ? Float.NaN : n.floatValue();
+    }
+
+    // Giá trải từ vài triệu tới vài tỷ -> so theo tỉ lệ thay vì chênh lệch tuyệt đối
+    private static float logPrice(BigDecimal price) {
+        return price == null || price.signum() <= 0 ? Float.NaN : (float) Math.log(price.doubleValue());
+    }
+
+    /**
+     * Một không gian vector (xe hoặc pin). Slot được tái sử dụng khi product rời index;
+     * giá trị thiếu lưu NaN và bị tính khoảng cách cố định {@link #MISSING_PENALTY} ở chiều đó.
+     */
+    private static final class Space {
+        private static final float MISSING_PENALTY = 1f;
+        private static final int NONE = -1;
+        private static final int UNKNOWN = -2;
+
+        private final int dims;
+        private final float[] weights;
+        private final float[] mismatch;
+        private final float[] invStd;
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+
+        private String[] ids = new String[INITIAL_CAPACITY];
+        private boolean[] live = new boolean[INITIAL_CAPACITY];
+        private float[] features;
+        private int[] codes;
+
+        private int highWater = 0;
+        private final Map<String, Integer> slotById = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+        Space(float[] weights, float[] mismatch) {
+            this.dims = weights.length;
+            this.weights = weights;
+            this.mismatch = mismatch;
+            this.invStd = new float[dims];
+            Arrays.fill(invStd, 1f);
+            this.features = new float[INITIAL_CAPACITY * dims];
+            this.codes = new int[INITIAL_CAPACITY * mismatch.length];
+            for (int i = 0; i < mismatch.length; i++) {
+                dictionaries.add(new HashMap<>());
+            }
+        }
+
+        int size() {
+            return slotById.size();
+        }
+
+        void clear(int expected) {
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, expected)) << 1);
+            ids = new String[capacity];
+            live = new boolean[capacity];
+            features = new float[capacity * dims];
+            codes = new int[capacity * mismatch.length];
+            highWater = 0;
+            slotById.clear();
+            freeSlots.clear();
+            dictionaries.forEach(Map::clear);
+        }
+
+        /**
+         * Mã int của giá trị phân loại; khi truy vấn (intern=false) giá trị lạ trả UNKNOWN để luôn tính là khác
+         */
+        int code(int category, String key, boolean intern) {
+            if (key == null) {
+                return NONE;
+            }
+            Map<String, Integer> dict = dictionaries.get(category);
+            Integer code = dict.get(key);
+            if (code == null) {
+                if (!intern) {
+                    return UNKNOWN;
+                }
+                code = dict.size();
+                dict.put(key, code);
+            }
+            return code;
+        }
+
+        void put(String id, float[] vector, int[] categorical) {
+            Integer existing = slotById.get(id);
+            int slot = existing != null ? existing : allocateSlot(id);
+            ids[slot] = id;
+            live[slot] = true;
+            System.arraycopy(vector, 0, features, slot * dims, dims);
+            System.arraycopy(categorical, 0, codes, slot * mismatch.length, mismatch.length);
+        }
+
+        void remove(String id) {
+            Integer slot = slotById.remove(id);
+            if (slot != null) {
+                live[slot] = false;
+                ids[slot] = null;
+                freeSlots.push(slot);
+            }
+        }
+
+        /**
+         * Độ lệch chuẩn mỗi chiều trên các giá trị có mặt; chiều hằng số/không có dữ liệu giữ hệ số 1
+         */
+        void recomputeScale() {
+            for (int d = 0; d < dims; d++) {
+                double sum = 0;
+                double sumSq = 0;
+                int n = 0;
+                for (int i = 0; i < highWater; i++) {
+                    float v = features[i * dims + d];
+                    if (live[i] && !Float.isNaN(v)) {
+                        sum += v;
+                        sumSq += (double) v * v;
+                        n++;
+                    }
+                }
+                double variance = n > 1 ? (sumSq - sum * sum / n) / (n - 1) : 0;
+                invStd[d] = variance > 1e-9 ? (float) (1 / Math.sqrt(variance)) : 1f;
+            }
+        }
+
+        List<String> nearest(String selfId, float[] query, int[] queryCodes, int k) {
+            if (k <= 0 || highWater == 0) {
+                return List.of();
+            }
+            // max-heap trên khoảng cách: phần tử đầu là ứng viên xa nhất trong top-K hiện tại
+            int[] heapSlots = new int[k];
+            float[] heapDist = new float[k];
+            int heapSize = 0;
+            int codeStride = mismatch.length;
+
+            for (int i = 0; i < highWater; i++) {
+                if (!live[i] || ids[i].equals(selfId)) continue;
+
+                float dist = 0;
+                for (int c = 0; c < codeStride; c++) {
+                    int code = codes[i * codeStride + c];
+                    if (code == NONE || queryCodes[c] == NONE || code != queryCodes[c]) {
+                        dist += mismatch[c];
+                    }
+                }
+                if (heapSize == k && dist >= heapDist[0]) continue;
+
+                int base = i * dims;
+                for (int d = 0; d < dims; d++) {
+                    float a = features[base + d];
+                    float b = query[d];
+                    if (Float.isNaN(a) || Float.isNaN(b)) {
+                        dist += weights[d] * MISSING_PENALTY;
+                    } else {
+                        float z = (a - b) * invStd[d];
+                        dist += weights[d] * z * z;
+                    }
+                    if (heapSize == k && dist >= heapDist[0]) break;
+                }
+
+                if (heapSize < k) {
+                    heapSlots[heapSize] = i;
+                    heapDist[heapSize] = dist;
+                    siftUp(heapSlots, heapDist, heapSize++);
+                } else if (dist < heapDist[0]) {
+                    heapSlots[0] = i;
+                    heapDist[0] = dist;
+                    siftDown(heapSlots, heapDist, heapSize);
+                }
+            }
+
+            // Lấy dần phần tử xa nhất ra cuối mảng -> kết quả tăng dần theo khoảng cách
+            String[] result = new String[heapSize];
+            for (int n = heapSize - 1; n >= 0; n--) {
+                result[n] = ids[heapSlots[0]];
+                heapSlots[0] = heapSlots[n];
+                heapDist[0] = heapDist[n];
+                siftDown(heapSlots, heapDist, n);
+            }
+            return Arrays.asList(result);
+        }
+
+        private int allocateSlot(String id) {
+            int slot;
+            if (!freeSlots.isEmpty()) {
+                slot = freeSlots.pop();
+            } else {
+                if (highWater == ids.length) {
+                    grow();
+                }
+                slot = highWater++;
+            }
+            slotById.put(id, slot);
+            return slot;
+        }
+
+        private void grow() {
+            int capacity = ids.length << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            live = Arrays.copyOf(live, capacity);
+            features = Arrays.copyOf(features, capacity * dims);
+            codes = Arrays.copyOf(codes, capacity * mismatch.length);
+        }
+
+        private static void siftUp(int[] slots, float[] dist, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (dist[parent] >= dist[i]) break;
+                swap(slots, dist, parent, i);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(int[] slots, float[] dist, int size) {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int largest = left + 1 < size && dist[left + 1] > dist[left] ? left + 1 : left;
+                if (dist[i] >= dist[largest]) break;
+                swap(slots, dist, i, largest);
+                i = largest;
+            }
+        }
+
+        private static void swap(int[] slots, float[] dist, int a, int b) {
+            int s = slots[a];
+            slots[a] = slots[b];
+            slots[b] = s;
+            float d = dist[a];
+            dist[a] = dist[b];
+            dist[b] = d;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import lombok.Getter;
+
+/**
+ * Phát ra khi admin thêm/sửa/xoá brand, model, version xe hoặc brand/loại pin.
+ * Các index dùng tên taxonomy (typeahead...) nạp lại phần taxonomy sau khi commit,
+ * {@link ReferenceDataSnapshot} dựng lại ảnh chụp dữ liệu tham chiếu.
+ * Sự kiện từ node khác (nhận qua {@link ProductChangeBroadcaster#TAXONOMY_CHANNEL}) có remote = true
+ * và không được phát lại lên Redis.
+ */
+@Getter
+public class TaxonomyChangedEvent {
+
+    private final boolean remote;
+
+    public TaxonomyChangedEvent() {
+        this(false);
+    }
+
+    private TaxonomyChangedEvent(boolean remote) {
+        this.remote = remote;
+    }
+
+    public static TaxonomyChangedEvent remote() {
+        return new TaxonomyChangedEvent(true);
+    }
+}
@@ -0,0 +1,496 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.dto.product.search.TypeaheadSuggestion;
+import com.evdealer.evdealermanagement.entity.battery.BatteryDetails;
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleDetails;
+import com.evdealer.evdealermanagement.repository.*;
+import com.evdealer.evdealermanagement.utils.SearchTextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie tiền tố cho gợi ý tìm kiếm (typeahead), trả lời hoàn toàn trong bộ nhớ.
+ * Gồm tiêu đề các product ACTIVE và tên brand xe, model, version, brand pin, loại pin.
+ * Mỗi mục được chèn theo tên đã bỏ dấu và theo từng hậu tố bắt đầu ở đầu một từ
+ * ("vinfast vf8" cũng khớp khi gõ "vf8"). Mỗi nút giữ sẵn top-K theo độ phổ biến
+ * (số tin ACTIVE liên quan) nên truy vấn chỉ là đi theo tiền tố.
+ * Product thay đổi -> cập nhật điểm; taxonomy thay đổi -> nạp lại phần taxonomy, chỉ sửa các mục khác biệt.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TypeaheadIndex implements ProductIndex {
+
+    public static final int TOP_K = 10;
+    private static final int MAX_SUFFIXES = 4;
+    private static final int MAX_KEY_LENGTH = 48;
+
+    private static final Comparator<Term> RANK = Comparator
+            .comparingLong((Term t) -> t.count).reversed()
+            .thenComparing(t -> t.kind)
+            .thenComparing(t -> t.label);
+
+    enum Kind {
+        VEHICLE_BRAND, MODEL, VERSION, BATTERY_BRAND, BATTERY_TYPE, TITLE
+    }
+
+    private final VehicleBrandsRepository vehicleBrandsRepository;
+    private final VehicleModelRepository vehicleModelRepository;
+    private final VehicleModelVersionRepository vehicleModelVersionRepository;
+    private final BatteryBrandsRepository batteryBrandsRepository;
+    private final BatteryTypesRepository batteryTypesRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Term> terms = new HashMap<>();
+    // productId -> các term mà product đó đang cộng điểm
+    private final Map<String, List<Term>> contributions = new HashMap<>();
+    private Node root = new Node();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Tối đa limit gợi ý cho tiền tố đã gõ, phổ biến nhất trước
+     */
+    public List<TypeaheadSuggestion> suggest(String prefix, int limit) {
+        String key = SearchTextNormalizer.fold(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            key = key.substring(0, MAX_KEY_LENGTH);
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            List<TypeaheadSuggestion> result = new ArrayList<>(Math.min(limit, node.top.size()));
+            for (Term t : node.top) {
+                if (result.size() == limit) break;
+                result.add(new TypeaheadSuggestion(t.kind.name(), t.refId, t.label, t.count));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        Map<String, Term> taxonomy = loadTaxonomy();
+
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            contributions.clear();
+            root = new Node();
+            terms.putAll(taxonomy);
+            for (Product p : activeProducts) {
+                List<Term> contributed = new ArrayList<>();
+                for (String termKey : taxonomyKeysOf(p)) {
+                    Term t = terms.get(termKey);
+                    if (t != null) {
+                        t.count++;
+                        contributed.add(t);
+                    }
+                }
+                Term title = titleTerm(p);
+                if (title != null) {
+                    title.count++;
+                    contributed.add(title);
+                }
+                contributions.put(p.getId(), contributed);
+            }
+            // Chèn hết rồi mới tính top-K một lượt từ dưới lên
+            for (Term t : terms.values()) {
+                for (String key : suffixKeys(t.key)) {
+                    List<Node> path = path(key, true);
+                    path.get(path.size() - 1).terminals.add(t);
+                }
+                t.inTrie = true;
+            }
+            refreshAll(root);
+            ready = true;
+            log.info("Typeahead index rebuilt: {} terms from {} products", terms.size(), activeProducts.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        lock.writeLock().lock();
+        try {
+            Set<Term> touched = new HashSet<>(withdraw(product.getId()));
+            List<Term> contributed = new ArrayList<>();
+            for (String termKey : taxonomyKeysOf(product)) {
+                Term t = terms.get(termKey);
+                if (t != null) {
+                    t.count++;
+                    contributed.add(t);
+                }
+            }
+            String titleKey = titleKeyOf(product);
+            if (titleKey != null) {
+                Term title = terms.get(titleKey);
+                if (title == null) {
+                    title = titleTerm(product);
+                    title.count++;
+                    insert(title);
+                } else {
+                    title.count++;
+                }
+                contributed.add(title);
+            }
+            contributions.put(product.getId(), contributed);
+            touched.addAll(contributed);
+            touched.forEach(this::reposition);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            withdraw(productId).forEach(this::reposition);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brand/model/version/loại pin vừa được sửa: nạp lại taxonomy và chỉ cập nhật các mục khác biệt
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTaxonomyChanged(TaxonomyChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        try {
+            Map<String, Term> fresh = loadTaxonomy();
+            lock.writeLock().lock();
+            try {
+                int changed = 0;
+                for (Term old : List.copyOf(terms.values())) {
+                    if (old.kind == Kind.TITLE) continue;
+                    Term now = fresh.get(old.termKey());
+                    if (now == null || !now.key.equals(old.key) || !now.label.equals(old.label)) {
+                        // Xoá khỏi trie; điểm của product đang trỏ tới vẫn giữ trên đối tượng term
+                        delete(old);
+                        terms.remove(old.termKey());
+                        changed++;
+                    }
+                }
+                for (Term now : fresh.values()) {
+                    if (!terms.containsKey(now.termKey())) {
+                        terms.put(now.termKey(), now);
+                        changed++;
+                    }
+                }
+                if (changed > 0) {
+                    relinkContributions();
+                    for (Term t : terms.values()) {
+                        if (t.kind != Kind.TITLE && !t.inTrie) {
+                            insert(t);
+                        }
+                    }
+                }
+                log.debug("Typeahead taxonomy reloaded, {} terms changed", changed);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("Failed to reload typeahead taxonomy", e);
+        }
+    }
+
+    private Map<String, Term> loadTaxonomy() {
+        Map<String, Term> result = new HashMap<>();
+        vehicleBrandsRepository.findAll().forEach(b ->
+                put(result, new Term(Kind.VEHICLE_BRAND, b.getId(), b.getName())));
+        vehicleModelRepository.findAllWithBrand().forEach(m ->
+                put(result, new Term(Kind.MODEL, m.getId(),
+                        join(m.getBrand() == null ? null : m.getBrand().getName(), m.getName()))));
+        vehicleModelVersionRepository.findAllWithModel().forEach(v ->
+                put(result, new Term(Kind.VERSION, v.getId(),
+                        join(v.getModel() == null ? null : v.getModel().getName(), v.getName()))));
+        batteryBrandsRepository.findAll().forEach(b ->
+                put(result, new Term(Kind.BATTERY_BRAND, b.getId(), b.getName())));
+        batteryTypesRepository.findAll().forEach(t ->
+                put(result, new Term(Kind.BATTERY_TYPE, t.getId(), t.getName())));
+        return result;
+    }
+
+    private static void put(Map<String, Term> target, Term term) {
+        if (!term.key.isEmpty()) {
+            target.put(term.termKey(), term);
+        }
+    }
+
+    // Product vẫn giữ tham chiếu tới term taxonomy cũ -> chuyển điểm sang term mới cùng khoá
+    private void relinkContributions() {
+        for (Term t : terms.values()) {
+            if (t.kind != Kind.TITLE) {
+                t.count = 0;
+            }
+        }
+        for (Map.Entry<String, List<Term>> e : contributions.entrySet()) {
+            List<Term> relinked = new ArrayList<>(e.getValue().size());
+            for (Term old : e.getValue()) {
+                Term current = old.kind == Kind.TITLE ? old : terms.get(old.termKey());
+                if (current != null) {
+                    if (current.kind != Kind.TITLE) {
+                        current.count++;
+                    }
+                    relinked.add(current);
+                }
+            }
+            e.setValue(relinked);
+        }
+        for (Term t : terms.values()) {
+            if (t.kind != Kind.TITLE && t.inTrie) {
+                reposition(t);
+            }
+        }
+    }
+
+    /**
+     * Bỏ phần điểm product đang đóng góp; trả về các term bị ảnh hưởng (term tiêu đề về 0 thì bị xoá)
+     */
+    private List<Term> withdraw(String productId) {
+        List<Term> previous = contributions.remove(productId);
+        if (previous == null) {
+            return List.of();
+        }
+        List<Term> touched = new ArrayList<>(previous.size());
+        for (Term t : previous) {
+            t.count--;
+            if (t.kind == Kind.TITLE && t.count <= 0) {
+                delete(t);
+                terms.remove(t.termKey());
+            } else {
+                touched.add(t);
+            }
+        }
+        return touched;
+    }
+
+    private void insert(Term t) {
+        terms.put(t.termKey(), t);
+        for (String key : suffixKeys(t.key)) {
+            List<Node> path = path(key, true);
+            path.get(path.size() - 1).terminals.add(t);
+            refreshUp(path);
+        }
+        t.inTrie = true;
+    }
+
+    private void delete(Term t) {
+        if (!t.inTrie) {
+            return;
+        }
+        for (String key : suffixKeys(t.key)) {
+            List<Node> path = path(key, false);
+            if (path.size() == key.length() + 1) {
+                path.get(path.size() - 1).terminals.remove(t);
+                refreshUp(path);
+            }
+        }
+        t.inTrie = false;
+    }
+
+    // Điểm của term đổi -> tính lại top-K trên các đường đi của nó
+    private void reposition(Term t) {
+        if (!t.inTrie) {
+            return;
+        }
+        for (String key : suffixKeys(t.key)) {
+            List<Node> path = path(key, false);
+            if (path.size() == key.length() + 1) {
+                refreshUp(path);
+            }
+        }
+    }
+
+    /**
+     * Các nút từ gốc theo key; create=false thì dừng ở nút cuối cùng tồn tại
+     */
+    private List<Node> path(String key, boolean create) {
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            Node next = node.child(key.charAt(i));
+            if (next == null) {
+                if (!create) break;
+                next = node.addChild(key.charAt(i));
+            }
+            node = next;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void refreshUp(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            node.refresh();
+            // Nút rỗng (không còn mục nào đi qua) được gỡ khỏi cha
+            if (i > 0 && node.top.isEmpty() && node.childCount == 0) {
+                path.get(i - 1).removeChild(node);
+            }
+        }
+    }
+
+    private static void refreshAll(Node node) {
+        for (int i = 0; i < node.childCount; i++) {
+            refreshAll(node.kids[i]);
+        }
+        node.refresh();
+    }
+
+    private static List<String> suffixKeys(String key) {
+        List<String> keys = new ArrayList<>(MAX_SUFFIXES);
+        int start = 0;
+        while (start >= 0 && keys.size() < MAX_SUFFIXES) {
+            String suffix = key.substring(start);
+            keys.add(suffix.length() > MAX_KEY_LENGTH ? suffix.substring(0, MAX_KEY_LENGTH) : suffix);
+            int space = key.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return keys;
+    }
+
+    private static List<String> taxonomyKeysOf(Product p) {
+        List<String> keys = new ArrayList<>(3);
+        VehicleDetails v = p.getVehicleDetails();
+        if (v != null) {
+            if (v.getBrand() != null) keys.add(Kind.VEHICLE_BRAND + ":" + v.getBrand().getId());
+            if (v.getModel() != null) keys.add(Kind.MODEL + ":" + v.getModel().getId());
+            if (v.getVersion() != null) keys.add(Kind.VERSION + ":" + v.getVersion().getId());
+        }
+        BatteryDetails b = p.getBatteryDetails();
+        if (b != null) {
+            if (b.getBrand() != null) keys.add(Kind.BATTERY_BRAND + ":" + b.getBrand().getId());
+            if (b.getBatteryType() != null) keys.add(Kind.BATTERY_TYPE + ":" + b.getBatteryType().getId());
+        }
+        return keys;
+    }
+
+    private static String titleKeyOf(Product p) {
+        String folded = SearchTextNormalizer.fold(p.getTitle());
+        return folded.isEmpty() ? null : Kind.TITLE + ":" + folded;
+    }
+
+    // Term tiêu đề dùng chung cho các tin trùng tiêu đề (sau khi bỏ dấu)
+    private Term titleTerm(Product p) {
+        String titleKey = titleKeyOf(p);
+        if (titleKey == null) {
+            return null;
+        }
+        return terms.computeIfAbsent(titleKey, k -> new Term(Kind.TITLE, null, p.getTitle().trim()));
+    }
+
+    private static String join(String parent, String name) {
+        if (parent == null || parent.isBlank()) return name;
+        if (name == null || name.isBlank()) return parent;
+        return parent.trim() + " " + name.trim();
+    }
+
+    private static final class Term {
+        final Kind kind;
+        final String refId;
+        final String label;
+        final String key;
+        long count;
+        boolean inTrie;
+
+        Term(Kind kind, String refId, String label) {
+            this.kind = kind;
+            this.refId = refId;
+            this.label = label == null ? "" : label.trim();
+            this.key = SearchTextNormalizer.fold(label);
+        }
+
+        String termKey() {
+            return kind + ":" + (refId != null ? refId : key);
+        }
+    }
+
+    private static final class Node {
+        private char[] chars = new char[0];
+        private Node[] kids = new Node[0];
+        private int childCount = 0;
+        // Mục kết thúc đúng tại nút này (thường 0-1 phần tử)
+        private final List<Term> terminals = new ArrayList<>(1);
+        private List<Term> top = List.of();
+
+        Node child(char c) {
+            for (int i = 0; i < childCount; i++) {
+                if (chars[i] == c) return kids[i];
+            }
+            return null;
+        }
+
+        Node addChild(char c) {
+            if (childCount == chars.length) {
+                int capacity = Math.max(2, childCount << 1);
+                chars = Arrays.copyOf(chars, capacity);
+                kids = Arrays.copyOf(kids, capacity);
+            }
+            Node node = new Node();
+            chars[childCount] = c;
+            kids[childCount] = node;
+            childCount++;
+            return node;
+        }
+
+        void removeChild(Node node) {
+            for (int i = 0; i < childCount; i++) {
+                if (kids[i] == node) {
+                    childCount--;
+                    chars[i] = chars[childCount];
+                    kids[i] = kids[childCount];
+                    kids[childCount] = null;
+                    return;
+                }
+            }
+        }
+
+        // top-K của nút = top-K trong (mục tại nút ∪ top-K của từng nút con)
+        void refresh() {
+            List<Term> candidates = new ArrayList<>(terminals);
+            for (int i = 0; i < childCount; i++) {
+                candidates.addAll(kids[i].top);
+            }
+            candidates.sort(RANK);
+            List<Term> best = new ArrayList<>(Math.min(TOP_K, candidates.size()));
+            for (Term t : candidates) {
+                if (best.size() == TOP_K) break;
+                // Một mục có thể tới nút này qua nhiều hậu tố
+                if (!best.contains(t)) best.add(t);
+            }
+            top = best.isEmpty() ? List.of() : List.copyOf(best);
+        }
+    }
+}
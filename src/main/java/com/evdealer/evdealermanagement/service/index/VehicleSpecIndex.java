@@ -0,0 +1,246 @@
+package com.evdealer.evdealermanagement.service.index;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleCatalog;
+import com.evdealer.evdealermanagement.entity.vehicle.VehicleDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Kho cột (column store) thông số catalog của các tin xe ACTIVE, phục vụ lọc theo thông số
+ * (quãng đường, dung lượng pin, tốc độ tối đa, 0-100 km/h, pin tháo rời).
+ * Mỗi tin một slot; mỗi thông số là một mảng float riêng (NaN = catalog không có giá trị),
+ * pin tháo rời và slot còn dùng là bitset long[].
+ * Lọc = quét từng cột theo khối 64 slot, AND dồn vào một bitset kết quả; khối đã rỗng thì bỏ qua.
+ */
+@Slf4j
+@Component
+public class VehicleSpecIndex implements ProductIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private float[] rangeKm = new float[INITIAL_CAPACITY];
+    private float[] batteryKwh = new float[INITIAL_CAPACITY];
+    private float[] topSpeedKmh = new float[INITIAL_CAPACITY];
+    private float[] acceleration0100s = new float[INITIAL_CAPACITY];
+    // Hai bitset riêng như SQL: catalog không có hoặc cờ NULL không khớp cả true lẫn false
+    private long[] removable = new long[INITIAL_CAPACITY >>> 6];
+    private long[] notRemovable = new long[INITIAL_CAPACITY >>> 6];
+    private long[] live = new long[INITIAL_CAPACITY >>> 6];
+    private int slotCount = 0;
+    private final Map<String, Integer> slotById = new HashMap<>();
+    // Slot của tin đã gỡ, dùng lại khi có tin mới
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Tin xe ACTIVE thoả mọi điều kiện khác null, mới nhất trước, lấy đoạn [offset, offset + limit)
+     */
+    public IdSlice find(Double minRangeKm, Double minBatteryKwh, Double minTopSpeedKmh,
+                          Double maxAcceleration0100s, Boolean removableBattery, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int words = (slotCount + 63) >>> 6;
+            long[] match = Arrays.copyOf(live, words);
+            if (removableBattery != null) {
+                long[] flag = removableBattery ? removable : notRemovable;
+                for (int w = 0; w < words; w++) {
+                    match[w] &= flag[w];
+                }
+            }
+            if (minRangeKm != null) atLeast(match, rangeKm, minRangeKm.floatValue());
+            if (minBatteryKwh != null) atLeast(match, batteryKwh, minBatteryKwh.floatValue());
+            if (minTopSpeedKmh != null) atLeast(match, topSpeedKmh, minTopSpeedKmh.floatValue());
+            if (maxAcceleration0100s != null) atMost(match, acceleration0100s, maxAcceleration0100s.floatValue());
+
+            int total = 0;
+            for (long w : match) {
+                total += Long.bitCount(w);
+            }
+            Integer[] slots = new Integer[total];
+            int n = 0;
+            for (int w = 0; w < words; w++) {
+                long bits = match[w];
+                while (bits != 0) {
+                    slots[n++] = (w << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+            Arrays.sort(slots, (a, b) -> createdAt[a] != createdAt[b]
+                    ? Long.compare(createdAt[b], createdAt[a])
+                    : ids[a].compareTo(ids[b]));
+
+            return IdSlice.of(total, offset, limit, i -> ids[slots[i]]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(List<Product> activeProducts) {
+        lock.writeLock().lock();
+        try {
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < activeProducts.size()) {
+                capacity <<= 1;
+            }
+            ids = new String[capacity];
+            createdAt = new long[capacity];
+            rangeKm = new float[capacity];
+            batteryKwh = new float[capacity];
+            topSpeedKmh = new float[capacity];
+            acceleration0100s = new float[capacity];
+            removable = new long[capacity >>> 6];
+            notRemovable = new long[capacity >>> 6];
+            live = new long[capacity >>> 6];
+            slotCount = 0;
+            slotById.clear();
+            freeSlots.clear();
+
+            for (Product p : activeProducts) {
+                if (p.getVehicleDetails() != null) {
+                    write(allocate(p.getId()), p);
+                }
+            }
+            ready = true;
+            log.info("Vehicle spec index rebuilt: {} vehicles", slotById.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(Product product) {
+        if (product.getVehicleDetails() == null) {
+            remove(product.getId());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(product.getId());
+            write(slot != null ? slot : allocate(product.getId()), product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(productId);
+            if (slot != null) {
+                live[slot >>> 6] &= ~(1L << slot);
+                ids[slot] = null;
+                freeSlots.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Giữ bit của slot khi giá trị cột >= min (NaN luôn bị loại)
+    private void atLeast(long[] match, float[] column, float min) {
+        for (int w = 0; w < match.length; w++) {
+            if (match[w] == 0) continue;
+            int base = w << 6;
+            int end = Math.min(64, slotCount - base);
+            long keep = 0;
+            for (int j = 0; j < end; j++) {
+                if (column[base + j] >= min) keep |= 1L << j;
+            }
+            match[w] &= keep;
+        }
+    }
+
+    private void atMost(long[] match, float[] column, float max) {
+        for (int w = 0; w < match.length; w++) {
+            if (match[w] == 0) continue;
+            int base = w << 6;
+            int end = Math.min(64, slotCount - base);
+            long keep = 0;
+            for (int j = 0; j < end; j++) {
+                if (column[base + j] <= max) keep |= 1L << j;
+            }
+            match[w] &= keep;
+        }
+    }
+
+    private int allocate(String productId) {
+        Integer reused = freeSlots.poll();
+        int slot;
+        if (reused != null) {
+            slot = reused;
+        } else {
+            if (slotCount == ids.length) {
+                grow();
+            }
+            slot = slotCount++;
+        }
+        ids[slot] = productId;
+        slotById.put(productId, slot);
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = ids.length << 1;
+        ids = Arrays.copyOf(ids, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        rangeKm = Arrays.copyOf(rangeKm, capacity);
+        batteryKwh = Arrays.copyOf(batteryKwh, capacity);
+        topSpeedKmh = Arrays.copyOf(topSpeedKmh, capacity);
+        acceleration0100s = Arrays.copyOf(acceleration0100s, capacity);
+        removable = Arrays.copyOf(removable, capacity >>> 6);
+        notRemovable = Arrays.copyOf(notRemovable, capacity >>> 6);
+        live = Arrays.copyOf(live, capacity >>> 6);
+    }
+
+    private void write(int slot, Product p) {
+        VehicleDetails v = p.getVehicleDetails();
+        VehicleCatalog c = v.getVehicleCatalog();
+        createdAt[slot] = createdAtKey(p.getCreatedAt());
+        rangeKm[slot] = c == null || c.getRangeKm() == null ? Float.NaN : c.getRangeKm();
+        batteryKwh[slot] = c == null ? Float.NaN : value(c.getBatteryCapacityKwh());
+        topSpeedKmh[slot] = c == null ? Float.NaN : value(c.getTopSpeedKmh());
+        acceleration0100s[slot] = c == null ? Float.NaN : value(c.getAcceleration0100s());
+        Boolean flag = c == null ? null : c.getRemovableBattery();
+        setBit(removable, slot, Boolean.TRUE.equals(flag));
+        setBit(notRemovable, slot, Boolean.FALSE.equals(flag));
+        live[slot >>> 6] |= 1L << slot;
+    }
+
+    private static void setBit(long[] bits, int slot, boolean on) {
+        if (on) {
+            bits[slot >>> 6] |= 1L << slot;
+        } else {
+            bits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    private static float value(Double d) {
+        return d == null ? Float.NaN : d.floatValue();
+    }
+
+    // createdAt NULL xếp cuối (mới nhất trước)
+    private static long createdAtKey(LocalDateTime t) {
+        if (t == null) {
+            return Long.MIN_VALUE;
+        }
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + t.getNano();
+    }
+}
@@ -0,0 +1,93 @@
+package com.evdealer.evdealermanagement.utils;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.exceptions.AppException;
+import com.evdealer.evdealermanagement.exceptions.ErrorCode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Vị trí của product cuối cùng trong trang trước, dùng cho phân trang keyset (?after=...).
+ * Chuỗi gửi cho FE là Base64 URL-safe, FE chỉ cần trả lại nguyên vẹn.
+ * Thứ tự:
+ * - HOT_UPDATED: isHot DESC, updatedAt DESC (NULL cuối), id ASC
+ * - PRICE_ASC / PRICE_DESC: price ASC/DESC (NULL theo MySQL: đầu khi ASC, cuối khi DESC), id ASC
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ProductCursor {
+
+    private static final String SEPARATOR = "|";
+
+    public enum Mode {
+        HOT_UPDATED, PRICE_ASC, PRICE_DESC
+    }
+
+    private final Mode mode;
+    private final boolean hot;
+    private final LocalDateTime updatedAt;
+    private final BigDecimal price;
+    private final String id;
+
+    public static ProductCursor of(Product p, Mode mode) {
+        return new ProductCursor(mode, Boolean.TRUE.equals(p.getIsHot()), p.getUpdatedAt(), p.getPrice(), p.getId());
+    }
+
+    public static ProductCursor of(Mode mode, boolean hot, LocalDateTime updatedAt, String id) {
+        return new ProductCursor(mode, hot, updatedAt, null, id);
+    }
+
+    /**
+     * Sort "price" trên pageable -> seek theo giá, còn lại seek theo (isHot, updatedAt)
+     */
+    public static Mode modeFor(Sort sort) {
+        Sort.Order priceOrder = sort == null ? null : sort.getOrderFor("price");
+        if (priceOrder == null) {
+            return Mode.HOT_UPDATED;
+        }
+        return priceOrder.isAscending() ? Mode.PRICE_ASC : Mode.PRICE_DESC;
+    }
+
+    public static Sort sortFor(Mode mode) {
+        return switch (mode) {
+            case HOT_UPDATED -> Sort.by(Sort.Order.desc("isHot"), Sort.Order.desc("updatedAt"), Sort.Order.asc("id"));
+            case PRICE_ASC -> Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"));
+            case PRICE_DESC -> Sort.by(Sort.Order.desc("price"), Sort.Order.asc("id"));
+        };
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR,
+                mode.name(),
+                hot ? "1" : "0",
+                updatedAt == null ? "" : updatedAt.toString(),
+                price == null ? "" : price.toPlainString(),
+                id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 5 || parts[4].isEmpty()) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new ProductCursor(
+                    Mode.valueOf(parts[0]),
+                    "1".equals(parts[1]),
+                    parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]),
+                    parts[3].isEmpty() ? null : new BigDecimal(parts[3]),
+                    parts[4]);
+        } catch (RuntimeException e) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Cursor phân trang không hợp lệ");
+        }
+    }
+}
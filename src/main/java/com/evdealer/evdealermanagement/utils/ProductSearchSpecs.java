@@ -0,0 +1,96 @@
+package com.evdealer.evdealermanagement.utils;
+
+import com.evdealer.evdealermanagement.entity.product.Product;
+import com.evdealer.evdealermanagement.entity.product.ProductSearch;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+/**
+ * Điều kiện lọc trên bảng product_search. Giá trị lọc được chuẩn hoá ở phía Java
+ * (giống lúc ghi) nên so sánh trực tiếp trên cột, index dùng được.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ProductSearchSpecs {
+
+    public static Specification<ProductSearch> titleContains(String name) {
+        String folded = SearchTextNormalizer.fold(name);
+        if (folded.isEmpty()) {
+            return null;
+        }
+        String like = "%" + folded + "%";
+        return (r, q, cb) -> cb.like(r.get("titleNorm"), like);
+    }
+
+    public static Specification<ProductSearch> hasType(Product.ProductType type) {
+        if (type == null) {
+            return null;
+        }
+        return (r, q, cb) -> cb.equal(r.get("type"), type);
+    }
+
+    /**
+     * Giống ProductService.filterSpec: type VEHICLE lọc theo brand xe, còn lại (kể cả không chọn type)
+     * lọc theo brand pin. brand_id là brand xe với tin xe và brand pin với tin pin, nên phân biệt bằng type.
+     */
+    public static Specification<ProductSearch> brandEq(String brandId, Product.ProductType type) {
+        if (isBlank(brandId)) {
+            return null;
+        }
+        return (r, q, cb) -> cb.and(
+                cb.equal(r.get("brandId"), brandId.trim()),
+                type == Product.ProductType.VEHICLE
+                        ? cb.equal(r.get("type"), Product.ProductType.VEHICLE)
+                        : cb.notEqual(r.get("type"), Product.ProductType.VEHICLE));
+    }
+
+    public static Specification<ProductSearch> cityEq(String city) {
+        String code = SearchTextNormalizer.fold(city);
+        if (code.isEmpty()) {
+            return null;
+        }
+        return (r, q, cb) -> cb.equal(r.get("cityCode"), code);
+    }
+
+    public static Specification<ProductSearch> districtEq(String district) {
+        String code = SearchTextNormalizer.fold(district);
+        if (code.isEmpty()) {
+            return null;
+        }
+        return (r, q, cb) -> cb.equal(r.get("districtCode"), code);
+    }
+
+    public static Specification<ProductSearch> priceGte(BigDecimal min) {
+        if (min == null) {
+            return null;
+        }
+        return (r, q, cb) -> cb.greaterThanOrEqualTo(r.get("price"), min);
+    }
+
+    public static Specification<ProductSearch> priceLte(BigDecimal max) {
+        if (max == null) {
+            return null;
+        }
+        return (r, q, cb) -> cb.lessThanOrEqualTo(r.get("price"), max);
+    }
+
+    public static Specification<ProductSearch> yearGte(Integer from) {
+        if (from == null) {
+            return null;
+        }
+        return (r, q, cb) -> cb.greaterThanOrEqualTo(r.get("manufactureYear"), from.shortValue());
+    }
+
+    public static Specification<ProductSearch> yearLte(Integer to) {
+        if (to == null) {
+            return null;
+        }
+        return (r, q, cb) -> cb.lessThanOrEqualTo(r.get("manufactureYear"), to.shortValue());
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
@@ -3,11 +3,14 @@ package com.evdealer.evdealermanagement.utils;
 import com.evdealer.evdealermanagement.entity.product.Product;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -98,6 +101,52 @@ public final class ProductSpecs {
         return (r, q, cb) -> to == null ? null : cb.lessThanOrEqualTo(r.get("manufactureYear"), to.shortValue());
     }
 
+    /**
+     * Điều kiện keyset: chỉ lấy các product đứng sau cursor theo thứ tự của {@link ProductCursor#sortFor}.
+     * Dùng được cho mọi entity có các thuộc tính id, isHot, updatedAt, price (Product, ProductSearch)
+     */
+    public static <T> Specification<T> after(ProductCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (r, q, cb) -> {
+            Path<String> id = r.get("id");
+            Predicate idAfter = cb.greaterThan(id, cursor.getId());
+
+            if (cursor.getMode() == ProductCursor.Mode.HOT_UPDATED) {
+                Path<LocalDateTime> updatedAt = r.get("updatedAt");
+                // updatedAt DESC, NULL đứng cuối
+                Predicate sameHotAfter = cursor.getUpdatedAt() == null
+                        ? cb.and(cb.isNull(updatedAt), idAfter)
+                        : cb.or(
+                                cb.lessThan(updatedAt, cursor.getUpdatedAt()),
+                                cb.isNull(updatedAt),
+                                cb.and(cb.equal(updatedAt, cursor.getUpdatedAt()), idAfter));
+                Path<Boolean> hot = r.get("isHot");
+                return cursor.isHot()
+                        ? cb.or(cb.isFalse(hot), cb.and(cb.isTrue(hot), sameHotAfter))
+                        : cb.and(cb.isFalse(hot), sameHotAfter);
+            }
+
+            Path<BigDecimal> price = r.get("price");
+            if (cursor.getMode() == ProductCursor.Mode.PRICE_ASC) {
+                // price ASC, NULL đứng đầu
+                return cursor.getPrice() == null
+                        ? cb.or(cb.isNotNull(price), cb.and(cb.isNull(price), idAfter))
+                        : cb.or(
+                                cb.greaterThan(price, cursor.getPrice()),
+                                cb.and(cb.equal(price, cursor.getPrice()), idAfter));
+            }
+            // price DESC, NULL đứng cuối
+            return cursor.getPrice() == null
+                    ? cb.and(cb.isNull(price), idAfter)
+                    : cb.or(
+                            cb.lessThan(price, cursor.getPrice()),
+                            cb.isNull(price),
+                            cb.and(cb.equal(price, cursor.getPrice()), idAfter));
+        };
+    }
+
     public static Specification<Product> all() {
         return ((root, query, criteriaBuilder) -> criteriaBuilder.conjunction());
     }
@@ -3,12 +3,14 @@ package com.evdealer.evdealermanagement.utils;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.evdealer.evdealermanagement.entity.product.Product;
 import com.evdealer.evdealermanagement.repository.ProductRepository;
+import com.evdealer.evdealermanagement.service.index.ProductChangedEvent;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 public class RenewalActivationScheduler {
 
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Chạy lúc 00:00 mỗi ngày
     @Scheduled(cron = "0 0 0 * * ?")
@@ -37,5 +40,8 @@ public class RenewalActivationScheduler {
             log.info("Activated renewal for product: {}, new updatedAt: {}",
                     product.getId(), product.getUpdatedAt());
         }
+
+        eventPublisher.publishEvent(new ProductChangedEvent(
+                productsToActivate.stream().map(Product::getId).toList()));
     }
 }
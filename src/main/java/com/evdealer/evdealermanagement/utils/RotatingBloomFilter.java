@@ -0,0 +1,87 @@
+package com.evdealer.evdealermanagement.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter hai thế hệ cho các giá trị hash SHA-256 (hex): thêm vào thế hệ hiện tại,
+ * kiểm trên cả hai. Mỗi lần {@link #rotate()} bỏ thế hệ cũ nhất, nên một phần tử được giữ
+ * ít nhất một chu kỳ xoay rồi tự rơi ra (không cần xoá từng phần tử).
+ * Không có âm tính giả trong thời gian giữ; dương tính giả ~ fpp khi số phần tử mỗi thế hệ
+ * không vượt expectedInsertions.
+ */
+public class RotatingBloomFilter {
+
+    private final int bitCount;
+    private final int hashCount;
+
+    private volatile AtomicLongArray current;
+    private volatile AtomicLongArray previous;
+    private final LongAdder currentInsertions = new LongAdder();
+
+    public RotatingBloomFilter(int expectedInsertions, double fpp) {
+        int n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.current = new AtomicLongArray(words());
+        this.previous = new AtomicLongArray(words());
+    }
+
+    public void put(String sha256Hex) {
+        AtomicLongArray bits = current;
+        long h1 = Long.parseUnsignedLong(sha256Hex.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(sha256Hex.substring(16, 32), 16);
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1, h2, i);
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long old;
+            do {
+                old = bits.get(word);
+                if ((old & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, old, old | mask));
+        }
+        currentInsertions.increment();
+    }
+
+    public boolean mightContain(String sha256Hex) {
+        long h1 = Long.parseUnsignedLong(sha256Hex.substring(0, 16), 16);
+        long h2 = Long.parseUnsignedLong(sha256Hex.substring(16, 32), 16);
+        return contains(current, h1, h2) || contains(previous, h1, h2);
+    }
+
+    /**
+     * Thế hệ hiện tại thành thế hệ cũ, bắt đầu thế hệ mới rỗng
+     */
+    public synchronized void rotate() {
+        previous = current;
+        current = new AtomicLongArray(words());
+        currentInsertions.reset();
+    }
+
+    public long currentInsertions() {
+        return currentInsertions.sum();
+    }
+
+    private boolean contains(AtomicLongArray bits, long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1, h2, i);
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Double hashing: h1 + i*h2, đủ độc lập vì h1, h2 là hai đoạn khác nhau của SHA-256
+    private int index(long h1, long h2, int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+    }
+
+    private int words() {
+        return (bitCount + 63) >>> 6;
+    }
+}
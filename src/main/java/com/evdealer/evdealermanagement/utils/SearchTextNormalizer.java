@@ -0,0 +1,38 @@
+package com.evdealer.evdealermanagement.utils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hoá text tiếng Việt cho tìm kiếm: chữ thường, bỏ dấu, "đ" -> "d",
+ * mọi ký tự không phải chữ/số thành khoảng trắng. "Xe Điện" -> "xe dien".
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SearchTextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    public static String fold(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALNUM.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    public static List<String> tokenize(String text) {
+        String folded = fold(text);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(folded.split(" "));
+    }
+}
@@ -0,0 +1,29 @@
+-- Bảng đọc cho /product/filter (entity ProductSearch, ghi bởi ProductSearchProjection).
+-- ddl-auto=none: chạy tay một lần trên MySQL 8 trước khi deploy bản có bảng này.
+-- Không cần nạp dữ liệu: lần đối chiếu lúc khởi động tự điền bảng, trước đó filter đọc từ products.
+CREATE TABLE IF NOT EXISTS product_search (
+    product_id       CHAR(36)       NOT NULL,
+    type             VARCHAR(20)    NOT NULL,
+    brand_id         CHAR(36)       NULL,
+    model_id         CHAR(36)       NULL,
+    battery_type_id  CHAR(36)       NULL,
+    title_norm       VARCHAR(255)   NULL,
+    city_code        VARCHAR(100)   NULL,
+    district_code    VARCHAR(100)   NULL,
+    price            DECIMAL(15, 2) NULL,
+    manufacture_year SMALLINT       NULL,
+    is_hot           BIT(1)         NOT NULL,
+    featured_rank    TINYINT        NOT NULL,
+    featured_end_at  DATETIME(6)    NULL,
+    created_at       DATETIME(6)    NULL,
+    updated_at       DATETIME(6)    NULL,
+    PRIMARY KEY (product_id),
+    INDEX idx_ps_type_brand_hot_updated (type, brand_id, is_hot, updated_at, product_id),
+    INDEX idx_ps_brand_price (brand_id, price, product_id),
+    INDEX idx_ps_type_price (type, price, product_id),
+    INDEX idx_ps_city_district_hot_updated (city_code, district_code, is_hot, updated_at, product_id),
+    INDEX idx_ps_hot_updated (is_hot, updated_at, product_id),
+    INDEX idx_ps_year_price (manufacture_year, price),
+    INDEX idx_ps_model (model_id),
+    INDEX idx_ps_battery_type (battery_type_id)
+) ENGINE = InnoDB;
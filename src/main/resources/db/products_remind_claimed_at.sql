@@ -0,0 +1,4 @@
+-- Lease của job nhắc hết hạn (Product.remindClaimedAt, ghi bởi ProductExpireReminderJobService).
+-- ddl-auto=none: chạy tay một lần trên MySQL 8 trước khi deploy bản có cột này.
+-- Không cần nạp dữ liệu: NULL nghĩa là chưa có lần chạy nào giữ tin.
+ALTER TABLE products ADD COLUMN remind_claimed_at DATETIME(6) NULL;
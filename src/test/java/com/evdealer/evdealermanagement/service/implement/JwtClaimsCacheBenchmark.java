@@ -0,0 +1,70 @@
+package com.evdealer.evdealermanagement.service.implement;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+/**
+ * Đo {@link JwtService#extractAllClaims(String)} thật (jjwt 0.11) có và không có {@link JwtClaimsCache}.
+ * Không phải test JUnit: chạy tay bằng
+ * <pre>
+ * mvn -Dmaven.test.skip=false test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.evdealer.evdealermanagement.service.implement.JwtClaimsCacheBenchmark
+ * </pre>
+ * Tham số (tuỳ chọn): số vòng warm-up, số vòng đo, số round. Không cache = cache 0 entry,
+ * tức mỗi lần gọi đều parse + kiểm HMAC như một lần miss thật (kể cả SHA-256 của key).
+ */
+public class JwtClaimsCacheBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        JwtService cached = jwtService(new JwtClaimsCache(10_000));
+        JwtService uncached = jwtService(new JwtClaimsCache(0));
+        String token = cached.generateToken(UUID.randomUUID().toString(), "seller@example.com", true);
+
+        System.out.printf("JDK %s, token %d bytes, warmup=%d, iterations=%d%n",
+                System.getProperty("java.version"), token.length(), warmup, iterations);
+        for (int round = 1; round <= rounds; round++) {
+            System.out.printf("round %d: parse-per-call %.0f ns/op, cached %.0f ns/op%n", round,
+                    nsPerOp(uncached, token, warmup, iterations),
+                    nsPerOp(cached, token, warmup, iterations));
+        }
+        System.out.println("cached stats: " + cached(cached).getStats());
+    }
+
+    private static JwtService jwtService(JwtClaimsCache cache) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "expirationMs", 10_800_000L);
+        ReflectionTestUtils.setField(service, "claimsCache", cache);
+        return service;
+    }
+
+    private static JwtClaimsCache cached(JwtService service) {
+        return (JwtClaimsCache) ReflectionTestUtils.getField(service, "claimsCache");
+    }
+
+    private static double nsPerOp(JwtService service, String token, int warmup, int iterations) {
+        run(service, token, warmup);
+        long start = System.nanoTime();
+        run(service, token, iterations);
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    private static void run(JwtService service, String token, int iterations) {
+        int acc = 0;
+        for (int i = 0; i < iterations; i++) {
+            Claims claims = service.extractAllClaims(token);
+            acc += claims.getSubject().length();
+        }
+        sink = acc;
+    }
+}